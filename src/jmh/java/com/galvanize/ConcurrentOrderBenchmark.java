@@ -0,0 +1,67 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * addItem throughput of {@link ConcurrentOrder} against an {@link Order} guarded by a
+ * single lock, with 8 intake threads and an occasional total read.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Threads(8)
+@Fork(1)
+public class ConcurrentOrderBenchmark {
+
+    private final Item item = new Purchase("Phone Case", new BigDecimal("7.88"));
+
+    private Order synchronizedOrder;
+    private ConcurrentOrder concurrentOrder;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        synchronizedOrder = new Order();
+        concurrentOrder = new ConcurrentOrder();
+    }
+
+    @State(Scope.Thread)
+    public static class Counter {
+        int adds;
+    }
+
+    @Benchmark
+    public Object synchronizedOrder(Counter counter) {
+        synchronized (synchronizedOrder) {
+            synchronizedOrder.addItem(item);
+            if (++counter.adds % 1024 == 0) {
+                return synchronizedOrder.getTotal();
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public Object concurrentOrder(Counter counter) {
+        concurrentOrder.addItem(item);
+        if (++counter.adds % 1024 == 0) {
+            return concurrentOrder.getTotal();
+        }
+        return null;
+    }
+}
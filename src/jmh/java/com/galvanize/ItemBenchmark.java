@@ -0,0 +1,59 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@code totalPrice()}, {@code toString()} and {@code appendTo} into a reused buffer of
+ * single items, one type at a time, so a regression in one subtype isn't averaged away by
+ * the others.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ItemBenchmark {
+
+    @Param({"LEASE", "PURCHASE", "RENTAL"})
+    public String type;
+
+    private Item item;
+    private final StringBuilder text = new StringBuilder(128);
+
+    @Setup
+    public void setUp() {
+        item = OrderBenchmark.newItems(1, type)[0];
+    }
+
+    @Benchmark
+    public BigDecimal totalPrice() {
+        return item.totalPrice();
+    }
+
+    @Benchmark
+    public String itemToString() {
+        return item.toString();
+    }
+
+    @Benchmark
+    public int itemAppendTo() throws IOException {
+        text.setLength(0);
+        item.appendTo(text);
+        return text.length();
+    }
+}
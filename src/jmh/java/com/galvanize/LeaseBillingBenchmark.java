@@ -0,0 +1,88 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One month's billing run over a lease portfolio: materializing every lease's schedule
+ * and sorting the month's charges, against the {@link LeaseBillingSchedule} merge as a
+ * cursor and as a stream. Run with {@code -prof gc} to see what each allocates.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LeaseBillingBenchmark {
+
+    private static final LocalDate FROM = LocalDate.of(2030, 6, 1);
+    private static final LocalDate UNTIL = LocalDate.of(2030, 7, 1);
+
+    @Param({"10000", "100000"})
+    public int leases;
+
+    private List<LeaseBillingSchedule> schedules;
+
+    @Setup
+    public void setUp() {
+        schedules = new ArrayList<>(leases);
+        for (int i = 0; i < leases; i++) {
+            Lease lease = new Lease("PLT-" + (i % 1000), BigDecimal.valueOf(10_000 + i % 50_000, 2), 12 + i % 48);
+            schedules.add(new LeaseBillingSchedule(lease, LocalDate.of(2027 + i % 4, 1 + i % 12, 1 + i % 28)));
+        }
+    }
+
+    @Benchmark
+    public long materialized() {
+        List<LeaseBillingSchedule.BillingPeriod> due = new ArrayList<>();
+        for (LeaseBillingSchedule schedule : schedules) {
+            List<LeaseBillingSchedule.BillingPeriod> periods = new ArrayList<>(schedule.months());
+            schedule.periods().forEach(periods::add);
+            for (LeaseBillingSchedule.BillingPeriod period : periods) {
+                if (!period.getDueDate().isBefore(FROM) && period.getDueDate().isBefore(UNTIL)) {
+                    due.add(period);
+                }
+            }
+        }
+        due.sort(Comparator.comparing(LeaseBillingSchedule.BillingPeriod::getDueDate));
+        long cents = 0;
+        for (LeaseBillingSchedule.BillingPeriod period : due) {
+            cents += period.getChargeCents();
+        }
+        return cents;
+    }
+
+    @Benchmark
+    public long mergedCursor() {
+        LeaseBillingSchedule.MergedCursor cursor = LeaseBillingSchedule.merge(schedules, FROM, UNTIL);
+        long cents = 0;
+        while (cursor.next()) {
+            cents += cursor.chargeCents();
+        }
+        return cents;
+    }
+
+    @Benchmark
+    public long mergedStream() {
+        return LeaseBillingSchedule.mergedPeriods(schedules, FROM, UNTIL)
+                .mapToLong(LeaseBillingSchedule.BillingPeriod::getChargeCents)
+                .sum();
+    }
+}
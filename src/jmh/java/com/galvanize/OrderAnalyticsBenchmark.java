@@ -0,0 +1,69 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link OrderAnalytics} over a million orders of ten mixed items, on pools of 1 to 16
+ * workers. Scaling is the 1-worker time over the n-worker time; it stops improving once
+ * parallelism passes the machine's cores.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms4g", "-Xmx4g"})
+public class OrderAnalyticsBenchmark {
+
+    @Param({"1", "2", "4", "8", "16"})
+    public int parallelism;
+
+    @Param({"1000000"})
+    public int orders;
+
+    private List<Order> orderList;
+    private ForkJoinPool pool;
+    private OrderAnalytics analytics;
+
+    @Setup
+    public void setUp() {
+        Item[] items = OrderBenchmark.newItems(10 * 1024, "MIXED");
+        orderList = new ArrayList<>(orders);
+        for (int i = 0; i < orders; i++) {
+            Order order = new Order();
+            for (int j = 0; j < 10; j++) {
+                order.addItem(items[(i * 7 + j) % items.length]);
+            }
+            orderList.add(order);
+        }
+        pool = new ForkJoinPool(parallelism);
+        analytics = new OrderAnalytics(pool, Clock.systemDefaultZone());
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public OrderAnalytics.Report analyze() {
+        return analytics.analyze(orderList, 100);
+    }
+}
@@ -0,0 +1,89 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The {@link Order} operations callers hit most, for small carts, 10k-line and 1M-line
+ * orders, each made of one item type or a mix of all three. One operation builds,
+ * reads or re-prices a whole order.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBenchmark {
+
+    private static final String[] PRODUCTS = {"Lawn Mower", "Phone Case", "Drill", "Ladder", "Kayak"};
+
+    @Param({"5", "10000", "1000000"})
+    public int lines;
+
+    @Param({"MIXED", "LEASE", "PURCHASE", "RENTAL"})
+    public String items;
+
+    private Item[] lineItems;
+    private Order order;
+
+    @Setup
+    public void setUp() {
+        lineItems = newItems(lines, items);
+        order = addItems();
+    }
+
+    @Benchmark
+    public Order addItems() {
+        Order built = new Order();
+        for (Item item : lineItems) {
+            built.addItem(item);
+        }
+        return built;
+    }
+
+    @Benchmark
+    public BigDecimal getTotal() {
+        return order.getTotal();
+    }
+
+    @Benchmark
+    public BigDecimal reprice() {
+        order.reprice();
+        return order.getTotal();
+    }
+
+    // kind is MIXED, LEASE, PURCHASE or RENTAL; a mix cycles through the three types
+    static Item[] newItems(int count, String kind) {
+        LocalDateTime endDate = LocalDateTime.now().plusDays(7);
+        Item[] items = new Item[count];
+        for (int i = 0; i < count; i++) {
+            BigDecimal price = BigDecimal.valueOf(100 + i % 5000, 2);
+            int type = kind.equals("MIXED") ? i % 3 : kind.equals("LEASE") ? 0 : kind.equals("PURCHASE") ? 1 : 2;
+            switch (type) {
+                case 0:
+                    items[i] = new Lease("PLT-" + (i % 1000), price, 1 + i % 36);
+                    break;
+                case 1:
+                    items[i] = new Purchase(PRODUCTS[i % PRODUCTS.length], price);
+                    break;
+                default:
+                    items[i] = new Rental(price, endDate.plusDays(i % 30));
+            }
+        }
+        return items;
+    }
+}
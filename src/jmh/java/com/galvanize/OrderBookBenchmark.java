@@ -0,0 +1,99 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Totals per second of the columnar {@link OrderBook} against re-pricing every
+ * {@link Order} line. Run {@link #main} for bytes per line.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderBookBenchmark {
+
+    private static final String[] PRODUCTS = {"Lawn Mower", "Phone Case", "Drill", "Ladder", "Kayak"};
+
+    @Param({"10000", "1000000"})
+    public int lines;
+
+    private Order order;
+    private OrderBook book;
+
+    @Setup
+    public void setUp() {
+        order = newOrder(lines);
+        book = new OrderBook(lines);
+        book.addAll(1, order);
+    }
+
+    @Benchmark
+    public BigDecimal orderTotal() {
+        order.reprice();
+        return order.getTotal();
+    }
+
+    @Benchmark
+    public BigDecimal orderBookTotal() {
+        return book.getTotal();
+    }
+
+    static Order newOrder(int lines) {
+        LocalDateTime endDate = LocalDateTime.now().plusDays(7);
+        Order order = new Order();
+        for (int i = 0; i < lines; i++) {
+            BigDecimal price = BigDecimal.valueOf(100 + i % 5000, 2);
+            switch (i % 3) {
+                case 0:
+                    order.addItem(new Lease("PLT-" + (i % 1000), price, 1 + i % 36));
+                    break;
+                case 1:
+                    order.addItem(new Purchase(PRODUCTS[i % PRODUCTS.length], price));
+                    break;
+                default:
+                    order.addItem(new Rental(price, endDate.plusDays(i % 30)));
+            }
+        }
+        return order;
+    }
+
+    public static void main(String[] args) {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        long baseline = usedHeap();
+        Order order = newOrder(lines);
+        long orderBytes = usedHeap() - baseline;
+        OrderBook book = new OrderBook(lines);
+        book.addAll(1, order);
+        long bookBytes = usedHeap() - baseline - orderBytes;
+        System.out.printf("Order:     %.1f bytes/line%n", (double) orderBytes / lines);
+        System.out.printf("OrderBook: %.1f bytes/line (%.1f estimated)%n",
+                (double) bookBytes / lines, (double) book.footprintBytes() / lines);
+        if (order.getTotal().compareTo(book.getTotal()) != 0) {
+            throw new AssertionError("totals differ");
+        }
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
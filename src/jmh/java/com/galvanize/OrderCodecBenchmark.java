@@ -0,0 +1,111 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encode/decode throughput of the binary order codec against Java serialization.
+ * Items aren't {@code Serializable}, so the Java serialization side writes the same
+ * fields as an {@code ArrayList} of {@code Object[]} rows.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderCodecBenchmark {
+
+    @Param({"100", "10000"})
+    public int lines;
+
+    private Order order;
+    private OrderEncoder encoder;
+    private ByteBuffer buffer;
+    private ArrayList<Object[]> rows;
+    private byte[] serialized;
+
+    @Setup
+    public void setUp() throws IOException {
+        order = OrderBookBenchmark.newOrder(lines);
+        encoder = new OrderEncoder();
+        buffer = ByteBuffer.allocate(64 * lines + 1024);
+        encoder.encode(order, buffer);
+        buffer.flip();
+
+        rows = new ArrayList<>();
+        for (Item item : order.snapshot().getItems()) {
+            switch (item.kind()) {
+                case Item.LEASE:
+                    Lease lease = (Lease) item;
+                    rows.add(new Object[]{item.kind(), item.getPrice(), lease.getNumberOfMonths(), lease.getLicensePlate()});
+                    break;
+                case Item.PURCHASE:
+                    rows.add(new Object[]{item.kind(), item.getPrice(), ((Purchase) item).getProductName()});
+                    break;
+                default:
+                    rows.add(new Object[]{item.kind(), item.getPrice(), ((Rental) item).getEndDate()});
+            }
+        }
+        serialized = javaSerialize();
+        System.out.printf("%n%d lines: codec %d bytes, Java serialization %d bytes%n",
+                lines, buffer.remaining(), serialized.length);
+    }
+
+    @Benchmark
+    public int encode() {
+        ByteBuffer out = buffer.duplicate();
+        out.clear();
+        encoder.encode(order, out);
+        return out.position();
+    }
+
+    @Benchmark
+    public long decodeLazily() {
+        OrderView.Cursor cursor = OrderView.read(buffer.duplicate()).cursor();
+        long cents = 0;
+        while (cursor.next()) {
+            cents += cursor.priceCents();
+        }
+        return cents;
+    }
+
+    @Benchmark
+    public Order decodeToOrder() {
+        return OrderView.read(buffer.duplicate()).toOrder();
+    }
+
+    @Benchmark
+    public byte[] javaSerialize() throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(64 * lines);
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(rows);
+        }
+        return bytes.toByteArray();
+    }
+
+    @Benchmark
+    public Object javaDeserialize() throws IOException, ClassNotFoundException {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(serialized))) {
+            return in.readObject();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Time to export a million order lines to a channel that drops them, so encoding is what's
+ * measured: {@link OrderExporter} with a growing number of encoder threads, against one
+ * thread concatenating each line into a {@code BufferedWriter}. Divide the bytes printed at
+ * setup by the score for MB/s.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(1)
+public class OrderExportBenchmark {
+
+    @Param({"CSV", "JSON_LINES"})
+    public String format;
+
+    @Param({"false", "true"})
+    public boolean gzip;
+
+    @Param({"1", "2", "4", "8"})
+    public int threads;
+
+    @Param({"100000"})
+    public int orders;
+
+    private OrderFileFormat fileFormat;
+    private Map<Long, Order> orderMap;
+
+    @Setup
+    public void setUp() throws IOException, InterruptedException {
+        fileFormat = OrderFileFormat.valueOf(format);
+        Item[] items = OrderBenchmark.newItems(orders * 10, "MIXED");
+        orderMap = new LinkedHashMap<>();
+        for (int i = 0, next = 0; i < orders; i++) {
+            Order order = new Order();
+            for (int line = 0; line < 10; line++) {
+                order.addItem(items[next++]);
+            }
+            orderMap.put((long) i, order);
+        }
+        System.out.printf("%n%s%n", export());
+    }
+
+    @Benchmark
+    public OrderExporter.Stats export() throws IOException, InterruptedException {
+        return new OrderExporter(fileFormat, gzip, threads, 8192, 1 << 18).export(orderMap, new Discard());
+    }
+
+    @Benchmark
+    public long bufferedWriter() throws IOException {
+        Discard channel = new Discard();
+        OutputStream bytes = new OutputStream() {
+            @Override
+            public void write(int b) {
+                channel.bytes++;
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+                channel.bytes += len;
+            }
+        };
+        try (Writer out = new BufferedWriter(new OutputStreamWriter(gzip ? new GZIPOutputStream(bytes, 1 << 16) : bytes,
+                StandardCharsets.UTF_8), 1 << 16)) {
+            for (Map.Entry<Long, Order> entry : orderMap.entrySet()) {
+                for (Item item : entry.getValue().snapshot().getItems()) {
+                    out.write(fileFormat == OrderFileFormat.CSV ? csv(entry.getKey(), item) : json(entry.getKey(), item));
+                    out.write('\n');
+                }
+            }
+        }
+        return channel.bytes;
+    }
+
+    private static String csv(long order, Item item) {
+        if (item instanceof Lease) {
+            Lease lease = (Lease) item;
+            return "lease," + order + "," + lease.getPricePerMonth() + "," + lease.getNumberOfMonths() + "," + lease.getLicensePlate();
+        }
+        if (item instanceof Purchase) {
+            Purchase purchase = (Purchase) item;
+            return "purchase," + order + "," + purchase.getPrice() + ",," + purchase.getProductName();
+        }
+        Rental rental = (Rental) item;
+        return "rental," + order + "," + rental.getRentalPricePerDay() + "," + rental.getEndDate() + ",";
+    }
+
+    private static String json(long order, Item item) {
+        if (item instanceof Lease) {
+            Lease lease = (Lease) item;
+            return "{\"order\":" + order + ",\"type\":\"lease\",\"pricePerMonth\":" + lease.getPricePerMonth()
+                    + ",\"numberOfMonths\":" + lease.getNumberOfMonths() + ",\"licensePlate\":\"" + lease.getLicensePlate() + "\"}";
+        }
+        if (item instanceof Purchase) {
+            Purchase purchase = (Purchase) item;
+            return "{\"order\":" + order + ",\"type\":\"purchase\",\"price\":" + purchase.getPrice()
+                    + ",\"productName\":\"" + purchase.getProductName() + "\"}";
+        }
+        Rental rental = (Rental) item;
+        return "{\"order\":" + order + ",\"type\":\"rental\",\"rentalPricePerDay\":" + rental.getRentalPricePerDay()
+                + ",\"endDate\":\"" + rental.getEndDate() + "\"}";
+    }
+
+    private static final class Discard implements WritableByteChannel {
+        long bytes;
+
+        @Override
+        public int write(ByteBuffer src) {
+            int written = src.remaining();
+            src.position(src.limit());
+            bytes += written;
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,120 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Time to stream a generated order file into orders. Divide the file size printed at
+ * setup by the score for MB/s, or run {@link #main} which prints MB/s directly.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx256m")
+public class OrderIngestBenchmark {
+
+    @Param({"CSV", "JSON_LINES"})
+    public String format;
+
+    @Param({"1000000"})
+    public int lines;
+
+    private OrderFileFormat fileFormat;
+    private Path file;
+
+    @Setup
+    public void setUp() throws IOException {
+        fileFormat = OrderFileFormat.valueOf(format);
+        file = writeFile(fileFormat, lines);
+        System.out.printf("%n%s file: %.1f MB%n", format, Files.size(file) / 1e6);
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        Files.deleteIfExists(file);
+    }
+
+    @Benchmark
+    public OrderIngester.Stats ingest() throws IOException, InterruptedException {
+        return ingest(file, fileFormat);
+    }
+
+    // a small working set of orders, so the heap doesn't grow with the file
+    private static OrderIngester.Stats ingest(Path file, OrderFileFormat format) throws IOException, InterruptedException {
+        Map<Long, Order> orders = new HashMap<>();
+        return new OrderIngester(id -> {
+            Order order = orders.get(id % 1024);
+            if (order == null || order.snapshot().size() >= 1000) {
+                order = new Order();
+                orders.put(id % 1024, order);
+            }
+            return order;
+        }).ingest(file, format);
+    }
+
+    static Path writeFile(OrderFileFormat format, int lines) throws IOException {
+        Path file = Files.createTempFile("orders", format == OrderFileFormat.CSV ? ".csv" : ".jsonl");
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8)) {
+            for (int i = 0; i < lines; i++) {
+                String price = (1 + i % 500) + "." + (10 + i % 90);
+                long order = i / 10;
+                switch (i % 3) {
+                    case 0:
+                        out.write(format == OrderFileFormat.CSV
+                                ? "lease," + order + "," + price + "," + (1 + i % 36) + ",PLT-" + i % 1000
+                                : "{\"order\":" + order + ",\"type\":\"lease\",\"pricePerMonth\":" + price
+                                + ",\"numberOfMonths\":" + (1 + i % 36) + ",\"licensePlate\":\"PLT-" + i % 1000 + "\"}");
+                        break;
+                    case 1:
+                        out.write(format == OrderFileFormat.CSV
+                                ? "purchase," + order + "," + price + ",,Product " + i % 5000
+                                : "{\"order\":" + order + ",\"type\":\"purchase\",\"price\":" + price
+                                + ",\"productName\":\"Product " + i % 5000 + "\"}");
+                        break;
+                    default:
+                        out.write(format == OrderFileFormat.CSV
+                                ? "rental," + order + "," + price + ",2030-03-" + (10 + i % 18) + "T10:15:30,"
+                                : "{\"order\":" + order + ",\"type\":\"rental\",\"rentalPricePerDay\":" + price
+                                + ",\"endDate\":\"2030-03-" + (10 + i % 18) + "T10:15:30\"}");
+                }
+                out.write('\n');
+            }
+        }
+        return file;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int lines = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+        for (OrderFileFormat format : OrderFileFormat.values()) {
+            Path file = writeFile(format, lines);
+            try {
+                for (int run = 0; run < 3; run++) {
+                    System.out.println(format + ": " + ingest(file, format));
+                }
+            } finally {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
@@ -0,0 +1,144 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Order lines per second from one producer (more with JMH's -t) into orders:
+ * {@link OrderIntakePipeline} under each wait strategy, against handing each line to a
+ * consumer thread through an {@code ArrayBlockingQueue}, which parses it and calls
+ * {@code addItem}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx1g")
+public class OrderIntakeBenchmark {
+
+    private static final int LINES = 100_000;
+    private static final byte[] END = new byte[0];
+
+    @Param({"BUSY_SPIN", "YIELDING", "SLEEPING", "BLOCKING"})
+    public String waitStrategy;
+
+    @Param({"2"})
+    public int decoders;
+
+    private byte[][] lines;
+    private Order[] orders;
+    private OrderIntakePipeline pipeline;
+    private ArrayBlockingQueue<byte[]> queue;
+    private Thread consumer;
+    private volatile long consumed;
+    private long produced;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        lines = new byte[LINES][];
+        for (int i = 0; i < LINES; i++) {
+            String price = (1 + i % 500) + "." + (10 + i % 90);
+            String line;
+            switch (i % 3) {
+                case 0:
+                    line = "lease," + i % 1024 + "," + price + "," + (1 + i % 36) + ",PLT-" + i % 1000;
+                    break;
+                case 1:
+                    line = "purchase," + i % 1024 + "," + price + ",,Product " + i % 5000;
+                    break;
+                default:
+                    line = "rental," + i % 1024 + "," + price + ",2030-03-" + (10 + i % 18) + "T10:15:30,";
+            }
+            lines[i] = line.getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    // only one of the benchmarks runs in a trial, so only one thread calls order() at a time
+    @Setup(Level.Iteration)
+    public void start() {
+        orders = new Order[1024];
+        consumed = 0;
+        produced = 0;
+        pipeline = new OrderIntakePipeline(this::order, OrderFileFormat.CSV, Clock.systemDefaultZone(),
+                1 << 16, decoders, 1, OrderIntakePipeline.WaitStrategy.valueOf(waitStrategy));
+        queue = new ArrayBlockingQueue<>(1 << 16);
+        consumer = new Thread(() -> {
+            OrderLineParser parser = new OrderLineParser(OrderFileFormat.CSV);
+            try {
+                for (long lineNumber = 2; ; lineNumber++) {
+                    byte[] line = queue.take();
+                    if (line == END) {
+                        return;
+                    }
+                    parser.parse(line, 0, line.length, lineNumber);
+                    order(parser.orderId()).addItem(parser.item());
+                    consumed++;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        consumer.setDaemon(true);
+        consumer.start();
+    }
+
+    @TearDown(Level.Iteration)
+    public void stop() throws InterruptedException {
+        pipeline.close();
+        queue.put(END);
+        consumer.join();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long pipeline() {
+        for (byte[] line : lines) {
+            pipeline.publishLine(line, 0, line.length);
+        }
+        pipeline.flush();
+        return pipeline.added();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(LINES)
+    public long blockingQueue() throws InterruptedException {
+        for (byte[] line : lines) {
+            // a copy, as the producer's buffer would be reused for the next line
+            queue.put(line.clone());
+        }
+        produced += LINES;
+        while (consumed < produced) {
+            Thread.yield();
+        }
+        return consumed;
+    }
+
+    // a small working set of orders, renewed as they fill, so the heap doesn't grow with the run
+    private Order order(long id) {
+        int at = (int) (id & 1023);
+        Order order = orders[at];
+        if (order == null || order.snapshot().size() >= 1000) {
+            order = new Order();
+            orders[at] = order;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,67 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * What {@link OrderMetrics} adds to {@code addItem} and {@code getTotal}, enabled and
+ * disabled. Disabled should match a build without metrics.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class OrderMetricsBenchmark {
+
+    @Param({"false", "true"})
+    public boolean enabled;
+
+    private final Item item = new Purchase("Phone Case", new BigDecimal("7.88"));
+    private Order order;
+
+    @Setup(Level.Trial)
+    public void enable() {
+        if (enabled) {
+            OrderMetrics.enable();
+        } else {
+            OrderMetrics.disable();
+        }
+    }
+
+    @Setup(Level.Iteration)
+    public void newOrder() {
+        order = new Order();
+    }
+
+    @TearDown(Level.Trial)
+    public void disable() {
+        OrderMetrics.disable();
+    }
+
+    @Benchmark
+    public Order addItem() {
+        order.addItem(item);
+        return order;
+    }
+
+    @Benchmark
+    public BigDecimal getTotal() {
+        return order.getTotal();
+    }
+}
@@ -0,0 +1,95 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Requests per second through {@link OrderProcessor} when each add first blocks on a
+ * lookup for blockMicros, with up to inFlight requests outstanding. TASK is the
+ * processor's default executor, a virtual thread per task when run on JDK 21 or later;
+ * PLATFORM_n is a pool of n platform threads. The p99 latency, submission to completion,
+ * is printed after each iteration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OrderProcessorBenchmark {
+
+    private static final int REQUESTS = 10_000;
+
+    @Param({"PLATFORM_64", "PLATFORM_512", "TASK"})
+    public String executor;
+
+    @Param({"1000", "10000"})
+    public int inFlight;
+
+    @Param({"200"})
+    public int blockMicros;
+
+    private final Item item = new Purchase("Phone Case", new BigDecimal("7.88"));
+
+    private ExecutorService executorService;
+    private OrderProcessor processor;
+    private Semaphore permits;
+
+    @Setup(Level.Iteration)
+    public void setUp() {
+        ConcurrentHashMap<Long, Order> orders = new ConcurrentHashMap<>();
+        long blockNanos = TimeUnit.MICROSECONDS.toNanos(blockMicros);
+        if (executor.equals("TASK")) {
+            executorService = TaskExecutors.newTaskExecutor("benchmark-processor");
+        } else {
+            int threads = Integer.parseInt(executor.substring("PLATFORM_".length()));
+            executorService = TaskExecutors.newPlatformExecutor("benchmark-processor", threads);
+        }
+        processor = new OrderProcessor(id -> {
+            LockSupport.parkNanos(blockNanos);
+            return orders.computeIfAbsent(id, key -> new Order());
+        }, null, executorService);
+        permits = new Semaphore(inFlight);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws InterruptedException {
+        System.out.printf("%n%s%s: p50 %d us, p99 %d us over %d requests%n", executor,
+                executor.equals("TASK") && TaskExecutors.virtualThreads() ? " (virtual threads)" : "",
+                processor.latencyNanosAt(50) / 1000, processor.latencyNanosAt(99) / 1000, processor.completed());
+        processor.close();
+        executorService.shutdown();
+        executorService.awaitTermination(1, TimeUnit.MINUTES);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(REQUESTS)
+    public void add() throws InterruptedException {
+        for (int i = 0; i < REQUESTS; i++) {
+            permits.acquire();
+            processor.add(i & 1023, item).whenComplete((total, error) -> permits.release());
+        }
+        // wait for the last requests, so each invocation counts only its own
+        permits.acquire(inFlight);
+        permits.release(inFlight);
+    }
+}
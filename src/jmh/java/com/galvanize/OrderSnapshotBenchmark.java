@@ -0,0 +1,114 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Stream;
+
+/**
+ * Startup time against item count: loading every order from an {@link OrderSnapshotFile}
+ * against rebuilding them item by item, re-pricing each, by replaying an
+ * {@link OrderJournal}. Orders hold 100 items each. Run {@link #main} for a one-shot table.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+public class OrderSnapshotBenchmark {
+
+    private static final int ITEMS_PER_ORDER = 100;
+
+    @Param({"10000", "100000", "1000000"})
+    public int items;
+
+    private Path directory;
+    private Path snapshot;
+    private OrderJournal journal;
+
+    @Setup
+    public void setUp() throws IOException {
+        directory = Files.createTempDirectory("snapshot-benchmark");
+        snapshot = directory.resolve("orders.snapshot");
+        journal = OrderJournal.open(directory.resolve("journal"), OrderJournal.Durability.NONE);
+        OrderSnapshotFile.write(snapshot, newOrders(items, journal));
+    }
+
+    @TearDown
+    public void tearDown() throws IOException {
+        journal.close();
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(file -> file.toFile().delete());
+        }
+    }
+
+    @Benchmark
+    public Map<Long, Order> loadSnapshot() throws IOException {
+        return OrderSnapshotFile.load(snapshot, Clock.systemDefaultZone());
+    }
+
+    @Benchmark
+    public Map<Long, Order> replayJournal() throws IOException {
+        return journal.replay(Clock.systemDefaultZone());
+    }
+
+    // also journals every item when journal isn't null
+    static Map<Long, Order> newOrders(int items, OrderJournal journal) throws IOException {
+        Map<Long, Order> orders = new LinkedHashMap<>();
+        long id = 0;
+        for (int start = 0; start < items; start += ITEMS_PER_ORDER, id++) {
+            Order order = OrderBookBenchmark.newOrder(Math.min(ITEMS_PER_ORDER, items - start));
+            if (journal != null) {
+                for (Item item : order.snapshot().getItems()) {
+                    journal.append(id, item);
+                }
+            }
+            orders.put(id, order);
+        }
+        return orders;
+    }
+
+    public static void main(String[] args) throws Exception {
+        System.out.printf("%10s %12s %12s %12s%n", "items", "file bytes", "load ms", "replay ms");
+        for (int items = 10_000; items <= 1_000_000; items *= 10) {
+            OrderSnapshotBenchmark benchmark = new OrderSnapshotBenchmark();
+            benchmark.items = items;
+            benchmark.setUp();
+            try {
+                long load = Long.MAX_VALUE;
+                long replay = Long.MAX_VALUE;
+                for (int run = 0; run < 5; run++) {
+                    long started = System.nanoTime();
+                    benchmark.loadSnapshot();
+                    load = Math.min(load, System.nanoTime() - started);
+                    started = System.nanoTime();
+                    benchmark.replayJournal();
+                    replay = Math.min(replay, System.nanoTime() - started);
+                }
+                System.out.printf("%10d %12d %12.1f %12.1f%n", items, Files.size(benchmark.snapshot),
+                        load / 1e6, replay / 1e6);
+            } finally {
+                benchmark.tearDown();
+            }
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link PartitionedOrderStore} throughput from 1 to 8 workers, with 8 threads adding
+ * items to random orders of 100,000. LOCAL workers are {@link LocalOrderWorker}s in this
+ * JVM; LOOPBACK ones are {@link OrderWorkerServer}s in this JVM reached over TCP, which
+ * adds the transport without the processes; PROCESS starts each worker as a JVM of its
+ * own, the deployment the store is for. Scaling past the core count only shows the cost
+ * of the extra hops.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PartitionedStoreBenchmark {
+
+    private static final int ORDERS = 100_000;
+
+    @Param({"1", "2", "4", "8"})
+    public int workers;
+
+    @Param({"LOCAL", "LOOPBACK", "PROCESS"})
+    public String transport;
+
+    private final Item item = new Purchase("Phone Case", new BigDecimal("7.88"));
+
+    private final List<OrderWorkerServer> servers = new ArrayList<>();
+    private final List<Process> processes = new ArrayList<>();
+    private PartitionedOrderStore store;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        store = new PartitionedOrderStore();
+        for (int w = 0; w < workers; w++) {
+            store.addWorker("worker-" + w, worker());
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException, InterruptedException {
+        store.close();
+        for (OrderWorkerServer server : servers) {
+            server.close();
+        }
+        for (Process process : processes) {
+            // the worker exits once its standard input closes
+            process.getOutputStream().close();
+            if (!process.waitFor(10, TimeUnit.SECONDS)) {
+                process.destroyForcibly();
+            }
+        }
+        servers.clear();
+        processes.clear();
+    }
+
+    @Benchmark
+    @Threads(8)
+    public void addItem() throws IOException {
+        store.addItem(ThreadLocalRandom.current().nextInt(ORDERS), item);
+    }
+
+    @Benchmark
+    @Threads(8)
+    public BigDecimal getTotal() throws IOException {
+        return store.getTotal(ThreadLocalRandom.current().nextInt(ORDERS));
+    }
+
+    @Benchmark
+    @Threads(1)
+    public PartitionedOrderStore.Summary summarize() throws IOException {
+        return store.summarize();
+    }
+
+    private OrderWorker worker() throws IOException {
+        switch (transport) {
+            case "LOCAL":
+                return new LocalOrderWorker();
+            case "LOOPBACK":
+                OrderWorkerServer server = new OrderWorkerServer(new LocalOrderWorker(), 0);
+                servers.add(server);
+                return new RemoteOrderWorker(loopback(server.port()), 8);
+            case "PROCESS":
+                String java = System.getProperty("java.home") + File.separator + "bin" + File.separator + "java";
+                Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                        OrderWorkerServer.class.getName(), "0")
+                        .redirectError(ProcessBuilder.Redirect.INHERIT)
+                        .start();
+                processes.add(process);
+                BufferedReader out = new BufferedReader(new InputStreamReader(process.getInputStream(), StandardCharsets.UTF_8));
+                String port = out.readLine();
+                if (port == null) {
+                    throw new IOException("Worker process exited before listening");
+                }
+                return new RemoteOrderWorker(loopback(Integer.parseInt(port.trim())), 8);
+            default:
+                throw new IllegalArgumentException("Unknown transport " + transport);
+        }
+    }
+
+    private static InetSocketAddress loopback(int port) {
+        return new InetSocketAddress(InetAddress.getLoopbackAddress(), port);
+    }
+}
@@ -0,0 +1,72 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Re-pricing one popular product held by every order: {@code setPrice} telling each order
+ * to adjust its total, against re-pricing every order in full, which is what keeping
+ * totals right took before items told their orders (and now comes on top of the former).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PriceChangeBenchmark {
+
+    private static final BigDecimal[] PRICES = {new BigDecimal("19.99"), new BigDecimal("24.99")};
+
+    @Param({"10", "100"})
+    public int linesPerOrder;
+
+    @Param({"100000"})
+    public int orders;
+
+    private Purchase popular;
+    private Order[] orderArray;
+    private int change;
+
+    @Setup
+    public void setUp() {
+        popular = new Purchase("Phone Case", PRICES[0]);
+        Item[] items = OrderBenchmark.newItems(orders * (linesPerOrder - 1), "MIXED");
+        orderArray = new Order[orders];
+        for (int i = 0, next = 0; i < orders; i++) {
+            Order order = new Order();
+            order.addItem(popular);
+            for (int line = 1; line < linesPerOrder; line++) {
+                order.addItem(items[next++]);
+            }
+            orderArray[i] = order;
+        }
+    }
+
+    @Benchmark
+    public BigDecimal setPrice() {
+        popular.setPrice(PRICES[change++ & 1]);
+        return orderArray[0].getTotal();
+    }
+
+    @Benchmark
+    public BigDecimal repriceEveryOrder() {
+        popular.setPrice(PRICES[change++ & 1]);
+        for (Order order : orderArray) {
+            order.reprice();
+        }
+        return orderArray[0].getTotal();
+    }
+}
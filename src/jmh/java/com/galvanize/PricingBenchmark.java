@@ -0,0 +1,158 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Pricing a shuffled mix of five item types: one virtual {@code totalPrice()} call per
+ * item, the per-item {@link Item#totalCents(Clock)} switch, and the batch pricer that
+ * groups by class and runs one {@link PricingKernel} per type. Setup checks that all
+ * three give the same total.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class PricingBenchmark {
+
+    static final class Subscription extends Item {
+        private final int periods;
+
+        Subscription(BigDecimal pricePerPeriod, int periods) {
+            setPrice(pricePerPeriod);
+            this.periods = periods;
+        }
+
+        @Override
+        BigDecimal totalPrice() {
+            return getPrice().multiply(BigDecimal.valueOf(periods));
+        }
+    }
+
+    static final class Deposit extends Item {
+        Deposit(BigDecimal amount) {
+            setPrice(amount);
+        }
+
+        @Override
+        BigDecimal totalPrice() {
+            return getPrice();
+        }
+    }
+
+    static {
+        PricingKernels.register(new PricingKernel<Subscription>() {
+            @Override
+            public Class<Subscription> itemType() {
+                return Subscription.class;
+            }
+
+            @Override
+            public void price(Item[] items, int from, int to, Clock clock, long[] cents) {
+                for (int i = from; i < to; i++) {
+                    Subscription subscription = (Subscription) items[i];
+                    cents[i] = Money.times(subscription.priceCents(), subscription.periods);
+                }
+            }
+        });
+        PricingKernels.register(new PricingKernel<Deposit>() {
+            @Override
+            public Class<Deposit> itemType() {
+                return Deposit.class;
+            }
+
+            @Override
+            public void price(Item[] items, int from, int to, Clock clock, long[] cents) {
+                for (int i = from; i < to; i++) {
+                    cents[i] = items[i].priceCents();
+                }
+            }
+        });
+    }
+
+    @Param({"100", "10000"})
+    public int items;
+
+    private Item[] mixed;
+    private long[] cents;
+    private BigDecimal[] inexactAmounts;
+    private Clock clock;
+
+    @Setup
+    public void setUp() {
+        Random random = new Random(42);
+        LocalDateTime endDate = LocalDateTime.now().plusDays(7);
+        mixed = new Item[items];
+        for (int i = 0; i < items; i++) {
+            BigDecimal price = BigDecimal.valueOf(100 + random.nextInt(5000), 2);
+            switch (random.nextInt(5)) {
+                case 0:
+                    mixed[i] = new Lease("PLT-" + random.nextInt(1000), price, 1 + random.nextInt(36));
+                    break;
+                case 1:
+                    mixed[i] = new Purchase("Phone Case", price);
+                    break;
+                case 2:
+                    mixed[i] = new Rental(price, endDate.plusDays(random.nextInt(30)));
+                    break;
+                case 3:
+                    mixed[i] = new Subscription(price, 1 + random.nextInt(12));
+                    break;
+                default:
+                    mixed[i] = new Deposit(price);
+            }
+        }
+        cents = new long[items];
+        inexactAmounts = new BigDecimal[items];
+        clock = Clock.systemDefaultZone();
+        long virtual = virtualDispatch();
+        if (virtual != kindSwitch() || virtual != batchKernels()) {
+            throw new AssertionError("pricing paths disagree");
+        }
+    }
+
+    @Benchmark
+    public long virtualDispatch() {
+        long total = 0;
+        for (Item item : mixed) {
+            total += Money.toCents(item.totalPrice());
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long kindSwitch() {
+        long total = 0;
+        for (Item item : mixed) {
+            total += item.totalCents(clock);
+        }
+        return total;
+    }
+
+    @Benchmark
+    public long batchKernels() {
+        PricingKernels.price(mixed, mixed.length, clock, cents, inexactAmounts);
+        long total = 0;
+        for (long amount : cents) {
+            total += amount;
+        }
+        return total;
+    }
+}
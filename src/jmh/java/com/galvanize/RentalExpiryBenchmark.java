@@ -0,0 +1,202 @@
+package com.galvanize;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Expiring rentals with {@link RentalExpiryIndex} against a {@link PriorityQueue} ordered
+ * by end date and a scan of every active rental. Rentals end uniformly over the next 30
+ * days; each expired one is replaced by one ending 30 days on, so the active count holds.
+ * {@code advanceOneMinute} moves the clock a minute and expires what's due;
+ * {@code cancelAndAdd} cancels an active rental and adds a new one.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgs = {"-Xms2g", "-Xmx2g"})
+public class RentalExpiryBenchmark {
+
+    private static final ZoneId ZONE = ZoneOffset.UTC;
+    private static final int WINDOW_SECONDS = 30 * 86_400;
+
+    @Param({"WHEEL", "PRIORITY_QUEUE", "SCAN"})
+    public String index;
+
+    @Param({"10000", "1000000"})
+    public int rentals;
+
+    private Expiry expiry;
+    private Object[] handles;
+    private Instant now;
+    private Random random;
+    private int cursor;
+    private final List<Rental> expired = new ArrayList<>();
+
+    @Setup
+    public void setUp() {
+        now = Instant.parse("2030-03-01T12:00:00Z");
+        random = new Random(42);
+        expiry = index.equals("WHEEL") ? new Wheel(Clock.fixed(now, ZONE))
+                : index.equals("PRIORITY_QUEUE") ? new Queue() : new Scan();
+        handles = new Object[rentals];
+        for (int i = 0; i < rentals; i++) {
+            handles[i] = expiry.add(newRental(random.nextInt(WINDOW_SECONDS)));
+        }
+    }
+
+    @Benchmark
+    public int advanceOneMinute() {
+        now = now.plusSeconds(60);
+        expired.clear();
+        expiry.advance(now, expired::add);
+        for (int i = 0; i < expired.size(); i++) {
+            expiry.add(newRental(WINDOW_SECONDS));
+        }
+        return expired.size();
+    }
+
+    @Benchmark
+    public Object cancelAndAdd() {
+        int at = cursor++ % rentals;
+        expiry.cancel(handles[at]);
+        return handles[at] = expiry.add(newRental(random.nextInt(WINDOW_SECONDS)));
+    }
+
+    private Rental newRental(int secondsFromNow) {
+        return new Rental(BigDecimal.TEN, LocalDateTime.ofInstant(now.plusSeconds(secondsFromNow), ZONE));
+    }
+
+    private static long deadline(Rental rental) {
+        return rental.getEndDate().toEpochSecond(ZoneOffset.UTC) + 1;
+    }
+
+    private interface Expiry {
+        Object add(Rental rental);
+
+        void cancel(Object handle);
+
+        void advance(Instant now, Consumer<Rental> expired);
+    }
+
+    private static final class Wheel implements Expiry {
+        private final RentalExpiryIndex index;
+
+        Wheel(Clock clock) {
+            index = new RentalExpiryIndex(clock, 1 << 20);
+        }
+
+        @Override
+        public Object add(Rental rental) {
+            return index.add(rental);
+        }
+
+        @Override
+        public void cancel(Object handle) {
+            index.cancel((Long) handle);
+        }
+
+        @Override
+        public void advance(Instant now, Consumer<Rental> expired) {
+            index.advance(now, expired);
+        }
+    }
+
+    private static final class Timed implements Comparable<Timed> {
+        final Rental rental;
+        final long deadline;
+
+        Timed(Rental rental) {
+            this.rental = rental;
+            this.deadline = deadline(rental);
+        }
+
+        @Override
+        public int compareTo(Timed other) {
+            return Long.compare(deadline, other.deadline);
+        }
+    }
+
+    private static final class Queue implements Expiry {
+        private final PriorityQueue<Timed> queue = new PriorityQueue<>();
+
+        @Override
+        public Object add(Rental rental) {
+            Timed timed = new Timed(rental);
+            queue.add(timed);
+            return timed;
+        }
+
+        // PriorityQueue can only find an element by searching for it
+        @Override
+        public void cancel(Object handle) {
+            queue.remove(handle);
+        }
+
+        @Override
+        public void advance(Instant now, Consumer<Rental> expired) {
+            long second = now.getEpochSecond();
+            while (!queue.isEmpty() && queue.peek().deadline <= second) {
+                expired.accept(queue.poll().rental);
+            }
+        }
+    }
+
+    // what we had: every advance looks at every active rental
+    private static final class Scan implements Expiry {
+        private final List<Timed> active = new ArrayList<>();
+
+        @Override
+        public Object add(Rental rental) {
+            Timed timed = new Timed(rental);
+            active.add(timed);
+            return timed;
+        }
+
+        @Override
+        public void cancel(Object handle) {
+            int at = active.indexOf(handle);
+            if (at >= 0) {
+                removeAt(at);
+            }
+        }
+
+        @Override
+        public void advance(Instant now, Consumer<Rental> expired) {
+            long second = now.getEpochSecond();
+            for (int i = active.size() - 1; i >= 0; i--) {
+                if (active.get(i).deadline <= second) {
+                    expired.accept(removeAt(i).rental);
+                }
+            }
+        }
+
+        private Timed removeAt(int at) {
+            Timed last = active.remove(active.size() - 1);
+            return at == active.size() ? last : active.set(at, last);
+        }
+    }
+}
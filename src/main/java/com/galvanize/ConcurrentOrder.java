@@ -0,0 +1,127 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@link Order} that many threads can add to at once. Items and totals are split
+ * across lock stripes; each thread sticks to a stripe and moves to another one when
+ * it finds its stripe contended, the way {@code LongAdder} spreads its cells.
+ * <p>
+ * {@link #getTotal()} holds every stripe lock while summing, so it is exact and
+ * linearizable: it reflects every {@code addItem} that returned before it was called
+ * and none that started after it returned. {@link #getItems()} lists the items stripe
+ * by stripe, so it has no defined order: not even one thread's items stay in the order it
+ * added them, since a thread that moves stripes leaves its earlier items behind.
+ */
+final class ConcurrentOrder {
+
+    // Each thread's stripe hash, shared by every instance like LongAdder's thread probe.
+    // Static, so that a pooled thread's entry doesn't keep an order reachable
+    private static final ThreadLocal<int[]> PROBE = ThreadLocal.withInitial(
+            () -> new int[]{(int) (Thread.currentThread().getId() * 0x9E3779B9L)});
+
+    private final Clock clock;
+    private final Stripe[] stripes;
+    private final int mask;
+
+    ConcurrentOrder() {
+        this(Item.SYSTEM_CLOCK, Runtime.getRuntime().availableProcessors());
+    }
+
+    ConcurrentOrder(Clock clock, int concurrency) {
+        int stripeCount = Integer.highestOneBit(Math.max(1, concurrency - 1)) << 1;
+        this.clock = clock;
+        this.stripes = new Stripe[stripeCount];
+        this.mask = stripeCount - 1;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    void addItem(Item item) {
+        // priced before taking a lock so the critical section is two field updates
+        long cents = item.totalCents(clock);
+        int[] threadProbe = PROBE.get();
+        Stripe stripe = stripes[threadProbe[0] & mask];
+        if (!stripe.lock.tryLock()) {
+            threadProbe[0] = rehash(threadProbe[0]);
+            stripe = stripes[threadProbe[0] & mask];
+            stripe.lock.lock();
+        }
+        try {
+            stripe.items.add(item);
+            stripe.total.add(cents, item, clock);
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    BigDecimal getTotal() {
+        lockAll();
+        try {
+            MoneyTotal total = new MoneyTotal();
+            for (Stripe stripe : stripes) {
+                total.add(stripe.total);
+            }
+            return total.get();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    List<Item> getItems() {
+        lockAll();
+        try {
+            List<Item> items = new ArrayList<>();
+            for (Stripe stripe : stripes) {
+                items.addAll(stripe.items);
+            }
+            return items;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    int size() {
+        lockAll();
+        try {
+            int size = 0;
+            for (Stripe stripe : stripes) {
+                size += stripe.items.size();
+            }
+            return size;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    private void lockAll() {
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            stripes[i].lock.unlock();
+        }
+    }
+
+    private static int rehash(int h) {
+        // xorshift, as in ThreadLocalRandom.advanceProbe
+        h ^= h << 13;
+        h ^= h >>> 17;
+        h ^= h << 5;
+        return h;
+    }
+
+    private static final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final List<Item> items = new ArrayList<>();
+        final MoneyTotal total = new MoneyTotal();
+    }
+}
@@ -0,0 +1,82 @@
+package com.galvanize;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Consistent hashing of long keys onto named nodes. Each node sits at several pseudo-random
+ * points of a 64-bit ring, its virtual nodes, and a key belongs to the first point at or
+ * after the key's hash. Adding a node only takes keys from the nodes whose points follow
+ * the new ones, and removing one only hands its keys to their next points; every other
+ * key stays where it was. More virtual nodes spread keys more evenly. Not thread-safe.
+ */
+final class ConsistentHashRing {
+
+    private final int virtualNodes;
+    private final TreeMap<Long, String> points = new TreeMap<>();
+    private final Set<String> nodes = new HashSet<>();
+
+    ConsistentHashRing(int virtualNodes) {
+        if (virtualNodes < 1) {
+            throw new IllegalArgumentException("virtualNodes must be positive: " + virtualNodes);
+        }
+        this.virtualNodes = virtualNodes;
+    }
+
+    // false if the node is already on the ring
+    boolean add(String node) {
+        if (!nodes.add(node)) {
+            return false;
+        }
+        for (int i = 0; i < virtualNodes; i++) {
+            // on the rare collision the point stays with the node that had it first
+            points.putIfAbsent(point(node, i), node);
+        }
+        return true;
+    }
+
+    boolean remove(String node) {
+        if (!nodes.remove(node)) {
+            return false;
+        }
+        for (int i = 0; i < virtualNodes; i++) {
+            points.remove(point(node, i), node);
+        }
+        return true;
+    }
+
+    int size() {
+        return nodes.size();
+    }
+
+    // null if the ring is empty
+    String nodeFor(long key) {
+        if (points.isEmpty()) {
+            return null;
+        }
+        Map.Entry<Long, String> owner = points.ceilingEntry(mix(key));
+        return (owner != null ? owner : points.firstEntry()).getValue();
+    }
+
+    private static long point(String node, int virtualNode) {
+        // FNV-1a over the name's bytes, then mixed with the virtual node number
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : node.getBytes(StandardCharsets.UTF_8)) {
+            hash = (hash ^ (b & 0xFF)) * 0x100000001b3L;
+        }
+        return mix(hash + virtualNode * 0x9E3779B97F4A7C15L);
+    }
+
+    // the 64-bit finalizer of MurmurHash3
+    static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb9fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
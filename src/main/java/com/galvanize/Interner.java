@@ -0,0 +1,99 @@
+package com.galvanize;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A bounded intern table: equal strings map to one canonical instance, so memory for
+ * labels grows with the number of distinct values rather than the number of items.
+ * Entries are split across lock stripes by hash, each an access-ordered LRU map that
+ * drops its least recently used entry once full. An evicted value is simply interned
+ * afresh the next time it shows up.
+ */
+final class Interner {
+
+    // product names and license plates, shared by every item
+    static final Interner LABELS = new Interner(1 << 16, 16);
+
+    private final Stripe[] stripes;
+    private final int mask;
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    Interner(int capacity, int concurrency) {
+        int stripeCount = concurrency <= 1 ? 1 : Integer.highestOneBit(concurrency - 1) << 1;
+        int perStripe = Math.max(1, capacity / stripeCount);
+        this.stripes = new Stripe[stripeCount];
+        this.mask = stripeCount - 1;
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new Stripe(perStripe);
+        }
+    }
+
+    String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        int hash = value.hashCode();
+        Stripe stripe = stripes[(hash ^ (hash >>> 16)) & mask];
+        stripe.lock.lock();
+        try {
+            String canonical = stripe.values.get(value);
+            if (canonical != null) {
+                hits.increment();
+                return canonical;
+            }
+            misses.increment();
+            stripe.values.put(value, value);
+            return value;
+        } finally {
+            stripe.lock.unlock();
+        }
+    }
+
+    long hits() {
+        return hits.sum();
+    }
+
+    long misses() {
+        return misses.sum();
+    }
+
+    long evictions() {
+        return evictions.sum();
+    }
+
+    int size() {
+        int size = 0;
+        for (Stripe stripe : stripes) {
+            stripe.lock.lock();
+            try {
+                size += stripe.values.size();
+            } finally {
+                stripe.lock.unlock();
+            }
+        }
+        return size;
+    }
+
+    private final class Stripe {
+        final ReentrantLock lock = new ReentrantLock();
+        final LinkedHashMap<String, String> values;
+
+        Stripe(int capacity) {
+            values = new LinkedHashMap<String, String>(Math.min(capacity, 1024), 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                    if (size() > capacity) {
+                        evictions.increment();
+                        return true;
+                    }
+                    return false;
+                }
+            };
+        }
+    }
+}
@@ -1,17 +1,157 @@
 package com.galvanize;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
 
 abstract class Item {
 
-	private BigDecimal price;
+	static final byte OTHER = 0;
+	static final byte LEASE = 1;
+	static final byte PURCHASE = 2;
+	static final byte RENTAL = 3;
+
+	// for pricing without a clock, so that it isn't made per call; the zone is the default
+	// when the class was loaded
+	static final Clock SYSTEM_CLOCK = Clock.systemDefaultZone();
+
+	private static final AtomicReferenceFieldUpdater<Item, Object> PRICE_WATCHERS =
+			AtomicReferenceFieldUpdater.newUpdater(Item.class, Object.class, "priceWatchers");
+
+	// Only exact Lease/Purchase/Rental instances get a kind; subclasses may override
+	// totalPrice(), so they are priced through it like any other Item.
+	private final byte kind;
+	// volatile, like priceWatchers: setPrice writes the price and then reads the watchers,
+	// an order registers and then reads the price, so one of the two always sees the other
+	private volatile BigDecimal price;
+	private volatile long priceCents = Money.INEXACT;
+	// the orders holding this item: null, one PriceWatcher or a PriceWatcher.Group. Only
+	// ever set from null without the lock; every other change holds it
+	private volatile Object priceWatchers;
+
+	Item() {
+		this(null, OTHER);
+	}
+
+	Item(Class<? extends Item> exactType, byte kind) {
+		this.kind = getClass() == exactType ? kind : OTHER;
+	}
 
 	public BigDecimal getPrice() {
 		return price;
 	}
+	// Changing the price re-prices this item in every Order holding it, each under the
+	// order's writer lock, so this may be called from any thread. The amounts that
+	// ConcurrentOrder, OrderBook and OffHeapOrder copy when an item is added don't follow it
 	public void setPrice(BigDecimal price) {
 		this.price = price;
+		this.priceCents = Money.toCents(price);
+		if (priceWatchers != null) {
+			priceChanged();
+		}
+	}
+
+	final byte kind() {
+		return kind;
+	}
+
+	final long priceCents() {
+		return priceCents;
+	}
+
+	// the price as last set, which getPrice() overrides may not return
+	final BigDecimal currentPrice() {
+		return price;
+	}
+
+	// Registers an order to be told of price changes; one volatile read when it already is
+	final void watchPrice(PriceWatcher watcher) {
+		Object watchers = priceWatchers;
+		if (watchers == watcher || watchers == null && PRICE_WATCHERS.compareAndSet(this, null, watcher)) {
+			return;
+		}
+		synchronized (this) {
+			watchers = priceWatchers;
+			if (watchers instanceof PriceWatcher.Group) {
+				((PriceWatcher.Group) watchers).add(watcher);
+			} else if (watchers != watcher) {
+				priceWatchers = new PriceWatcher.Group((PriceWatcher) watchers, watcher);
+			}
+		}
 	}
 
 	abstract BigDecimal totalPrice();
+
+	final BigDecimal totalPrice(Clock clock) {
+		return kind == RENTAL ? ((Rental) this).rentalPrice(clock) : totalPrice();
+	}
+
+	final long totalCents() {
+		return totalCents(SYSTEM_CLOCK);
+	}
+
+	// Writes toString() to out. The three item types write it piece by piece without making
+	// the String; any other subclass appends its own toString()
+	final void appendTo(Appendable out) throws IOException {
+		switch (kind) {
+			case LEASE:
+				((Lease) this).appendLease(out);
+				return;
+			case PURCHASE:
+				((Purchase) this).appendPurchase(out);
+				return;
+			case RENTAL:
+				((Rental) this).appendRental(out);
+				return;
+			default:
+				out.append(toString());
+		}
+	}
+
+	// final so that it can't be intercepted; dispatches on kind instead of a virtual call
+	final long totalCents(Clock clock) {
+		switch (kind) {
+			case LEASE:
+				return ((Lease) this).leaseCents();
+			case PURCHASE:
+				return priceCents;
+			case RENTAL:
+				return ((Rental) this).rentalCents(clock);
+			default:
+				return Money.toCents(totalPrice());
+		}
+	}
+
+	// Orders are told outside the lock, and the ones no longer holding this item unregistered
+	private void priceChanged() {
+		PriceWatcher[] watchers;
+		synchronized (this) {
+			Object current = priceWatchers;
+			if (current == null) {
+				return;
+			}
+			watchers = current instanceof PriceWatcher.Group
+					? ((PriceWatcher.Group) current).toArray()
+					: new PriceWatcher[]{(PriceWatcher) current};
+		}
+		for (PriceWatcher watcher : watchers) {
+			if (!watcher.priceChanged(this)) {
+				unwatchPrice(watcher);
+			}
+		}
+	}
+
+	private synchronized void unwatchPrice(PriceWatcher watcher) {
+		Object watchers = priceWatchers;
+		if (watchers == watcher) {
+			priceWatchers = null;
+		} else if (watchers instanceof PriceWatcher.Group) {
+			PriceWatcher.Group group = (PriceWatcher.Group) watchers;
+			group.remove(watcher);
+			if (group.isEmpty()) {
+				priceWatchers = null;
+			}
+		}
+	}
 }
@@ -0,0 +1,282 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * The writer's side of an {@link Order}'s items: the items themselves, in insertion order,
+ * live in a persistent {@link ItemVector} that snapshots share, and this class keeps the
+ * amount each one added to the order's total. Removing an item leaves a tombstone instead
+ * of shifting the items after it; the slots are compacted once more than half of them
+ * are tombstones.
+ * <p>
+ * While there are tombstones a persistent {@link LiveSlots} maps a list index to its slot
+ * in O(log n), and snapshots share it. Lookups by identity go through an index of every
+ * item built on first use; until then, the slots of an item whose price changed are found
+ * by one scan and kept up to date from there, so price changes don't index the whole order.
+ */
+final class ItemSlots {
+
+    private static final int MIN_COMPACT_SLOTS = 64;
+
+    private ItemVector items = ItemVector.empty();
+    private long[] cents;
+    // only allocated once an amount that isn't whole cents is stored
+    private BigDecimal[] inexactAmounts;
+    private int live;
+    // only kept while there are tombstones
+    private LiveSlots liveSlots;
+    private IdentityHashMap<Item, SlotList> slotsByItem;
+    // only the items re-priced since the last compaction, while slotsByItem isn't built
+    private IdentityHashMap<Item, SlotList> repricedSlots;
+
+    ItemSlots() {
+        this(16);
+    }
+
+    // room for capacity items before the amounts need to grow
+    ItemSlots(int capacity) {
+        cents = new long[Math.max(capacity, 16)];
+    }
+
+    ItemVector vector() {
+        return items;
+    }
+
+    // null while there are no tombstones
+    LiveSlots liveSlots() {
+        return liveSlots;
+    }
+
+    int size() {
+        return live;
+    }
+
+    int usedSlots() {
+        return items.size();
+    }
+
+    int slotOf(int index) {
+        if (index < 0 || index >= live) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + live);
+        }
+        return liveSlots == null ? index : liveSlots.select(index);
+    }
+
+    // first live slot holding this exact instance, or -1
+    int slotOf(Item item) {
+        SlotList slots = indexed().get(item);
+        return slots == null ? -1 : slots.first();
+    }
+
+    // every live slot holding this exact instance, in ascending order
+    int[] slotsOf(Item item) {
+        SlotList slots;
+        if (slotsByItem != null) {
+            slots = slotsByItem.get(item);
+        } else {
+            if (repricedSlots == null) {
+                repricedSlots = new IdentityHashMap<>();
+            }
+            slots = repricedSlots.get(item);
+            if (slots == null) {
+                slots = scan(item);
+                if (slots != null) {
+                    repricedSlots.put(item, slots);
+                }
+            }
+        }
+        return slots == null ? new int[0] : slots.toArray();
+    }
+
+    // null for a removed slot
+    Item itemAt(int slot) {
+        return items.get(slot);
+    }
+
+    long centsAt(int slot) {
+        return cents[slot];
+    }
+
+    BigDecimal inexactAmountAt(int slot) {
+        return inexactAmounts == null ? null : inexactAmounts[slot];
+    }
+
+    int append(Item item, long itemCents, BigDecimal inexactAmount) {
+        int slot = items.size();
+        if (slot == cents.length) {
+            grow();
+        }
+        items = items.append(item);
+        record(slot, itemCents, inexactAmount);
+        live++;
+        if (liveSlots != null) {
+            liveSlots = liveSlots.set(slot, true);
+        }
+        track(item, slot);
+        return slot;
+    }
+
+    void removeSlot(int slot) {
+        untrack(items.get(slot), slot);
+        items = items.set(slot, null);
+        record(slot, 0, null);
+        live--;
+        liveSlots = liveSlots == null ? LiveSlots.of(items) : liveSlots.set(slot, false);
+        if (items.size() >= MIN_COMPACT_SLOTS && live < items.size() / 2) {
+            compact();
+        }
+    }
+
+    void replaceSlot(int slot, Item item, long itemCents, BigDecimal inexactAmount) {
+        untrack(items.get(slot), slot);
+        track(item, slot);
+        items = items.set(slot, item);
+        record(slot, itemCents, inexactAmount);
+    }
+
+    // re-records the amount of a live slot without touching the item
+    void reprice(int slot, long itemCents, BigDecimal inexactAmount) {
+        record(slot, itemCents, inexactAmount);
+    }
+
+    private void record(int slot, long itemCents, BigDecimal inexactAmount) {
+        cents[slot] = itemCents;
+        if (inexactAmount != null && inexactAmounts == null) {
+            inexactAmounts = new BigDecimal[cents.length];
+        }
+        if (inexactAmounts != null) {
+            inexactAmounts[slot] = inexactAmount;
+        }
+    }
+
+    private void grow() {
+        int capacity = cents.length + (cents.length >> 1);
+        cents = Arrays.copyOf(cents, capacity);
+        if (inexactAmounts != null) {
+            inexactAmounts = Arrays.copyOf(inexactAmounts, capacity);
+        }
+    }
+
+    // Builds a new vector rather than editing the old one, which snapshots may still hold
+    private void compact() {
+        ItemVector compacted = ItemVector.empty();
+        int to = 0;
+        for (int from = 0, used = items.size(); from < used; from++) {
+            Item item = items.get(from);
+            if (item != null) {
+                compacted = compacted.append(item);
+                cents[to] = cents[from];
+                if (inexactAmounts != null) {
+                    inexactAmounts[to] = inexactAmounts[from];
+                }
+                to++;
+            }
+        }
+        if (inexactAmounts != null) {
+            Arrays.fill(inexactAmounts, to, inexactAmounts.length, null);
+        }
+        items = compacted;
+        liveSlots = null;
+        slotsByItem = null;
+        repricedSlots = null;
+    }
+
+    private IdentityHashMap<Item, SlotList> indexed() {
+        if (slotsByItem == null) {
+            repricedSlots = null;
+            slotsByItem = new IdentityHashMap<>();
+            for (int slot = 0, used = items.size(); slot < used; slot++) {
+                Item live = items.get(slot);
+                if (live != null) {
+                    index(live, slot);
+                }
+            }
+        }
+        return slotsByItem;
+    }
+
+    // the live slots holding item, or null if there are none
+    private SlotList scan(Item item) {
+        SlotList slots = null;
+        for (int slot = 0, used = items.size(); slot < used; slot++) {
+            if (items.get(slot) == item) {
+                if (slots == null) {
+                    slots = new SlotList();
+                }
+                slots.add(slot);
+            }
+        }
+        return slots;
+    }
+
+    private void track(Item item, int slot) {
+        if (slotsByItem != null) {
+            index(item, slot);
+        } else if (repricedSlots != null) {
+            SlotList slots = repricedSlots.get(item);
+            if (slots != null) {
+                slots.add(slot);
+            }
+        }
+    }
+
+    // an item's entry goes once it has no slots left, so neither index keeps removed items
+    private void untrack(Item item, int slot) {
+        IdentityHashMap<Item, SlotList> index = slotsByItem != null ? slotsByItem : repricedSlots;
+        SlotList slots = index == null ? null : index.get(item);
+        if (slots != null) {
+            slots.remove(slot);
+            if (slots.first() < 0) {
+                index.remove(item);
+            }
+        }
+    }
+
+    private void index(Item item, int slot) {
+        SlotList slots = slotsByItem.get(item);
+        if (slots == null) {
+            slots = new SlotList();
+            slotsByItem.put(item, slots);
+        }
+        slots.add(slot);
+    }
+
+    // the slots of one item, in ascending order; nearly always a single slot
+    private static final class SlotList {
+        private int[] slots = new int[1];
+        private int size;
+
+        int first() {
+            return size == 0 ? -1 : slots[0];
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(slots, size);
+        }
+
+        void add(int slot) {
+            if (size == slots.length) {
+                slots = Arrays.copyOf(slots, size * 2);
+            }
+            int at = size;
+            while (at > 0 && slots[at - 1] > slot) {
+                slots[at] = slots[at - 1];
+                at--;
+            }
+            slots[at] = slot;
+            size++;
+        }
+
+        void remove(int slot) {
+            for (int i = 0; i < size; i++) {
+                if (slots[i] == slot) {
+                    System.arraycopy(slots, i + 1, slots, i, size - i - 1);
+                    size--;
+                    return;
+                }
+            }
+        }
+    }
+}
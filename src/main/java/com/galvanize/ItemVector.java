@@ -0,0 +1,123 @@
+package com.galvanize;
+
+import java.util.Arrays;
+
+/**
+ * Persistent vector of items: a 32-way trie plus a tail, as in Clojure's
+ * {@code PersistentVector}. {@link #set} copies only the path to the changed slot, so
+ * every version stays valid and shares almost all of its structure with the others.
+ * <p>
+ * {@link #append} writes into the tail array in place. That is safe because older
+ * versions never read past their own size, but it means append must only ever be called
+ * on the newest version of a vector, i.e. by the single writer that produced it.
+ */
+final class ItemVector {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+
+    private final Object[] root;
+    private final Object[] tail;
+    private final int shift;
+    private final int size;
+
+    private ItemVector(Object[] root, Object[] tail, int shift, int size) {
+        this.root = root;
+        this.tail = tail;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    // a new vector each time: the tail is written in place, so it can't be shared
+    static ItemVector empty() {
+        return new ItemVector(new Object[WIDTH], new Object[WIDTH], BITS, 0);
+    }
+
+    int size() {
+        return size;
+    }
+
+    Item get(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index >= tailOffset()) {
+            return (Item) tail[index & MASK];
+        }
+        Object[] node = root;
+        for (int level = shift; level > 0; level -= BITS) {
+            node = (Object[]) node[(index >>> level) & MASK];
+        }
+        return (Item) node[index & MASK];
+    }
+
+    ItemVector append(Item item) {
+        int tailSize = size - tailOffset();
+        if (tailSize < WIDTH) {
+            tail[tailSize] = item;
+            return new ItemVector(root, tail, shift, size + 1);
+        }
+        Object[] newRoot;
+        int newShift = shift;
+        if ((size >>> BITS) > (1 << shift)) {
+            newRoot = new Object[WIDTH];
+            newRoot[0] = root;
+            newRoot[1] = newPath(shift, tail);
+            newShift += BITS;
+        } else {
+            newRoot = pushTail(shift, root, tail);
+        }
+        Object[] newTail = new Object[WIDTH];
+        newTail[0] = item;
+        return new ItemVector(newRoot, newTail, newShift, size + 1);
+    }
+
+    ItemVector set(int index, Item item) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        if (index >= tailOffset()) {
+            Object[] newTail = Arrays.copyOf(tail, WIDTH);
+            newTail[index & MASK] = item;
+            return new ItemVector(root, newTail, shift, size);
+        }
+        return new ItemVector(set(shift, root, index, item), tail, shift, size);
+    }
+
+    private int tailOffset() {
+        return size < WIDTH ? 0 : ((size - 1) >>> BITS) << BITS;
+    }
+
+    private Object[] pushTail(int level, Object[] parent, Object[] tailNode) {
+        int child = ((size - 1) >>> level) & MASK;
+        Object[] copy = parent.clone();
+        if (level == BITS) {
+            copy[child] = tailNode;
+        } else {
+            Object[] next = (Object[]) parent[child];
+            copy[child] = next != null ? pushTail(level - BITS, next, tailNode) : newPath(level - BITS, tailNode);
+        }
+        return copy;
+    }
+
+    private static Object[] newPath(int level, Object[] node) {
+        if (level == 0) {
+            return node;
+        }
+        Object[] path = new Object[WIDTH];
+        path[0] = newPath(level - BITS, node);
+        return path;
+    }
+
+    private static Object[] set(int level, Object[] node, int index, Item item) {
+        Object[] copy = node.clone();
+        if (level == 0) {
+            copy[index & MASK] = item;
+        } else {
+            int child = (index >>> level) & MASK;
+            copy[child] = set(level - BITS, (Object[]) node[child], index, item);
+        }
+        return copy;
+    }
+}
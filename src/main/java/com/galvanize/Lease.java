@@ -1,5 +1,6 @@
 package com.galvanize;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 class Lease extends Item {
 
@@ -10,23 +11,45 @@ class Lease extends Item {
         return super.getPrice();
     }
 
+    public int getNumberOfMonths() {
+        return numberOfMonths;
+    }
+
+    public String getLicensePlate() {
+        return licensePlate;
+    }
+
     public Lease(String licensePlate, BigDecimal pricePerMonth, int numberOfMonths) {
-        this.licensePlate = licensePlate;
+        this(licensePlate, pricePerMonth, numberOfMonths, false);
+    }
+
+    // interned: licensePlate is already the instance Interner.LABELS returned for it
+    Lease(String licensePlate, BigDecimal pricePerMonth, int numberOfMonths, boolean interned) {
+        super(Lease.class, LEASE);
+        this.licensePlate = interned ? licensePlate : Interner.LABELS.intern(licensePlate);
         super.setPrice(pricePerMonth);
         this.numberOfMonths = numberOfMonths;
     }
 
     @Override
     public String toString() {
-        return "Lease{" +
-                "pricePerMonth=" + super.getPrice() +
-                ", numberOfMonths=" + numberOfMonths +
-                ", licensePlate='" + licensePlate + '\'' +
-                '}';
+        return TextAppender.toString(this::appendLease);
+    }
+
+    final void appendLease(Appendable out) throws IOException {
+        out.append("Lease{pricePerMonth=");
+        TextAppender.appendDecimal(out, super.getPrice(), priceCents());
+        out.append(", numberOfMonths=");
+        TextAppender.appendLong(out, numberOfMonths);
+        out.append(", licensePlate='").append(licensePlate).append("'}");
     }
 
     @Override
     BigDecimal totalPrice() {
         return getPricePerMonth().multiply(BigDecimal.valueOf(numberOfMonths));
     }
+
+    final long leaseCents() {
+        return Money.times(priceCents(), numberOfMonths);
+    }
 }
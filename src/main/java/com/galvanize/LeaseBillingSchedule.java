@@ -0,0 +1,392 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.chrono.IsoChronology;
+import java.util.List;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * The monthly charges of a {@link Lease}: one charge of the monthly price per month, the
+ * first due on the date given and each after it on the same day of later months, or the
+ * last day of a shorter month. Nothing is materialized. Any month's due date and charge
+ * are computed directly, a {@link Cursor} walks them without allocating, and
+ * {@link #merge} walks the charges of many leases in due date order, one heap entry per
+ * lease.
+ */
+final class LeaseBillingSchedule {
+
+    private static final long DAYS_0000_TO_1970 = 719_528;
+
+    private final Lease lease;
+    private final int months;
+    private final long firstMonthIndex;
+    private final int dayOfMonth;
+
+    LeaseBillingSchedule(Lease lease, LocalDate firstDue) {
+        this.lease = lease;
+        this.months = Math.max(0, lease.getNumberOfMonths());
+        this.firstMonthIndex = firstDue.getYear() * 12L + firstDue.getMonthValue() - 1;
+        this.dayOfMonth = firstDue.getDayOfMonth();
+    }
+
+    Lease lease() {
+        return lease;
+    }
+
+    int months() {
+        return months;
+    }
+
+    // month is 0-based, as are all months here
+    LocalDate dueDate(int month) {
+        return LocalDate.ofEpochDay(dueEpochDay(month));
+    }
+
+    long dueEpochDay(int month) {
+        checkMonth(month);
+        long monthIndex = firstMonthIndex + month;
+        int year = (int) Math.floorDiv(monthIndex, 12);
+        int monthOfYear = (int) Math.floorMod(monthIndex, 12) + 1;
+        return epochDay(year, monthOfYear, Math.min(dayOfMonth, lengthOfMonth(year, monthOfYear)));
+    }
+
+    BigDecimal chargeForMonth(int month) {
+        checkMonth(month);
+        return lease.getPricePerMonth();
+    }
+
+    // Money.INEXACT when the monthly price isn't whole cents
+    long chargeCentsForMonth(int month) {
+        checkMonth(month);
+        return lease.priceCents();
+    }
+
+    // the first month due on or after date; months() if there is none
+    int monthOnOrAfter(LocalDate date) {
+        long day = date.toEpochDay();
+        long estimate = date.getYear() * 12L + date.getMonthValue() - 1 - firstMonthIndex;
+        int month = (int) Math.max(0, Math.min(months, estimate));
+        while (month > 0 && dueEpochDay(month - 1) >= day) {
+            month--;
+        }
+        while (month < months && dueEpochDay(month) < day) {
+            month++;
+        }
+        return month;
+    }
+
+    Cursor cursor() {
+        return new Cursor(this, 0, months);
+    }
+
+    // the months due from from, inclusive, until until, exclusive
+    Cursor cursor(LocalDate from, LocalDate until) {
+        return new Cursor(this, monthOnOrAfter(from), monthOnOrAfter(until));
+    }
+
+    Stream<BillingPeriod> periods() {
+        return StreamSupport.stream(new Periods(this, 0, months), false);
+    }
+
+    /**
+     * The charges of all schedules due from from, inclusive, until until, exclusive, in due
+     * date order; charges due the same day come in the order of the list.
+     */
+    static MergedCursor merge(List<LeaseBillingSchedule> schedules, LocalDate from, LocalDate until) {
+        return new MergedCursor(schedules, from, until);
+    }
+
+    static Stream<BillingPeriod> mergedPeriods(List<LeaseBillingSchedule> schedules, LocalDate from, LocalDate until) {
+        MergedCursor cursor = merge(schedules, from, until);
+        return StreamSupport.stream(new Spliterators.AbstractSpliterator<BillingPeriod>(Long.MAX_VALUE,
+                Spliterator.ORDERED | Spliterator.NONNULL | Spliterator.IMMUTABLE) {
+            @Override
+            public boolean tryAdvance(Consumer<? super BillingPeriod> action) {
+                if (!cursor.next()) {
+                    return false;
+                }
+                action.accept(cursor.period());
+                return true;
+            }
+        }, false);
+    }
+
+    private void checkMonth(int month) {
+        if (month < 0 || month >= months) {
+            throw new IndexOutOfBoundsException("Month: " + month + ", Months: " + months);
+        }
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return IsoChronology.INSTANCE.isLeapYear(year) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    // LocalDate.of(year, month, day).toEpochDay() without the LocalDate
+    private static long epochDay(int year, int month, int day) {
+        long y = year;
+        long total = 365 * y;
+        if (y >= 0) {
+            total += (y + 3) / 4 - (y + 99) / 100 + (y + 399) / 400;
+        } else {
+            total -= y / -4 - y / -100 + y / -400;
+        }
+        total += (367 * month - 362) / 12;
+        total += day - 1;
+        if (month > 2) {
+            total--;
+            if (!IsoChronology.INSTANCE.isLeapYear(year)) {
+                total--;
+            }
+        }
+        return total - DAYS_0000_TO_1970;
+    }
+
+    /**
+     * One charge as a value, for streams. Cursors hand out the same fields without
+     * allocating.
+     */
+    static final class BillingPeriod {
+
+        private final LeaseBillingSchedule schedule;
+        private final int month;
+        private final long dueEpochDay;
+
+        private BillingPeriod(LeaseBillingSchedule schedule, int month, long dueEpochDay) {
+            this.schedule = schedule;
+            this.month = month;
+            this.dueEpochDay = dueEpochDay;
+        }
+
+        Lease getLease() {
+            return schedule.lease;
+        }
+
+        int getMonth() {
+            return month;
+        }
+
+        LocalDate getDueDate() {
+            return LocalDate.ofEpochDay(dueEpochDay);
+        }
+
+        BigDecimal getCharge() {
+            return schedule.lease.getPricePerMonth();
+        }
+
+        long getChargeCents() {
+            return schedule.lease.priceCents();
+        }
+
+        @Override
+        public String toString() {
+            return "BillingPeriod{" +
+                    "licensePlate='" + schedule.lease.getLicensePlate() + '\'' +
+                    ", month=" + month +
+                    ", dueDate=" + getDueDate() +
+                    ", charge=" + getCharge() +
+                    '}';
+        }
+    }
+
+    // reusable: next() moves it to the following month
+    static final class Cursor {
+
+        private final LeaseBillingSchedule schedule;
+        private final int end;
+        private int month;
+        private long dueEpochDay;
+
+        private Cursor(LeaseBillingSchedule schedule, int from, int end) {
+            this.schedule = schedule;
+            this.month = from - 1;
+            this.end = end;
+        }
+
+        boolean next() {
+            if (month + 1 >= end) {
+                month = end;
+                return false;
+            }
+            dueEpochDay = schedule.dueEpochDay(++month);
+            return true;
+        }
+
+        LeaseBillingSchedule schedule() {
+            return schedule;
+        }
+
+        int month() {
+            return month;
+        }
+
+        long dueEpochDay() {
+            return dueEpochDay;
+        }
+
+        LocalDate dueDate() {
+            return LocalDate.ofEpochDay(dueEpochDay);
+        }
+
+        BigDecimal charge() {
+            return schedule.lease.getPricePerMonth();
+        }
+
+        long chargeCents() {
+            return schedule.lease.priceCents();
+        }
+
+        BillingPeriod period() {
+            return new BillingPeriod(schedule, month, dueEpochDay);
+        }
+    }
+
+    // k-way merge of the schedules' cursors on a binary heap of (due day, list position)
+    static final class MergedCursor {
+
+        private final Cursor[] cursors;
+        private final int[] heap;
+        private int heapSize;
+        private Cursor current;
+
+        private MergedCursor(List<LeaseBillingSchedule> schedules, LocalDate from, LocalDate until) {
+            cursors = new Cursor[schedules.size()];
+            heap = new int[schedules.size()];
+            for (int i = 0; i < cursors.length; i++) {
+                cursors[i] = schedules.get(i).cursor(from, until);
+                if (cursors[i].next()) {
+                    heap[heapSize++] = i;
+                }
+            }
+            for (int at = heapSize / 2 - 1; at >= 0; at--) {
+                siftDown(at);
+            }
+        }
+
+        boolean next() {
+            if (current != null) {
+                // advance the cursor handed out last; it is still at the top of the heap
+                if (current.next()) {
+                    siftDown(0);
+                } else {
+                    heap[0] = heap[--heapSize];
+                    siftDown(0);
+                }
+            }
+            current = heapSize == 0 ? null : cursors[heap[0]];
+            return current != null;
+        }
+
+        LeaseBillingSchedule schedule() {
+            return current.schedule;
+        }
+
+        int month() {
+            return current.month;
+        }
+
+        long dueEpochDay() {
+            return current.dueEpochDay;
+        }
+
+        LocalDate dueDate() {
+            return current.dueDate();
+        }
+
+        BigDecimal charge() {
+            return current.charge();
+        }
+
+        long chargeCents() {
+            return current.chargeCents();
+        }
+
+        BillingPeriod period() {
+            return current.period();
+        }
+
+        private void siftDown(int at) {
+            int entry = heap[at];
+            while (true) {
+                int child = 2 * at + 1;
+                if (child >= heapSize) {
+                    break;
+                }
+                if (child + 1 < heapSize && before(heap[child + 1], heap[child])) {
+                    child++;
+                }
+                if (!before(heap[child], entry)) {
+                    break;
+                }
+                heap[at] = heap[child];
+                at = child;
+            }
+            heap[at] = entry;
+        }
+
+        private boolean before(int a, int b) {
+            long dayA = cursors[a].dueEpochDay;
+            long dayB = cursors[b].dueEpochDay;
+            return dayA < dayB || dayA == dayB && a < b;
+        }
+    }
+
+    // splits by month range, since any month can be computed on its own
+    private static final class Periods implements Spliterator<BillingPeriod> {
+
+        private final LeaseBillingSchedule schedule;
+        private int month;
+        private final int end;
+
+        Periods(LeaseBillingSchedule schedule, int month, int end) {
+            this.schedule = schedule;
+            this.month = month;
+            this.end = end;
+        }
+
+        @Override
+        public boolean tryAdvance(Consumer<? super BillingPeriod> action) {
+            if (month >= end) {
+                return false;
+            }
+            action.accept(new BillingPeriod(schedule, month, schedule.dueEpochDay(month)));
+            month++;
+            return true;
+        }
+
+        @Override
+        public Spliterator<BillingPeriod> trySplit() {
+            int middle = (month + end) >>> 1;
+            if (middle <= month) {
+                return null;
+            }
+            Periods prefix = new Periods(schedule, month, middle);
+            month = middle;
+            return prefix;
+        }
+
+        @Override
+        public long estimateSize() {
+            return end - month;
+        }
+
+        @Override
+        public int characteristics() {
+            return ORDERED | SIZED | SUBSIZED | NONNULL | IMMUTABLE | DISTINCT;
+        }
+    }
+}
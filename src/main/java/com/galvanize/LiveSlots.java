@@ -0,0 +1,173 @@
+package com.galvanize;
+
+/**
+ * Persistent rank index over the live slots of an {@link ItemSlots}: finds the slot of the
+ * index-th live item in O(log n). It is a 32-way trie whose branches count the live slots
+ * under each child, over leaves that keep 2048 slots as a bitmap. Like {@link ItemVector},
+ * {@link #set} copies only the path to the changed slot, so a snapshot holds on to the
+ * version it was taken with and maps indexes without rebuilding anything.
+ */
+final class LiveSlots {
+
+    private static final int BITS = 5;
+    private static final int WIDTH = 1 << BITS;
+    private static final int MASK = WIDTH - 1;
+    // slot bits under one leaf: WIDTH words of 64
+    private static final int LEAF_BITS = BITS + 6;
+
+    private final Branch root;
+    // slot bits under each child of the root
+    private final int shift;
+    private final int size;
+
+    private LiveSlots(Branch root, int shift, int size) {
+        this.root = root;
+        this.shift = shift;
+        this.size = size;
+    }
+
+    // the non-null slots of items
+    static LiveSlots of(ItemVector items) {
+        int used = items.size();
+        Object[] nodes = new Object[Math.max(1, (used + (1 << LEAF_BITS) - 1) >>> LEAF_BITS)];
+        int[] counts = new int[nodes.length];
+        int size = 0;
+        for (int slot = 0; slot < used; slot++) {
+            if (items.get(slot) != null) {
+                int leaf = slot >>> LEAF_BITS;
+                if (nodes[leaf] == null) {
+                    nodes[leaf] = new long[WIDTH];
+                }
+                ((long[]) nodes[leaf])[(slot >>> 6) & MASK] |= 1L << slot;
+                counts[leaf]++;
+                size++;
+            }
+        }
+        int covered = LEAF_BITS;
+        int shift;
+        do {
+            Object[] parents = new Object[(nodes.length + MASK) >>> BITS];
+            int[] parentCounts = new int[parents.length];
+            for (int i = 0; i < nodes.length; i++) {
+                Branch parent = (Branch) parents[i >>> BITS];
+                if (parent == null) {
+                    parent = new Branch();
+                    parents[i >>> BITS] = parent;
+                }
+                parent.children[i & MASK] = nodes[i];
+                parent.counts[i & MASK] = counts[i];
+                parentCounts[i >>> BITS] += counts[i];
+            }
+            nodes = parents;
+            counts = parentCounts;
+            shift = covered;
+            covered += BITS;
+        } while (nodes.length > 1);
+        return new LiveSlots((Branch) nodes[0], shift, size);
+    }
+
+    // the number of live slots
+    int size() {
+        return size;
+    }
+
+    int select(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        Branch branch = root;
+        int slot = 0;
+        int remaining = index;
+        for (int level = shift; ; level -= BITS) {
+            int child = 0;
+            while (branch.counts[child] <= remaining) {
+                remaining -= branch.counts[child++];
+            }
+            slot += child << level;
+            if (level == LEAF_BITS) {
+                return slot + selectInLeaf((long[]) branch.children[child], remaining);
+            }
+            branch = (Branch) branch.children[child];
+        }
+    }
+
+    // a version with slot live or not; slots past the end grow the trie
+    LiveSlots set(int slot, boolean live) {
+        if (contains(slot) == live) {
+            return this;
+        }
+        Branch newRoot = root;
+        int newShift = shift;
+        while ((slot >>> newShift) >= WIDTH) {
+            Branch grown = new Branch();
+            grown.children[0] = newRoot;
+            grown.counts[0] = size;
+            newRoot = grown;
+            newShift += BITS;
+        }
+        int delta = live ? 1 : -1;
+        return new LiveSlots(toggle(newRoot, newShift, slot, delta), newShift, size + delta);
+    }
+
+    private boolean contains(int slot) {
+        if ((slot >>> shift) >= WIDTH) {
+            return false;
+        }
+        Branch branch = root;
+        for (int level = shift; level > LEAF_BITS; level -= BITS) {
+            branch = (Branch) branch.children[(slot >>> level) & MASK];
+            if (branch == null) {
+                return false;
+            }
+        }
+        long[] words = (long[]) branch.children[(slot >>> LEAF_BITS) & MASK];
+        return words != null && (words[(slot >>> 6) & MASK] & (1L << slot)) != 0;
+    }
+
+    private static Branch toggle(Branch branch, int level, int slot, int delta) {
+        Branch copy = branch == null ? new Branch() : branch.copy();
+        int child = (slot >>> level) & MASK;
+        copy.counts[child] += delta;
+        if (level == LEAF_BITS) {
+            long[] words = (long[]) copy.children[child];
+            words = words == null ? new long[WIDTH] : words.clone();
+            words[(slot >>> 6) & MASK] ^= 1L << slot;
+            copy.children[child] = words;
+        } else {
+            copy.children[child] = toggle((Branch) copy.children[child], level - BITS, slot, delta);
+        }
+        return copy;
+    }
+
+    private static int selectInLeaf(long[] words, int remaining) {
+        for (int word = 0; ; word++) {
+            int bits = Long.bitCount(words[word]);
+            if (remaining < bits) {
+                long live = words[word];
+                for (; remaining > 0; remaining--) {
+                    live &= live - 1;
+                }
+                return (word << 6) + Long.numberOfTrailingZeros(live);
+            }
+            remaining -= bits;
+        }
+    }
+
+    private static final class Branch {
+        final int[] counts;
+        final Object[] children;
+
+        Branch() {
+            this(new int[WIDTH], new Object[WIDTH]);
+        }
+
+        private Branch(int[] counts, Object[] children) {
+            this.counts = counts;
+            this.children = children;
+        }
+
+        Branch copy() {
+            return new Branch(counts.clone(), children.clone());
+        }
+    }
+}
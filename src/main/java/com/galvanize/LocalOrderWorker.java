@@ -0,0 +1,186 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * An {@link OrderWorker} holding its orders in this JVM, one map and one lock per
+ * partition; the lock makes each partition's orders single-writer. This is also what an
+ * {@link OrderWorkerServer} serves.
+ * <pre>
+ * partition  varint order count, then per order: signed varint order id, order encoded
+ *            by {@link OrderEncoder#encodeWithAmounts}
+ * </pre>
+ */
+final class LocalOrderWorker implements OrderWorker {
+
+    private final Clock clock;
+    private final OrderAnalytics analytics;
+    private final ConcurrentHashMap<Integer, Partition> partitions = new ConcurrentHashMap<>();
+
+    LocalOrderWorker() {
+        this(Item.SYSTEM_CLOCK);
+    }
+
+    LocalOrderWorker(Clock clock) {
+        this.clock = clock;
+        this.analytics = new OrderAnalytics(ForkJoinPool.commonPool(), clock);
+    }
+
+    @Override
+    public void addItem(int partition, long orderId, Item item) {
+        Partition holder = lockPartition(partition);
+        try {
+            holder.orders.computeIfAbsent(orderId, key -> new Order(clock)).addItem(item);
+        } finally {
+            holder.lock.unlock();
+        }
+    }
+
+    @Override
+    public BigDecimal getTotal(int partition, long orderId) {
+        Partition holder = partitions.get(partition);
+        if (holder == null) {
+            return null;
+        }
+        Order order;
+        holder.lock.lock();
+        try {
+            order = holder.orders.get(orderId);
+        } finally {
+            holder.lock.unlock();
+        }
+        return order == null ? null : order.getTotal();
+    }
+
+    // The orders are read through their snapshots, so adds only wait while the orders of
+    // their partition are listed
+    @Override
+    public PartitionedOrderStore.Summary summarize() {
+        List<Order> orders = new ArrayList<>();
+        for (Partition holder : partitions.values()) {
+            holder.lock.lock();
+            try {
+                orders.addAll(holder.orders.values());
+            } finally {
+                holder.lock.unlock();
+            }
+        }
+        BigDecimal total = BigDecimal.ZERO;
+        for (Order order : orders) {
+            total = total.add(order.getTotal());
+        }
+        OrderAnalytics.Report report = analytics.analyze(orders, 0);
+        return new PartitionedOrderStore.Summary(report.getOrderCount(), report.getItemCount(), total,
+                report.getRepricedRevenueByType());
+    }
+
+    @Override
+    public ByteBuffer copyPartition(int partition) {
+        Partition holder = partitions.get(partition);
+        ByteBuffer out = ByteBuffer.allocate(1 << 12);
+        if (holder == null) {
+            Varints.putUnsigned(out, 0);
+            out.flip();
+            return out;
+        }
+        holder.lock.lock();
+        try {
+            if (holder.dropped) {
+                Varints.putUnsigned(out, 0);
+                out.flip();
+                return out;
+            }
+            OrderEncoder encoder = new OrderEncoder();
+            while (true) {
+                try {
+                    out.clear();
+                    Varints.putUnsigned(out, holder.orders.size());
+                    for (Map.Entry<Long, Order> entry : holder.orders.entrySet()) {
+                        Varints.putSigned(out, entry.getKey());
+                        encoder.encodeWithAmounts(entry.getValue(), out);
+                    }
+                    out.flip();
+                    return out;
+                } catch (BufferOverflowException full) {
+                    out = ByteBuffer.allocate(out.capacity() * 2);
+                }
+            }
+        } finally {
+            holder.lock.unlock();
+        }
+    }
+
+    // The orders keep the amounts they were encoded with; an order already here for an id
+    // is replaced
+    @Override
+    public void putPartition(int partition, ByteBuffer orders) {
+        long count = Varints.getUnsigned(orders);
+        Map<Long, Order> restored = new HashMap<>();
+        for (long i = 0; i < count; i++) {
+            long orderId = Varints.getSigned(orders);
+            restored.put(orderId, OrderView.read(orders).restore(clock));
+        }
+        Partition holder = lockPartition(partition);
+        try {
+            holder.orders.putAll(restored);
+        } finally {
+            holder.lock.unlock();
+        }
+    }
+
+    // Detached under its lock, so a call already waiting for the lock sees it dropped and
+    // starts over on a new partition rather than writing to this one
+    @Override
+    public void dropPartition(int partition) {
+        Partition holder = partitions.get(partition);
+        if (holder == null) {
+            return;
+        }
+        holder.lock.lock();
+        try {
+            holder.dropped = true;
+            holder.orders.clear();
+            partitions.remove(partition, holder);
+        } finally {
+            holder.lock.unlock();
+        }
+    }
+
+    int partitionCount() {
+        return partitions.size();
+    }
+
+    @Override
+    public void close() {
+        partitions.clear();
+    }
+
+    // the partition's holder, created if need be, locked and not dropped
+    private Partition lockPartition(int partition) {
+        while (true) {
+            Partition holder = partitions.computeIfAbsent(partition, key -> new Partition());
+            holder.lock.lock();
+            if (!holder.dropped) {
+                return holder;
+            }
+            holder.lock.unlock();
+        }
+    }
+
+    private static final class Partition {
+        final ReentrantLock lock = new ReentrantLock();
+        final Map<Long, Order> orders = new HashMap<>();
+        // guarded by lock
+        boolean dropped;
+    }
+}
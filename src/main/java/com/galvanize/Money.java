@@ -0,0 +1,61 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+
+/**
+ * Fixed-point money: amounts are held as a {@code long} count of cents (scale 2).
+ * <p>
+ * Conversions from {@code BigDecimal} are exact. An amount with more than
+ * two decimal places, or one that doesn't fit in a {@code long}, converts to
+ * {@link #INEXACT} and callers fall back to {@code BigDecimal} arithmetic, so totals
+ * always match what plain {@code BigDecimal} math would have produced.
+ */
+final class Money {
+
+    static final int SCALE = 2;
+    static final long INEXACT = Long.MIN_VALUE;
+
+    private Money() {
+    }
+
+    static long toCents(BigDecimal amount) {
+        if (amount == null || amount.scale() > SCALE) {
+            return INEXACT;
+        }
+        try {
+            return amount.setScale(SCALE).unscaledValue().longValueExact();
+        } catch (ArithmeticException overflow) {
+            return INEXACT;
+        }
+    }
+
+    static BigDecimal toBigDecimal(long cents) {
+        return BigDecimal.valueOf(cents, SCALE);
+    }
+
+    static long times(long cents, long quantity) {
+        if (cents == INEXACT) {
+            return INEXACT;
+        }
+        long hi = Math.abs(cents) | Math.abs(quantity);
+        if (hi >>> 31 == 0) {
+            return cents * quantity;
+        }
+        try {
+            return Math.multiplyExact(cents, quantity);
+        } catch (ArithmeticException overflow) {
+            return INEXACT;
+        }
+    }
+
+    static long plus(long a, long b) {
+        if (a == INEXACT || b == INEXACT) {
+            return INEXACT;
+        }
+        long sum = a + b;
+        if (((a ^ sum) & (b ^ sum)) < 0) {
+            return INEXACT;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,81 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+
+/**
+ * Running total of item prices. Stays in {@code long} cents and only spills into
+ * {@code BigDecimal} for amounts {@link Money} can't represent exactly.
+ */
+final class MoneyTotal {
+
+    private long cents;
+    private BigDecimal inexact;
+
+    void add(Item item, Clock clock) {
+        add(item.totalCents(clock), item, clock);
+    }
+
+    // itemCents must be item.totalCents(clock); it can be priced ahead of time, e.g. outside a lock
+    void add(long itemCents, Item item, Clock clock) {
+        add(itemCents, itemCents == Money.INEXACT ? item.totalPrice(clock) : null);
+    }
+
+    // inexactAmount is the item's total when itemCents is Money.INEXACT, otherwise null
+    void add(long itemCents, BigDecimal inexactAmount) {
+        if (inexactAmount != null) {
+            addInexact(inexactAmount);
+        } else {
+            addCents(itemCents);
+        }
+    }
+
+    void subtract(long itemCents, BigDecimal inexactAmount) {
+        if (inexactAmount != null) {
+            addInexact(inexactAmount.negate());
+        } else {
+            addCents(-itemCents);
+        }
+    }
+
+    void add(MoneyTotal other) {
+        addCents(other.cents);
+        if (other.inexact != null) {
+            addInexact(other.inexact);
+        }
+    }
+
+    private void addCents(long amount) {
+        long sum = Money.plus(cents, amount);
+        if (sum != Money.INEXACT) {
+            cents = sum;
+        } else {
+            addInexact(Money.toBigDecimal(amount));
+        }
+    }
+
+    private void addInexact(BigDecimal amount) {
+        inexact = inexact == null ? amount : inexact.add(amount);
+    }
+
+    long centsPart() {
+        return cents;
+    }
+
+    BigDecimal inexactPart() {
+        return inexact;
+    }
+
+    boolean isExact() {
+        return inexact == null;
+    }
+
+    long cents() {
+        return isExact() ? cents : Money.INEXACT;
+    }
+
+    BigDecimal get() {
+        BigDecimal total = Money.toBigDecimal(cents);
+        return inexact == null ? total : total.add(inexact);
+    }
+}
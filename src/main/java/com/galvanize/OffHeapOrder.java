@@ -0,0 +1,210 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * An order whose items live in direct {@link ByteBuffer} slabs rather than on the heap.
+ * Items are stored as fixed 32-byte records and only turned back into {@link Item}
+ * objects when one is asked for. Call {@link #close()} to release the memory eagerly;
+ * otherwise it is freed by the buffers' cleaner once the order is unreachable. Once
+ * closed, every method but {@code close} throws {@link IllegalStateException}.
+ * <p>
+ * Record layout (native byte order):
+ * <pre>
+ *  0  byte  kind (Item.LEASE, Item.PURCHASE, Item.RENTAL)
+ *  1  byte  scale of the unit price as given, so that "5" reads back as "5", not "5.00"
+ *  4  int   label code: license plate or product name
+ *  8  long  unit price in cents
+ * 16  long  number of months (lease) or end date epoch day (rental)
+ * 24  long  end date nano of day (rental)
+ * </pre>
+ * Strings are dictionary-encoded on the heap, so each distinct plate or product name
+ * is kept once.
+ */
+final class OffHeapOrder implements AutoCloseable {
+
+    static final int RECORD_BYTES = 32;
+    private static final int KIND = 0;
+    private static final int SCALE = 1;
+    private static final int LABEL = 4;
+    private static final int CENTS = 8;
+    private static final int TERM = 16;
+    private static final int TIME_OF_DAY = 24;
+
+    private static final int SLAB_SHIFT = 11;
+    private static final int SLAB_RECORDS = 1 << SLAB_SHIFT;
+    private static final int SLAB_MASK = SLAB_RECORDS - 1;
+
+    private final Clock clock;
+    private final StringDictionary labels = new StringDictionary();
+    private final MoneyTotal total = new MoneyTotal();
+    private List<ByteBuffer> slabs = new ArrayList<>();
+    private int size;
+
+    OffHeapOrder() {
+        this(Item.SYSTEM_CLOCK);
+    }
+
+    OffHeapOrder(Clock clock) {
+        this.clock = clock;
+    }
+
+    void addItem(Item item) {
+        if (item.priceCents() == Money.INEXACT) {
+            throw new IllegalArgumentException("OffHeapOrder only stores whole-cent prices: " + item);
+        }
+        ByteBuffer slab = slabFor(size);
+        int offset = (size & SLAB_MASK) * RECORD_BYTES;
+        switch (item.kind()) {
+            case Item.LEASE:
+                Lease lease = (Lease) item;
+                slab.putInt(offset + LABEL, labels.encode(lease.getLicensePlate()));
+                slab.putLong(offset + TERM, lease.getNumberOfMonths());
+                break;
+            case Item.PURCHASE:
+                slab.putInt(offset + LABEL, labels.encode(((Purchase) item).getProductName()));
+                break;
+            case Item.RENTAL:
+                LocalDateTime endDate = ((Rental) item).getEndDate();
+                slab.putInt(offset + LABEL, StringDictionary.NONE);
+                slab.putLong(offset + TERM, endDate.toLocalDate().toEpochDay());
+                slab.putLong(offset + TIME_OF_DAY, endDate.toLocalTime().toNanoOfDay());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported item type: " + item.getClass().getName());
+        }
+        slab.put(offset + KIND, item.kind());
+        // at most 2, as the price is in whole cents, and no lower than a long of cents allows
+        slab.put(offset + SCALE, (byte) item.currentPrice().scale());
+        slab.putLong(offset + CENTS, item.priceCents());
+        total.add(item, clock);
+        size++;
+    }
+
+    int size() {
+        slabs();
+        return size;
+    }
+
+    Item get(int index) {
+        List<ByteBuffer> slabs = slabs();
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("index " + index + ", size " + size);
+        }
+        ByteBuffer slab = slabs.get(index >>> SLAB_SHIFT);
+        int offset = (index & SLAB_MASK) * RECORD_BYTES;
+        BigDecimal price = Money.toBigDecimal(slab.getLong(offset + CENTS)).setScale(slab.get(offset + SCALE));
+        String label = labels.decode(slab.getInt(offset + LABEL));
+        switch (slab.get(offset + KIND)) {
+            case Item.LEASE:
+                return new Lease(label, price, (int) slab.getLong(offset + TERM));
+            case Item.PURCHASE:
+                return new Purchase(label, price);
+            default:
+                LocalDate date = LocalDate.ofEpochDay(slab.getLong(offset + TERM));
+                LocalTime time = LocalTime.ofNanoOfDay(slab.getLong(offset + TIME_OF_DAY));
+                return new Rental(price, LocalDateTime.of(date, time));
+        }
+    }
+
+    /**
+     * A read-only view; each {@code get} materializes a new {@link Item}.
+     */
+    List<Item> getItems() {
+        slabs();
+        return new AbstractList<Item>() {
+            @Override
+            public Item get(int index) {
+                return OffHeapOrder.this.get(index);
+            }
+
+            @Override
+            public int size() {
+                return OffHeapOrder.this.size();
+            }
+        };
+    }
+
+    BigDecimal getTotal() {
+        slabs();
+        return total.get();
+    }
+
+    /**
+     * Re-prices every record in place, reading the clock once; no items are materialized.
+     */
+    BigDecimal recomputeTotal() {
+        List<ByteBuffer> slabs = slabs();
+        LocalDateTime now = LocalDateTime.now(clock);
+        long asOfDay = now.toLocalDate().toEpochDay();
+        long asOfTime = now.toLocalTime().toNanoOfDay();
+        BigDecimal overflow = null;
+        long cents = 0;
+        for (int index = 0; index < size; index++) {
+            ByteBuffer slab = slabs.get(index >>> SLAB_SHIFT);
+            int offset = (index & SLAB_MASK) * RECORD_BYTES;
+            long quantity;
+            switch (slab.get(offset + KIND)) {
+                case Item.LEASE:
+                    quantity = slab.getLong(offset + TERM);
+                    break;
+                case Item.PURCHASE:
+                    quantity = 1;
+                    break;
+                default:
+                    quantity = Rental.daysUntil(asOfDay, asOfTime,
+                            slab.getLong(offset + TERM), slab.getLong(offset + TIME_OF_DAY)) + 1;
+            }
+            long line = Money.times(slab.getLong(offset + CENTS), quantity);
+            long sum = Money.plus(cents, line);
+            if (sum != Money.INEXACT) {
+                cents = sum;
+            } else {
+                BigDecimal amount = Money.toBigDecimal(slab.getLong(offset + CENTS)).multiply(BigDecimal.valueOf(quantity));
+                overflow = overflow == null ? amount : overflow.add(amount);
+            }
+        }
+        BigDecimal result = Money.toBigDecimal(cents);
+        return overflow == null ? result : result.add(overflow);
+    }
+
+    long offHeapBytes() {
+        return (long) slabs().size() * SLAB_RECORDS * RECORD_BYTES;
+    }
+
+    @Override
+    public void close() {
+        if (slabs == null) {
+            return;
+        }
+        for (ByteBuffer slab : slabs) {
+            DirectBuffers.free(slab);
+        }
+        slabs = null;
+    }
+
+    private List<ByteBuffer> slabs() {
+        if (slabs == null) {
+            throw new IllegalStateException("OffHeapOrder has been closed");
+        }
+        return slabs;
+    }
+
+    private ByteBuffer slabFor(int index) {
+        List<ByteBuffer> slabs = slabs();
+        int slab = index >>> SLAB_SHIFT;
+        if (slab == slabs.size()) {
+            slabs.add(ByteBuffer.allocateDirect(SLAB_RECORDS * RECORD_BYTES).order(ByteOrder.nativeOrder()));
+        }
+        return slabs.get(slab);
+    }
+}
@@ -1,21 +1,547 @@
 package com.galvanize;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collector;
+import java.util.stream.Stream;
 
 public class Order {
 
-    private ArrayList<Object> items = new ArrayList<>();
-    private BigDecimal total = new BigDecimal("0.00");
+    // below this many items, addAll prices sequentially
+    private static final int PARALLEL_THRESHOLD = 8192;
+    // taken first by a merge of two orders whose identity hash codes are equal
+    private static final ReentrantLock MERGE_TIE = new ReentrantLock();
 
+    private final Clock clock;
+    private final ItemSlots items;
+    private MoneyTotal total;
+    // Mutators are called by one thread at a time and publish a new snapshot when they're
+    // done; readers only ever look at the published snapshot, so they never block
+    private volatile OrderSnapshot snapshot = new OrderSnapshot(ItemVector.empty(), null, 0, null);
+    // registered with every item added, see priceChanged
+    private final PriceWatcher priceWatcher = new PriceWatcher(this);
+    // Held by mutators, and uncontended while callers keep to one writer at a time; what
+    // it orders them against is a price change re-pricing items from another thread
+    private final ReentrantLock writer = new ReentrantLock();
+    // Non-null while a collector prices items for this order on other threads: the items
+    // whose price changed meanwhile, re-priced once the collected items are appended.
+    // Guarded by writer
+    private List<Item> changedWhileCollecting;
+
+    public Order() {
+        this(Item.SYSTEM_CLOCK);
+    }
+
+    public Order(Clock clock) {
+        this(clock, new ItemSlots(), new MoneyTotal());
+    }
+
+    // Takes over items that were priced elsewhere, e.g. read back from a snapshot file;
+    // total must be the sum of their amounts. Nothing is re-priced
+    Order(Clock clock, ItemSlots items, MoneyTotal total) {
+        this.clock = clock;
+        this.items = items;
+        this.total = total;
+        if (items.usedSlots() > 0) {
+            // a price change waits until the order is published
+            writer.lock();
+            try {
+                for (int slot = 0, used = items.usedSlots(); slot < used; slot++) {
+                    Item item = items.itemAt(slot);
+                    if (item != null) {
+                        item.watchPrice(priceWatcher);
+                    }
+                }
+                publish();
+            } finally {
+                writer.unlock();
+            }
+        }
+    }
+
+    // A copy of the items as of the call, of the type this has always returned; changing
+    // it doesn't change the order. snapshot().getItems() reads them without copying
     public ArrayList<Object> getItems() {
-        return items;
+        return new ArrayList<>(snapshot.getItems());
     }
     void addItem(Item item) {
-        items.add(item);
-        total = total.add(item.totalPrice());
+        writer.lock();
+        try {
+            OrderMetrics metrics = OrderMetrics.active();
+            if (metrics != null) {
+                addMeasured(item, metrics);
+                return;
+            }
+            add(item, clock);
+            publish();
+        } finally {
+            writer.unlock();
+        }
     }
     public BigDecimal getTotal() {
-        return total;
+        return snapshot.getTotal();
+    }
+
+    // Order{items=[...], total=...} with each item as its toString(), written to out piece
+    // by piece; the items and total are from one snapshot
+    void appendTo(Appendable out) throws IOException {
+        OrderSnapshot current = snapshot;
+        List<Item> items = current.getItems();
+        out.append("Order{items=[");
+        for (int i = 0, size = items.size(); i < size; i++) {
+            if (i > 0) {
+                out.append(", ");
+            }
+            items.get(i).appendTo(out);
+        }
+        out.append("], total=");
+        long cents = current.getTotalCents();
+        if (cents != Money.INEXACT) {
+            TextAppender.appendCents(out, cents);
+        } else {
+            out.append(current.getTotal().toString());
+        }
+        out.append('}');
+    }
+
+    @Override
+    public String toString() {
+        return TextAppender.toString(this::appendTo);
+    }
+
+    // O(1); the items and the total that matches them
+    OrderSnapshot snapshot() {
+        return snapshot;
+    }
+
+    // Below PARALLEL_THRESHOLD the items are priced as one batch against one reading of the
+    // clock, grouped by concrete class, see PricingKernels
+    void addAll(Collection<? extends Item> items) {
+        if (items.size() < PARALLEL_THRESHOLD) {
+            Item[] batch = items.toArray(new Item[0]);
+            long[] cents = new long[batch.length];
+            BigDecimal[] inexactAmounts = new BigDecimal[batch.length];
+            writer.lock();
+            try {
+                // registered before pricing: a price change after the registration re-prices
+                // the item here, one before it is in the price read (see Item.price)
+                for (Item item : batch) {
+                    item.watchPrice(priceWatcher);
+                }
+                OrderMetrics metrics = OrderMetrics.active();
+                long started = metrics == null ? 0 : System.nanoTime();
+                PricingKernels.price(batch, batch.length, fixedAt(clock, clock.instant()), cents, inexactAmounts);
+                if (metrics != null) {
+                    metrics.itemsPriced(batch, batch.length, System.nanoTime() - started);
+                }
+                for (int i = 0; i < batch.length; i++) {
+                    append(batch[i], cents[i], inexactAmounts[i]);
+                }
+                publish();
+            } finally {
+                writer.unlock();
+            }
+        } else {
+            addAll(items.parallelStream());
+        }
+    }
+
+    // Prices on the calling thread or, for a parallel stream, across the fork/join pool
+    void addAll(Stream<? extends Item> items) {
+        AtomicReference<Clock> pricingClock = new AtomicReference<>();
+        startCollecting();
+        Batch collected = null;
+        try {
+            collected = items.collect(Collector.of(
+                    () -> new Batch(this),
+                    (batch, item) -> batch.add(item, readOnce(pricingClock, clock)),
+                    Batch::append));
+        } finally {
+            finishCollecting(collected);
+        }
+    }
+
+    // Appends other's items after this order's, with the amounts other holds for them, and
+    // adds its total. Both orders are locked, in an order that doesn't depend on which one
+    // merges the other
+    Order merge(Order other) {
+        if (other == this) {
+            throw new IllegalArgumentException("An order can't be merged into itself");
+        }
+        int mine = System.identityHashCode(this);
+        int theirs = System.identityHashCode(other);
+        ReentrantLock tie = mine == theirs ? MERGE_TIE : null;
+        ReentrantLock first = mine < theirs ? writer : other.writer;
+        ReentrantLock second = first == writer ? other.writer : writer;
+        if (tie != null) {
+            tie.lock();
+        }
+        first.lock();
+        second.lock();
+        try {
+            ItemSlots slots = other.items;
+            for (int slot = 0, used = slots.usedSlots(); slot < used; slot++) {
+                Item item = slots.itemAt(slot);
+                if (item != null) {
+                    item.watchPrice(priceWatcher);
+                    items.append(item, slots.centsAt(slot), slots.inexactAmountAt(slot));
+                }
+            }
+            total.add(other.total);
+            publish();
+            return this;
+        } finally {
+            second.unlock();
+            first.unlock();
+            if (tie != null) {
+                tie.unlock();
+            }
+        }
+    }
+
+    Item removeItem(int index) {
+        writer.lock();
+        try {
+            int slot = items.slotOf(index);
+            Item removed = items.itemAt(slot);
+            removeSlot(slot);
+            publish();
+            return removed;
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    // removes the first occurrence of this exact instance
+    boolean removeItem(Item item) {
+        writer.lock();
+        try {
+            int slot = items.slotOf(item);
+            if (slot < 0) {
+                return false;
+            }
+            removeSlot(slot);
+            publish();
+            return true;
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    Item replaceItem(int index, Item replacement) {
+        writer.lock();
+        try {
+            int slot = items.slotOf(index);
+            Item replaced = items.itemAt(slot);
+            replaceSlot(slot, replacement);
+            publish();
+            return replaced;
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    // replaces the first occurrence of this exact instance
+    boolean replaceItem(Item existing, Item replacement) {
+        writer.lock();
+        try {
+            int slot = items.slotOf(existing);
+            if (slot < 0) {
+                return false;
+            }
+            replaceSlot(slot, replacement);
+            publish();
+            return true;
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    static Collector<Item, ?, Order> toOrder() {
+        return toOrder(Item.SYSTEM_CLOCK);
+    }
+
+    // Every item is priced against one reading of clock, taken by the first accumulate, so
+    // the result doesn't depend on how the stream is split or on when the collector was
+    // made. Items are priced into batches and only registered with the order returned, see
+    // Batch. The finisher clears the reading and the order: a collector can be reused, one
+    // stream at a time
+    static Collector<Item, ?, Order> toOrder(Clock clock) {
+        AtomicReference<Clock> pricingClock = new AtomicReference<>();
+        AtomicReference<Order> collecting = new AtomicReference<>();
+        return Collector.of(
+                () -> new Batch(collectingOnce(collecting, clock)),
+                (batch, item) -> batch.add(item, readOnce(pricingClock, clock)),
+                Batch::append,
+                batch -> {
+                    pricingClock.set(null);
+                    collecting.set(null);
+                    return batch.order.finishCollecting(batch);
+                });
+    }
+
+    // Writer side, for intake that prices items elsewhere: appends item with its amount
+    // (inexactAmount only when cents is Money.INEXACT) but doesn't publish, so readers see
+    // nothing until publishAppended(), which a writer calls once for a run of appends. A
+    // price change of one of the order's items publishes the run so far early.
+    // pricedAt is item.currentPrice() as read before pricing it; if the price has changed
+    // since, a change this order registered too late for, the item is priced again here
+    void appendPriced(Item item, BigDecimal pricedAt, long cents, BigDecimal inexactAmount) {
+        writer.lock();
+        try {
+            item.watchPrice(priceWatcher);
+            if (item.currentPrice() != pricedAt) {
+                cents = item.totalCents(clock);
+                inexactAmount = inexactAmount(item, cents, clock);
+            }
+            append(item, cents, inexactAmount);
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    void publishAppended() {
+        writer.lock();
+        try {
+            publish();
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    // Writer side, like the mutators: every item with the amount it added to the total
+    ItemSlots slots() {
+        return items;
+    }
+
+    Clock getClock() {
+        return clock;
+    }
+
+    void reprice() {
+        repriceAsOf(clock.instant());
+    }
+
+    // Every item is priced against the same instant, so the clock is read once for the whole order
+    void repriceAsOf(Instant asOf) {
+        writer.lock();
+        try {
+            repriceAll(asOf);
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    // Called from Item.setPrice, on any thread: once the running mutator, if any, is done,
+    // the slots holding item are re-priced as of now and the total moves by the difference,
+    // so the cost doesn't depend on the size of the order. Returns false if the order no
+    // longer holds item
+    boolean priceChanged(Item item) {
+        writer.lock();
+        try {
+            if (changedWhileCollecting != null) {
+                changedWhileCollecting.add(item);
+            }
+            if (!repriceSlotsOf(item)) {
+                return changedWhileCollecting != null;
+            }
+            publish();
+            return true;
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    // false if no slot holds item
+    private boolean repriceSlotsOf(Item item) {
+        int[] slots = items.slotsOf(item);
+        if (slots.length == 0) {
+            return false;
+        }
+        long cents = item.totalCents(clock);
+        BigDecimal inexactAmount = inexactAmount(item, cents, clock);
+        for (int slot : slots) {
+            total.subtract(items.centsAt(slot), items.inexactAmountAt(slot));
+            total.add(cents, inexactAmount);
+            items.reprice(slot, cents, inexactAmount);
+        }
+        return true;
+    }
+
+    private void startCollecting() {
+        writer.lock();
+        try {
+            changedWhileCollecting = new ArrayList<>();
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    // Appends the collected items, if any, then re-prices the ones whose price changed
+    // after they were registered, which the batches may have priced before the change
+    private Order finishCollecting(Batch collected) {
+        writer.lock();
+        try {
+            if (collected != null) {
+                ItemSlots slots = collected.items;
+                for (int slot = 0, used = slots.usedSlots(); slot < used; slot++) {
+                    items.append(slots.itemAt(slot), slots.centsAt(slot), slots.inexactAmountAt(slot));
+                }
+                total.add(collected.total);
+            }
+            for (Item item : changedWhileCollecting) {
+                repriceSlotsOf(item);
+            }
+            changedWhileCollecting = null;
+            publish();
+            return this;
+        } finally {
+            writer.unlock();
+        }
+    }
+
+    private void repriceAll(Instant asOf) {
+        int live = items.size();
+        Item[] batch = new Item[live];
+        int[] slots = new int[live];
+        for (int slot = 0, used = items.usedSlots(), next = 0; slot < used; slot++) {
+            Item item = items.itemAt(slot);
+            if (item != null) {
+                batch[next] = item;
+                slots[next++] = slot;
+            }
+        }
+        long[] cents = new long[live];
+        BigDecimal[] inexactAmounts = new BigDecimal[live];
+        PricingKernels.price(batch, live, fixedAt(clock, asOf), cents, inexactAmounts);
+        MoneyTotal repriced = new MoneyTotal();
+        for (int i = 0; i < live; i++) {
+            items.reprice(slots[i], cents[i], inexactAmounts[i]);
+            repriced.add(cents[i], inexactAmounts[i]);
+        }
+        total = repriced;
+        publish();
+    }
+
+    private void add(Item item, Clock pricingClock) {
+        item.watchPrice(priceWatcher);
+        long cents = item.totalCents(pricingClock);
+        append(item, cents, inexactAmount(item, cents, pricingClock));
+    }
+
+    // addItem with pricing and the whole call timed separately
+    private void addMeasured(Item item, OrderMetrics metrics) {
+        item.watchPrice(priceWatcher);
+        long started = System.nanoTime();
+        long cents = item.totalCents(clock);
+        BigDecimal inexactAmount = inexactAmount(item, cents, clock);
+        long priced = System.nanoTime();
+        append(item, cents, inexactAmount);
+        publish();
+        metrics.itemAdded(item, priced - started, System.nanoTime() - started);
+    }
+
+    // the caller has registered with item, before pricing it if it did
+    private void append(Item item, long cents, BigDecimal inexactAmount) {
+        items.append(item, cents, inexactAmount);
+        total.add(cents, inexactAmount);
+    }
+
+    // The amount recorded for the slot is subtracted as-is, never re-priced, so removing a
+    // rental takes back exactly what adding it contributed
+    private void removeSlot(int slot) {
+        total.subtract(items.centsAt(slot), items.inexactAmountAt(slot));
+        items.removeSlot(slot);
+    }
+
+    private void replaceSlot(int slot, Item replacement) {
+        replacement.watchPrice(priceWatcher);
+        long cents = replacement.totalCents(clock);
+        BigDecimal inexactAmount = inexactAmount(replacement, cents, clock);
+        total.subtract(items.centsAt(slot), items.inexactAmountAt(slot));
+        total.add(cents, inexactAmount);
+        items.replaceSlot(slot, replacement, cents, inexactAmount);
+    }
+
+    // a size the order reaches is recorded once, when it is published
+    private void publish() {
+        int previousSize = snapshot.size();
+        snapshot = new OrderSnapshot(items.vector(), items.liveSlots(), total.centsPart(), total.inexactPart());
+        if (items.size() != previousSize) {
+            OrderMetrics metrics = OrderMetrics.active();
+            if (metrics != null) {
+                metrics.orderResized(items.size());
+            }
+        }
+    }
+
+    private static BigDecimal inexactAmount(Item item, long cents, Clock clock) {
+        return cents == Money.INEXACT ? item.totalPrice(clock) : null;
+    }
+
+    private static Order collectingOnce(AtomicReference<Order> collecting, Clock clock) {
+        Order order = collecting.get();
+        if (order == null) {
+            Order created = new Order(clock);
+            created.startCollecting();
+            collecting.compareAndSet(null, created);
+            order = collecting.get();
+        }
+        return order;
+    }
+
+    private static Clock readOnce(AtomicReference<Clock> reading, Clock clock) {
+        Clock fixed = reading.get();
+        if (fixed == null) {
+            reading.compareAndSet(null, fixedAt(clock, clock.instant()));
+            fixed = reading.get();
+        }
+        return fixed;
+    }
+
+    private static Clock fixedAt(Clock clock, Instant asOf) {
+        return Clock.fixed(asOf, clock.getZone().getRules().getOffset(asOf));
+    }
+
+    /**
+     * Items priced for an order by a collector, possibly on another thread, and not in it
+     * yet; batches of parallel substreams are appended to each other in encounter order.
+     * Each item is registered with the order itself before it is priced, never with a
+     * partial result, so a price change either is in the price read or reaches the order,
+     * which keeps it until the batch is appended.
+     */
+    private static final class Batch {
+
+        final Order order;
+        final ItemSlots items = new ItemSlots();
+        final MoneyTotal total = new MoneyTotal();
+
+        Batch(Order order) {
+            this.order = order;
+        }
+
+        void add(Item item, Clock pricingClock) {
+            item.watchPrice(order.priceWatcher);
+            long cents = item.totalCents(pricingClock);
+            BigDecimal inexactAmount = inexactAmount(item, cents, pricingClock);
+            items.append(item, cents, inexactAmount);
+            total.add(cents, inexactAmount);
+        }
+
+        Batch append(Batch other) {
+            ItemSlots slots = other.items;
+            for (int slot = 0, used = slots.usedSlots(); slot < used; slot++) {
+                items.append(slots.itemAt(slot), slots.centsAt(slot), slots.inexactAmountAt(slot));
+            }
+            total.add(other.total);
+            return this;
+        }
     }
 }
@@ -0,0 +1,271 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Finance aggregates over many orders: revenue by item type, average lease term, how many
+ * days rentals run, and the largest orders. The orders are split across a fork/join pool;
+ * each leaf task fills its own {@code Partial} without sharing anything, and partials are
+ * merged pairwise as the tasks join.
+ * <p>
+ * Every item is re-priced as of one reading of the clock, taken when {@link #analyze}
+ * starts, rather than summed at the amount its order recorded; a rental counts the days
+ * it runs from then. So revenue only adds up to the orders' {@code getTotal()} when
+ * nothing would price differently now, while the top orders rank by those totals.
+ * Orders are read through their snapshots, so they may be modified meanwhile.
+ */
+final class OrderAnalytics {
+
+    // rentals of this many days or more share the last bucket
+    static final int MAX_RENTAL_DAYS = 365;
+
+    private static final String[] TYPE_NAMES = {"Other", "Lease", "Purchase", "Rental"};
+
+    private final ForkJoinPool pool;
+    private final Clock clock;
+
+    OrderAnalytics() {
+        this(ForkJoinPool.commonPool(), Item.SYSTEM_CLOCK);
+    }
+
+    OrderAnalytics(ForkJoinPool pool, Clock clock) {
+        this.pool = pool;
+        this.clock = clock;
+    }
+
+    Report analyze(List<Order> orders, int topN) {
+        if (topN < 0) {
+            throw new IllegalArgumentException("topN must not be negative: " + topN);
+        }
+        // one clock read, so the rental day split and the clock match
+        Clock asOf = Clock.fixed(clock.instant(), clock.getZone());
+        LocalDateTime now = LocalDateTime.now(asOf);
+        Pricing pricing = new Pricing(asOf, now.toLocalDate().toEpochDay(), now.toLocalTime().toNanoOfDay());
+        // a few leaves per worker so an uneven split still keeps every worker busy
+        int leafSize = Math.max(256, orders.size() / (pool.getParallelism() * 8));
+        Partial merged = pool.invoke(new Task(orders, 0, orders.size(), leafSize, topN, pricing));
+        return new Report(merged, orders);
+    }
+
+    /**
+     * The merged aggregates. Revenue, re-priced as of the analysis, is keyed Lease,
+     * Purchase, Rental and Other, the last for any other Item subclass.
+     */
+    static final class Report {
+
+        private final Map<String, BigDecimal> revenueByType = new LinkedHashMap<>();
+        private final long orderCount;
+        private final long itemCount;
+        private final double averageLeaseMonths;
+        private final SortedMap<Integer, Long> rentalDays = new TreeMap<>();
+        private final List<Order> topOrders = new ArrayList<>();
+
+        private Report(Partial partial, List<Order> orders) {
+            for (int kind = Item.LEASE; kind <= Item.RENTAL; kind++) {
+                revenueByType.put(TYPE_NAMES[kind], partial.revenue[kind].get());
+            }
+            revenueByType.put(TYPE_NAMES[Item.OTHER], partial.revenue[Item.OTHER].get());
+            orderCount = partial.orders;
+            itemCount = partial.items;
+            averageLeaseMonths = partial.leases == 0 ? 0 : (double) partial.leaseMonths / partial.leases;
+            for (int days = 0; days <= MAX_RENTAL_DAYS; days++) {
+                if (partial.rentalDays[days] != 0) {
+                    rentalDays.put(days, partial.rentalDays[days]);
+                }
+            }
+            List<Ranked> ranked = new ArrayList<>(partial.top);
+            Collections.sort(ranked, Collections.reverseOrder());
+            for (Ranked order : ranked) {
+                topOrders.add(orders.get(order.index));
+            }
+        }
+
+        Map<String, BigDecimal> getRepricedRevenueByType() {
+            return Collections.unmodifiableMap(revenueByType);
+        }
+
+        long getOrderCount() {
+            return orderCount;
+        }
+
+        long getItemCount() {
+            return itemCount;
+        }
+
+        double getAverageLeaseMonths() {
+            return averageLeaseMonths;
+        }
+
+        // rental count by days charged; rentals already over count as 0 days
+        SortedMap<Integer, Long> getRentalDays() {
+            return Collections.unmodifiableSortedMap(rentalDays);
+        }
+
+        // largest total first; ties keep the order of the input list
+        List<Order> getTopOrders() {
+            return Collections.unmodifiableList(topOrders);
+        }
+    }
+
+    // the one as-of instant every item is priced against, pre-split for rentals
+    private static final class Pricing {
+        final Clock clock;
+        final long epochDay;
+        final long nanoOfDay;
+
+        Pricing(Clock clock, long epochDay, long nanoOfDay) {
+            this.clock = clock;
+            this.epochDay = epochDay;
+            this.nanoOfDay = nanoOfDay;
+        }
+    }
+
+    private static final class Task extends RecursiveTask<Partial> {
+        private static final long serialVersionUID = 1L;
+
+        private final List<Order> orders;
+        private final int from;
+        private final int to;
+        private final int leafSize;
+        private final int topN;
+        private final Pricing pricing;
+
+        Task(List<Order> orders, int from, int to, int leafSize, int topN, Pricing pricing) {
+            this.orders = orders;
+            this.from = from;
+            this.to = to;
+            this.leafSize = leafSize;
+            this.topN = topN;
+            this.pricing = pricing;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from <= leafSize) {
+                Partial partial = new Partial(topN);
+                for (int i = from; i < to; i++) {
+                    partial.add(i, orders.get(i).snapshot(), pricing);
+                }
+                return partial;
+            }
+            int middle = (from + to) >>> 1;
+            Task left = new Task(orders, from, middle, leafSize, topN, pricing);
+            left.fork();
+            Partial right = new Task(orders, middle, to, leafSize, topN, pricing).compute();
+            return left.join().merge(right);
+        }
+    }
+
+    private static final class Partial {
+        final MoneyTotal[] revenue = {new MoneyTotal(), new MoneyTotal(), new MoneyTotal(), new MoneyTotal()};
+        final long[] rentalDays = new long[MAX_RENTAL_DAYS + 1];
+        // smallest of the current top N at the head
+        final PriorityQueue<Ranked> top;
+        final int topN;
+        long orders;
+        long items;
+        long leases;
+        long leaseMonths;
+
+        Partial(int topN) {
+            this.topN = topN;
+            this.top = new PriorityQueue<>(Math.max(1, topN + 1));
+        }
+
+        void add(int index, OrderSnapshot order, Pricing pricing) {
+            orders++;
+            for (Item item : order.getItems()) {
+                items++;
+                byte kind = item.kind();
+                long cents;
+                switch (kind) {
+                    case Item.LEASE:
+                        Lease lease = (Lease) item;
+                        leases++;
+                        leaseMonths += lease.getNumberOfMonths();
+                        cents = lease.leaseCents();
+                        break;
+                    case Item.PURCHASE:
+                        cents = item.priceCents();
+                        break;
+                    case Item.RENTAL:
+                        long days = ((Rental) item).rentalDays(pricing.epochDay, pricing.nanoOfDay);
+                        rentalDays[(int) Math.max(0, Math.min(days, MAX_RENTAL_DAYS))]++;
+                        cents = Money.times(item.priceCents(), days);
+                        break;
+                    default:
+                        cents = item.totalCents(pricing.clock);
+                }
+                revenue[kind].add(cents, cents == Money.INEXACT ? item.totalPrice(pricing.clock) : null);
+            }
+            offer(new Ranked(index, order));
+        }
+
+        Partial merge(Partial other) {
+            for (int kind = 0; kind < revenue.length; kind++) {
+                revenue[kind].add(other.revenue[kind]);
+            }
+            for (int days = 0; days < rentalDays.length; days++) {
+                rentalDays[days] += other.rentalDays[days];
+            }
+            orders += other.orders;
+            items += other.items;
+            leases += other.leases;
+            leaseMonths += other.leaseMonths;
+            for (Ranked ranked : other.top) {
+                offer(ranked);
+            }
+            return this;
+        }
+
+        private void offer(Ranked ranked) {
+            if (topN == 0) {
+                return;
+            }
+            if (top.size() < topN) {
+                top.add(ranked);
+            } else if (ranked.compareTo(top.peek()) > 0) {
+                top.poll();
+                top.add(ranked);
+            }
+        }
+    }
+
+    // an order's total, compared in cents unless either side isn't whole cents
+    private static final class Ranked implements Comparable<Ranked> {
+        final int index;
+        final long cents;
+        final BigDecimal total;
+
+        Ranked(int index, OrderSnapshot order) {
+            this.index = index;
+            this.cents = order.getTotalCents();
+            this.total = cents == Money.INEXACT ? order.getTotal() : null;
+        }
+
+        // larger totals rank higher; of equal totals, the earlier order ranks higher
+        @Override
+        public int compareTo(Ranked other) {
+            int byTotal = total == null && other.total == null
+                    ? Long.compare(cents, other.cents)
+                    : amount().compareTo(other.amount());
+            return byTotal != 0 ? byTotal : Integer.compare(other.index, index);
+        }
+
+        private BigDecimal amount() {
+            return total != null ? total : Money.toBigDecimal(cents);
+        }
+    }
+}
@@ -0,0 +1,202 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Columnar (struct-of-arrays) store of order lines. Each line is a row across
+ * primitive columns instead of a heap {@link Item}, so totals are computed by tight
+ * loops over arrays.
+ * <p>
+ * The term column holds the number of months for a lease and the end date's epoch day
+ * for a rental; the time-of-day column holds a rental's end nano of day. Prices must be
+ * whole cents; one written with fewer than two decimal places, such as {@code 5}, is also
+ * kept as given, so that {@link #get} returns it unchanged.
+ */
+final class OrderBook {
+
+    private final StringDictionary labels = new StringDictionary();
+
+    private int size;
+    private byte[] types;
+    private long[] orderIds;
+    private long[] unitCents;
+    private long[] terms;
+    private long[] timesOfDay;
+    private int[] labelCodes;
+    // the price as given where its scale is under 2; only allocated once one is stored
+    private BigDecimal[] givenPrices;
+
+    OrderBook() {
+        this(1024);
+    }
+
+    OrderBook(int initialCapacity) {
+        int capacity = Math.max(initialCapacity, 16);
+        types = new byte[capacity];
+        orderIds = new long[capacity];
+        unitCents = new long[capacity];
+        terms = new long[capacity];
+        timesOfDay = new long[capacity];
+        labelCodes = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    void add(long orderId, Item item) {
+        long cents = item.priceCents();
+        if (cents == Money.INEXACT) {
+            throw new IllegalArgumentException("OrderBook only stores whole-cent prices: " + item);
+        }
+        byte type = item.kind();
+        long term = 0;
+        long timeOfDay = 0;
+        String label = null;
+        switch (type) {
+            case Item.LEASE:
+                Lease lease = (Lease) item;
+                term = lease.getNumberOfMonths();
+                label = lease.getLicensePlate();
+                break;
+            case Item.PURCHASE:
+                label = ((Purchase) item).getProductName();
+                break;
+            case Item.RENTAL:
+                LocalDateTime endDate = ((Rental) item).getEndDate();
+                term = endDate.toLocalDate().toEpochDay();
+                timeOfDay = endDate.toLocalTime().toNanoOfDay();
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported item type: " + item.getClass().getName());
+        }
+        ensureCapacity(size + 1);
+        types[size] = type;
+        orderIds[size] = orderId;
+        unitCents[size] = cents;
+        terms[size] = term;
+        timesOfDay[size] = timeOfDay;
+        labelCodes[size] = labels.encode(label);
+        BigDecimal price = item.getPrice();
+        if (price.scale() != Money.SCALE && givenPrices == null) {
+            givenPrices = new BigDecimal[types.length];
+        }
+        if (givenPrices != null) {
+            givenPrices[size] = price.scale() != Money.SCALE ? price : null;
+        }
+        size++;
+    }
+
+    void addAll(long orderId, Order order) {
+        List<Item> items = order.snapshot().getItems();
+        ensureCapacity(size + items.size());
+        for (Item item : items) {
+            add(orderId, item);
+        }
+    }
+
+    Item get(int row) {
+        if (row < 0 || row >= size) {
+            throw new IndexOutOfBoundsException("row " + row + ", size " + size);
+        }
+        BigDecimal price = givenPrices != null && givenPrices[row] != null
+                ? givenPrices[row] : Money.toBigDecimal(unitCents[row]);
+        switch (types[row]) {
+            case Item.LEASE:
+                return new Lease(labels.decode(labelCodes[row]), price, (int) terms[row]);
+            case Item.PURCHASE:
+                return new Purchase(labels.decode(labelCodes[row]), price);
+            default:
+                return new Rental(price, LocalDateTime.of(LocalDate.ofEpochDay(terms[row]), LocalTime.ofNanoOfDay(timesOfDay[row])));
+        }
+    }
+
+    Order toOrder(long orderId) {
+        Order order = new Order();
+        for (int row = 0; row < size; row++) {
+            if (orderIds[row] == orderId) {
+                order.addItem(get(row));
+            }
+        }
+        return order;
+    }
+
+    BigDecimal getTotal() {
+        return getTotal(Item.SYSTEM_CLOCK);
+    }
+
+    BigDecimal getTotal(Clock clock) {
+        return total(false, 0, LocalDateTime.now(clock));
+    }
+
+    BigDecimal getTotal(long orderId) {
+        return getTotal(orderId, Item.SYSTEM_CLOCK);
+    }
+
+    BigDecimal getTotal(long orderId, Clock clock) {
+        return total(true, orderId, LocalDateTime.now(clock));
+    }
+
+    private BigDecimal total(boolean filtered, long orderId, LocalDateTime asOf) {
+        long asOfDay = asOf.toLocalDate().toEpochDay();
+        long asOfTime = asOf.toLocalTime().toNanoOfDay();
+        try {
+            long total = 0;
+            for (int row = 0; row < size; row++) {
+                if (!filtered || orderIds[row] == orderId) {
+                    total = Math.addExact(total, Math.multiplyExact(unitCents[row], quantity(row, asOfDay, asOfTime)));
+                }
+            }
+            return Money.toBigDecimal(total);
+        } catch (ArithmeticException overflow) {
+            BigDecimal total = Money.toBigDecimal(0);
+            for (int row = 0; row < size; row++) {
+                if (!filtered || orderIds[row] == orderId) {
+                    long quantity = quantity(row, asOfDay, asOfTime);
+                    total = total.add(Money.toBigDecimal(unitCents[row]).multiply(BigDecimal.valueOf(quantity)));
+                }
+            }
+            return total;
+        }
+    }
+
+    private long quantity(int row, long asOfDay, long asOfTime) {
+        switch (types[row]) {
+            case Item.LEASE:
+                return terms[row];
+            case Item.PURCHASE:
+                return 1;
+            default:
+                return Rental.daysUntil(asOfDay, asOfTime, terms[row], timesOfDay[row]) + 1;
+        }
+    }
+
+    long footprintBytes() {
+        // array headers plus 1 + 8 + 8 + 8 + 8 + 4 bytes per row of capacity, and a compressed
+        // reference per row once any price is kept as given; those decimals aren't counted
+        long bytes = 6 * 16L + 37L * types.length + labels.footprintBytes();
+        return givenPrices == null ? bytes : bytes + 16L + 4L * givenPrices.length;
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity <= types.length) {
+            return;
+        }
+        int newCapacity = Math.max(capacity, types.length + (types.length >> 1));
+        types = Arrays.copyOf(types, newCapacity);
+        orderIds = Arrays.copyOf(orderIds, newCapacity);
+        unitCents = Arrays.copyOf(unitCents, newCapacity);
+        terms = Arrays.copyOf(terms, newCapacity);
+        timesOfDay = Arrays.copyOf(timesOfDay, newCapacity);
+        labelCodes = Arrays.copyOf(labelCodes, newCapacity);
+        if (givenPrices != null) {
+            givenPrices = Arrays.copyOf(givenPrices, newCapacity);
+        }
+    }
+}
@@ -0,0 +1,172 @@
+package com.galvanize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ConcurrentModificationException;
+import java.util.List;
+
+/**
+ * Writes orders in the binary wire format read by {@link OrderView}. An encoder keeps
+ * its scratch buffer and string dictionary between calls; it is not thread-safe.
+ * <pre>
+ * header  'G' 'O', version byte, flags byte, body length (int, big-endian)
+ * body    varint item count, decimal total,
+ *         varint dictionary size, then per string: varint UTF-8 length, bytes,
+ *         items
+ * item    kind byte, decimal price, then
+ *           lease     varint (plate code + 1), signed varint months
+ *           purchase  varint (product code + 1)
+ *           rental    signed varint end epoch day, varint end nano of day
+ *         then, if flags has FLAG_AMOUNTS, the amount the item added to the total:
+ *           signed varint cents, followed by a decimal if cents is Money.INEXACT
+ * </pre>
+ * Decimals are a varint of the zigzag scale (shifted left, low bit set when the unscaled
+ * value doesn't fit a long) followed by the signed varint unscaled value, see
+ * {@link Varints#putDecimal}.
+ */
+final class OrderEncoder {
+
+    static final byte MAGIC_0 = 'G';
+    static final byte MAGIC_1 = 'O';
+    static final byte VERSION = 1;
+    static final int HEADER_BYTES = 8;
+    static final byte FLAG_AMOUNTS = 1;
+
+    private final StringDictionary labels = new StringDictionary();
+    private ByteBuffer scratch = ByteBuffer.allocate(8192);
+
+    void encode(Order order, ByteBuffer out) {
+        encode(order.snapshot(), out);
+    }
+
+    // out's position is left unchanged if it is too small
+    void encode(OrderSnapshot order, ByteBuffer out) {
+        encode(order, null, out);
+    }
+
+    // Also writes each item's amount, so the order can be restored without re-pricing.
+    // Reads the order's slots, so it must not be modified meanwhile
+    void encodeWithAmounts(Order order, ByteBuffer out) {
+        OrderSnapshot snapshot = order.snapshot();
+        if (snapshot.size() != order.slots().size()) {
+            throw new ConcurrentModificationException("Order modified while encoding its amounts");
+        }
+        encode(snapshot, order.slots(), out);
+    }
+
+    private void encode(OrderSnapshot order, ItemSlots amounts, ByteBuffer out) {
+        int start = out.position();
+        try {
+            write(order, amounts, out);
+        } catch (BufferOverflowException tooSmall) {
+            out.position(start);
+            throw tooSmall;
+        }
+    }
+
+    void encode(Order order, WritableByteChannel channel) throws IOException {
+        OrderSnapshot snapshot = order.snapshot();
+        while (true) {
+            scratch.clear();
+            try {
+                write(snapshot, null, scratch);
+                break;
+            } catch (BufferOverflowException tooSmall) {
+                scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+            }
+        }
+        scratch.flip();
+        while (scratch.hasRemaining()) {
+            channel.write(scratch);
+        }
+    }
+
+    private void write(OrderSnapshot order, ItemSlots amounts, ByteBuffer out) {
+        List<Item> items = order.getItems();
+        labels.clear();
+        for (Item item : items) {
+            labels.encode(label(item));
+        }
+
+        int start = out.position();
+        out.put(MAGIC_0).put(MAGIC_1).put(VERSION).put(amounts == null ? 0 : FLAG_AMOUNTS).putInt(0);
+        Varints.putUnsigned(out, items.size());
+        Varints.putDecimal(out, order.getTotal());
+        Varints.putUnsigned(out, labels.size());
+        for (int code = 0; code < labels.size(); code++) {
+            byte[] bytes = labels.decode(code).getBytes(StandardCharsets.UTF_8);
+            Varints.putUnsigned(out, bytes.length);
+            out.put(bytes);
+        }
+        if (amounts == null) {
+            for (Item item : items) {
+                writeItem(item, out);
+            }
+        } else {
+            for (int slot = 0, used = amounts.usedSlots(); slot < used; slot++) {
+                Item item = amounts.itemAt(slot);
+                if (item != null) {
+                    writeItem(item, out);
+                    long cents = amounts.centsAt(slot);
+                    Varints.putSigned(out, cents);
+                    if (cents == Money.INEXACT) {
+                        Varints.putDecimal(out, amounts.inexactAmountAt(slot));
+                    }
+                }
+            }
+        }
+        putBigEndianInt(out, start + 4, out.position() - start - HEADER_BYTES);
+    }
+
+    private static void putBigEndianInt(ByteBuffer out, int index, int value) {
+        out.put(index, (byte) (value >>> 24));
+        out.put(index + 1, (byte) (value >>> 16));
+        out.put(index + 2, (byte) (value >>> 8));
+        out.put(index + 3, (byte) value);
+    }
+
+    private void writeItem(Item item, ByteBuffer out) {
+        BigDecimal price = item.getPrice();
+        if (price == null) {
+            throw new IllegalArgumentException("Can't encode an item without a price: " + item);
+        }
+        out.put(item.kind());
+        Varints.putDecimal(out, price);
+        switch (item.kind()) {
+            case Item.LEASE:
+                Lease lease = (Lease) item;
+                Varints.putUnsigned(out, labels.encode(lease.getLicensePlate()) + 1);
+                Varints.putSigned(out, lease.getNumberOfMonths());
+                break;
+            case Item.PURCHASE:
+                Varints.putUnsigned(out, labels.encode(((Purchase) item).getProductName()) + 1);
+                break;
+            case Item.RENTAL:
+                LocalDateTime endDate = ((Rental) item).getEndDate();
+                if (endDate == null) {
+                    throw new IllegalArgumentException("Can't encode a rental without an end date: " + item);
+                }
+                Varints.putSigned(out, endDate.toLocalDate().toEpochDay());
+                Varints.putUnsigned(out, endDate.toLocalTime().toNanoOfDay());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported item type: " + item.getClass().getName());
+        }
+    }
+
+    private static String label(Item item) {
+        switch (item.kind()) {
+            case Item.LEASE:
+                return ((Lease) item).getLicensePlate();
+            case Item.PURCHASE:
+                return ((Purchase) item).getProductName();
+            default:
+                return null;
+        }
+    }
+}
@@ -0,0 +1,499 @@
+package com.galvanize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * Writes orders to a channel as {@link OrderFileFormat} lines, which
+ * {@link OrderIngester} reads back. The calling thread cuts the orders' snapshots into
+ * chunks of lines and is the only one writing to the channel; a pool of encoder threads
+ * renders chunks to UTF-8 in direct buffers taken from a pool. Chunks are written in the
+ * order they were cut, at most two per encoder in flight, so the output is the same for
+ * any number of threads and memory doesn't grow with the export.
+ * <p>
+ * With gzip each chunk is compressed on its encoder thread as a gzip member of its own.
+ * Concatenated members are a valid gzip file, so compression runs in parallel too.
+ */
+final class OrderExporter {
+
+    private static final byte[] CSV_HEADER = "type,orderId,price,term,label\n".getBytes(StandardCharsets.US_ASCII);
+    private static final byte[] GZIP_HEADER = {0x1f, (byte) 0x8b, Deflater.DEFLATED, 0, 0, 0, 0, 0, 0, (byte) 0xff};
+    // how long export waits for cancelled encoders to stop before leaving their memory to the GC
+    private static final long STOP_TIMEOUT_SECONDS = 10;
+
+    private final OrderFileFormat format;
+    private final boolean gzip;
+    private final int threads;
+    private final int linesPerChunk;
+    private final int bufferBytes;
+
+    OrderExporter(OrderFileFormat format, boolean gzip) {
+        this(format, gzip, Runtime.getRuntime().availableProcessors(), 8192, 1 << 18);
+    }
+
+    OrderExporter(OrderFileFormat format, boolean gzip, int threads, int linesPerChunk, int bufferBytes) {
+        this.format = format;
+        this.gzip = gzip;
+        this.threads = threads;
+        this.linesPerChunk = linesPerChunk;
+        this.bufferBytes = bufferBytes;
+    }
+
+    // Each order is exported as of its snapshot when its chunk is cut. A CSV export starts
+    // with a header line
+    Stats export(Map<Long, ? extends Order> orders, WritableByteChannel out) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService encoders = Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, "order-export-encoder-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+        ConcurrentLinkedQueue<Encoder> created = new ConcurrentLinkedQueue<>();
+        ThreadLocal<Encoder> perThread = ThreadLocal.withInitial(() -> {
+            Encoder encoder = new Encoder(buffers);
+            created.add(encoder);
+            return encoder;
+        });
+        ArrayDeque<Future<List<ByteBuffer>>> inFlight = new ArrayDeque<>();
+        Chunker chunker = new Chunker(orders.entrySet().iterator());
+        long bytes = 0;
+        try {
+            if (format == OrderFileFormat.CSV) {
+                bytes += write(perThread.get().encode(CSV_HEADER, CSV_HEADER.length), out, buffers);
+            }
+            while (true) {
+                Chunk chunk;
+                while (inFlight.size() < 2 * threads && (chunk = chunker.next()) != null) {
+                    Chunk encoding = chunk;
+                    inFlight.add(encoders.submit(() -> perThread.get().encode(encoding)));
+                }
+                Future<List<ByteBuffer>> next = inFlight.poll();
+                if (next == null) {
+                    break;
+                }
+                bytes += write(get(next), out, buffers);
+            }
+        } finally {
+            encoders.shutdownNow();
+            for (Future<List<ByteBuffer>> abandoned : inFlight) {
+                abandoned.cancel(true);
+            }
+            // a cancelled encoder may still be deflating into a pooled buffer; if one doesn't
+            // stop, its deflater and buffers are left to their cleaners rather than freed under it
+            if (stopped(encoders)) {
+                for (Encoder encoder : created) {
+                    encoder.end();
+                }
+                for (ByteBuffer buffer : buffers) {
+                    DirectBuffers.free(buffer);
+                }
+            }
+        }
+        return new Stats(bytes, chunker.orders, chunker.lines, System.nanoTime() - started);
+    }
+
+    private static boolean stopped(ExecutorService encoders) {
+        boolean interrupted = false;
+        try {
+            while (true) {
+                try {
+                    return encoders.awaitTermination(STOP_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        } finally {
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    private static long write(List<ByteBuffer> encoded, WritableByteChannel out, ConcurrentLinkedQueue<ByteBuffer> buffers)
+            throws IOException {
+        long bytes = 0;
+        for (ByteBuffer buffer : encoded) {
+            while (buffer.hasRemaining()) {
+                bytes += out.write(buffer);
+            }
+            buffer.clear();
+            buffers.add(buffer);
+        }
+        return bytes;
+    }
+
+    private static List<ByteBuffer> get(Future<List<ByteBuffer>> encoded) throws InterruptedException {
+        try {
+            return encoded.get();
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            if (cause instanceof Error) {
+                throw (Error) cause;
+            }
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    // up to linesPerChunk lines, possibly from several orders or part of a large one
+    private static final class Chunk {
+        final List<Long> orderIds = new ArrayList<>();
+        final List<List<Item>> items = new ArrayList<>();
+        final List<int[]> ranges = new ArrayList<>();
+    }
+
+    private final class Chunker {
+        private final Iterator<? extends Map.Entry<Long, ? extends Order>> entries;
+        private long orderId;
+        private List<Item> items;
+        private int next;
+        long orders;
+        long lines;
+
+        Chunker(Iterator<? extends Map.Entry<Long, ? extends Order>> entries) {
+            this.entries = entries;
+        }
+
+        Chunk next() {
+            Chunk chunk = null;
+            int size = 0;
+            while (size < linesPerChunk) {
+                if (items == null || next == items.size()) {
+                    if (!entries.hasNext()) {
+                        break;
+                    }
+                    Map.Entry<Long, ? extends Order> entry = entries.next();
+                    orderId = entry.getKey();
+                    items = entry.getValue().snapshot().getItems();
+                    next = 0;
+                    orders++;
+                    continue;
+                }
+                int to = Math.min(items.size(), next + linesPerChunk - size);
+                if (chunk == null) {
+                    chunk = new Chunk();
+                }
+                chunk.orderIds.add(orderId);
+                chunk.items.add(items);
+                chunk.ranges.add(new int[]{next, to});
+                size += to - next;
+                next = to;
+            }
+            lines += size;
+            return chunk;
+        }
+    }
+
+    // one per encoder thread; everything in it is reused from chunk to chunk
+    private final class Encoder {
+        private final ConcurrentLinkedQueue<ByteBuffer> buffers;
+        private final StringBuilder text = new StringBuilder(1 << 16);
+        private byte[] utf8 = new byte[1 << 16];
+        private final byte[] deflated = new byte[1 << 16];
+        private final Deflater deflater;
+        private final CRC32 crc = new CRC32();
+
+        Encoder(ConcurrentLinkedQueue<ByteBuffer> buffers) {
+            this.buffers = buffers;
+            this.deflater = gzip ? new Deflater(Deflater.DEFAULT_COMPRESSION, true) : null;
+        }
+
+        List<ByteBuffer> encode(Chunk chunk) throws IOException {
+            text.setLength(0);
+            for (int i = 0; i < chunk.orderIds.size(); i++) {
+                long orderId = chunk.orderIds.get(i);
+                List<Item> items = chunk.items.get(i);
+                for (int at = chunk.ranges.get(i)[0], to = chunk.ranges.get(i)[1]; at < to; at++) {
+                    if (format == OrderFileFormat.CSV) {
+                        appendCsv(orderId, items.get(at));
+                    } else {
+                        appendJson(orderId, items.get(at));
+                    }
+                    text.append('\n');
+                }
+            }
+            int length = toUtf8();
+            return encode(utf8, length);
+        }
+
+        List<ByteBuffer> encode(byte[] bytes, int length) {
+            List<ByteBuffer> encoded = new ArrayList<>();
+            if (!gzip) {
+                put(bytes, 0, length, encoded);
+                return flip(encoded);
+            }
+            put(GZIP_HEADER, 0, GZIP_HEADER.length, encoded);
+            deflater.reset();
+            deflater.setInput(bytes, 0, length);
+            deflater.finish();
+            while (!deflater.finished()) {
+                put(deflated, 0, deflater.deflate(deflated), encoded);
+            }
+            crc.reset();
+            crc.update(bytes, 0, length);
+            int value = (int) crc.getValue();
+            byte[] trailer = {(byte) value, (byte) (value >>> 8), (byte) (value >>> 16), (byte) (value >>> 24),
+                    (byte) length, (byte) (length >>> 8), (byte) (length >>> 16), (byte) (length >>> 24)};
+            put(trailer, 0, trailer.length, encoded);
+            return flip(encoded);
+        }
+
+        void end() {
+            if (deflater != null) {
+                deflater.end();
+            }
+        }
+
+        // type,orderId,price,term,label
+        private void appendCsv(long orderId, Item item) throws IOException {
+            switch (kindOf(item)) {
+                case Item.LEASE:
+                    Lease lease = (Lease) item;
+                    text.append("lease,").append(orderId).append(',');
+                    TextAppender.appendDecimal(text, lease.getPricePerMonth(), lease.priceCents());
+                    text.append(',').append(lease.getNumberOfMonths()).append(',');
+                    appendCsvLabel(lease.getLicensePlate());
+                    break;
+                case Item.PURCHASE:
+                    Purchase purchase = (Purchase) item;
+                    text.append("purchase,").append(orderId).append(',');
+                    TextAppender.appendDecimal(text, purchase.getPrice(), purchase.priceCents());
+                    text.append(",,");
+                    appendCsvLabel(purchase.getProductName());
+                    break;
+                default:
+                    Rental rental = (Rental) item;
+                    text.append("rental,").append(orderId).append(',');
+                    TextAppender.appendDecimal(text, rental.getRentalPricePerDay(), rental.priceCents());
+                    text.append(',');
+                    TextAppender.appendDateTime(text, rental.getEndDate());
+                    text.append(',');
+            }
+        }
+
+        // quoted when it wouldn't read back as written otherwise
+        private void appendCsvLabel(String label) {
+            if (label == null) {
+                return;
+            }
+            boolean quote = !label.isEmpty() && (label.charAt(0) == '"' || label.charAt(label.length() - 1) == ' ');
+            for (int i = 0; i < label.length() && !quote; i++) {
+                char c = label.charAt(i);
+                if (c == '\n' || c == '\r') {
+                    throw new IllegalArgumentException("Can't export a label with a line break as CSV: " + label);
+                }
+                quote = c == ',' || c == '"';
+            }
+            if (!quote) {
+                text.append(label);
+                return;
+            }
+            text.append('"');
+            for (int i = 0; i < label.length(); i++) {
+                char c = label.charAt(i);
+                if (c == '\n' || c == '\r') {
+                    throw new IllegalArgumentException("Can't export a label with a line break as CSV: " + label);
+                }
+                text.append(c);
+                if (c == '"') {
+                    text.append('"');
+                }
+            }
+            text.append('"');
+        }
+
+        private void appendJson(long orderId, Item item) throws IOException {
+            text.append("{\"order\":").append(orderId);
+            switch (kindOf(item)) {
+                case Item.LEASE:
+                    Lease lease = (Lease) item;
+                    text.append(",\"type\":\"lease\",\"pricePerMonth\":");
+                    TextAppender.appendDecimal(text, lease.getPricePerMonth(), lease.priceCents());
+                    text.append(",\"numberOfMonths\":").append(lease.getNumberOfMonths()).append(",\"licensePlate\":");
+                    appendJsonString(lease.getLicensePlate());
+                    break;
+                case Item.PURCHASE:
+                    Purchase purchase = (Purchase) item;
+                    text.append(",\"type\":\"purchase\",\"price\":");
+                    TextAppender.appendDecimal(text, purchase.getPrice(), purchase.priceCents());
+                    text.append(",\"productName\":");
+                    appendJsonString(purchase.getProductName());
+                    break;
+                default:
+                    Rental rental = (Rental) item;
+                    text.append(",\"type\":\"rental\",\"rentalPricePerDay\":");
+                    TextAppender.appendDecimal(text, rental.getRentalPricePerDay(), rental.priceCents());
+                    text.append(",\"endDate\":\"");
+                    TextAppender.appendDateTime(text, rental.getEndDate());
+                    text.append('"');
+            }
+            text.append('}');
+        }
+
+        private void appendJsonString(String value) {
+            if (value == null) {
+                text.append("null");
+                return;
+            }
+            text.append('"');
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                switch (c) {
+                    case '"':
+                        text.append("\\\"");
+                        break;
+                    case '\\':
+                        text.append("\\\\");
+                        break;
+                    case '\n':
+                        text.append("\\n");
+                        break;
+                    case '\r':
+                        text.append("\\r");
+                        break;
+                    case '\t':
+                        text.append("\\t");
+                        break;
+                    default:
+                        if (c < 0x20) {
+                            text.append("\\u00").append(Character.forDigit(c >> 4, 16)).append(Character.forDigit(c & 0xF, 16));
+                        } else {
+                            text.append(c);
+                        }
+                }
+            }
+            text.append('"');
+        }
+
+        // UTF-8 of text into utf8, returning the length; unpaired surrogates become '?'
+        private int toUtf8() {
+            int length = text.length();
+            if (utf8.length < 3 * length) {
+                utf8 = new byte[3 * length];
+            }
+            byte[] out = utf8;
+            int at = 0;
+            for (int i = 0; i < length; i++) {
+                char c = text.charAt(i);
+                if (c < 0x80) {
+                    out[at++] = (byte) c;
+                } else if (c < 0x800) {
+                    out[at++] = (byte) (0xC0 | c >> 6);
+                    out[at++] = (byte) (0x80 | c & 0x3F);
+                } else if (Character.isHighSurrogate(c) && i + 1 < length && Character.isLowSurrogate(text.charAt(i + 1))) {
+                    int codePoint = Character.toCodePoint(c, text.charAt(++i));
+                    out[at++] = (byte) (0xF0 | codePoint >> 18);
+                    out[at++] = (byte) (0x80 | codePoint >> 12 & 0x3F);
+                    out[at++] = (byte) (0x80 | codePoint >> 6 & 0x3F);
+                    out[at++] = (byte) (0x80 | codePoint & 0x3F);
+                } else if (Character.isSurrogate(c)) {
+                    out[at++] = '?';
+                } else {
+                    out[at++] = (byte) (0xE0 | c >> 12);
+                    out[at++] = (byte) (0x80 | c >> 6 & 0x3F);
+                    out[at++] = (byte) (0x80 | c & 0x3F);
+                }
+            }
+            return at;
+        }
+
+        private void put(byte[] bytes, int from, int length, List<ByteBuffer> encoded) {
+            while (length > 0) {
+                ByteBuffer buffer = encoded.isEmpty() ? null : encoded.get(encoded.size() - 1);
+                if (buffer == null || !buffer.hasRemaining()) {
+                    buffer = buffers.poll();
+                    if (buffer == null) {
+                        buffer = ByteBuffer.allocateDirect(bufferBytes);
+                    }
+                    encoded.add(buffer);
+                }
+                int put = Math.min(length, buffer.remaining());
+                buffer.put(bytes, from, put);
+                from += put;
+                length -= put;
+            }
+        }
+
+        private List<ByteBuffer> flip(List<ByteBuffer> encoded) {
+            for (ByteBuffer buffer : encoded) {
+                buffer.flip();
+            }
+            return encoded;
+        }
+    }
+
+    private static byte kindOf(Item item) {
+        if (item.priceCents() == Money.INEXACT && item.getPrice() == null) {
+            throw new IllegalArgumentException("Can't export an item without a price: " + item);
+        }
+        byte kind = item.kind();
+        if (kind == Item.OTHER) {
+            throw new IllegalArgumentException("Unsupported item type: " + item.getClass().getName());
+        }
+        if (kind == Item.RENTAL && ((Rental) item).getEndDate() == null) {
+            throw new IllegalArgumentException("Can't export a rental without an end date: " + item);
+        }
+        return kind;
+    }
+
+    static final class Stats {
+        private final long bytes;
+        private final long orders;
+        private final long lines;
+        private final long elapsedNanos;
+
+        Stats(long bytes, long orders, long lines, long elapsedNanos) {
+            this.bytes = bytes;
+            this.orders = orders;
+            this.lines = lines;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        // as written to the channel, so compressed with gzip
+        long getBytes() {
+            return bytes;
+        }
+
+        long getOrders() {
+            return orders;
+        }
+
+        long getLines() {
+            return lines;
+        }
+
+        long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        double megabytesPerSecond() {
+            return bytes / 1e6 / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d lines of %d orders, %.1f MB in %.3f s (%.1f MB/s)",
+                    lines, orders, bytes / 1e6, elapsedNanos / 1e9, megabytesPerSecond());
+        }
+    }
+}
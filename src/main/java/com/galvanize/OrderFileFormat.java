@@ -0,0 +1,21 @@
+package com.galvanize;
+
+/**
+ * Text formats for order lines, one item per line.
+ * <pre>
+ * CSV          type,orderId,price,term,label
+ *              lease,42,3.05,6,XVB-104
+ *              purchase,42,7.88,,"Phone Case"
+ *              rental,42,12.44,2030-03-05T07:30,
+ * JSON_LINES   {"order":42,"type":"lease","pricePerMonth":3.05,"numberOfMonths":6,"licensePlate":"XVB-104"}
+ *              {"order":42,"type":"purchase","price":7.88,"productName":"Phone Case"}
+ *              {"order":42,"type":"rental","rentalPricePerDay":12.44,"endDate":"2030-03-05T07:30"}
+ * </pre>
+ * In CSV the term is the number of months of a lease or the ISO end date of a rental, and
+ * the label is a lease's license plate or a purchase's product name. A CSV file may start
+ * with a {@code type,...} header line.
+ */
+enum OrderFileFormat {
+    CSV,
+    JSON_LINES
+}
@@ -0,0 +1,256 @@
+package com.galvanize;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.function.LongFunction;
+
+/**
+ * Streams an {@link OrderFileFormat} file into orders. The calling thread reads the file
+ * through a {@link FileChannel} into one reused buffer and parses lines into batches of
+ * items; a single adder thread takes full batches and adds each item to the order its
+ * line names. A fixed pool of batches circulates between the two threads, so when the
+ * adder falls behind the reader blocks, and memory use doesn't depend on file size.
+ */
+final class OrderIngester {
+
+    private final LongFunction<Order> orders;
+    private final int bufferBytes;
+    private final int batchSize;
+    private final int batchesInFlight;
+
+    // orders resolves an order id to the order to add to; it is only called on the adder thread
+    OrderIngester(LongFunction<Order> orders) {
+        this(orders, 1 << 20, 4096, 4);
+    }
+
+    OrderIngester(LongFunction<Order> orders, int bufferBytes, int batchSize, int batchesInFlight) {
+        this.orders = orders;
+        this.bufferBytes = bufferBytes;
+        this.batchSize = batchSize;
+        this.batchesInFlight = batchesInFlight;
+    }
+
+    Stats ingest(Path file, OrderFileFormat format) throws IOException, InterruptedException {
+        long started = System.nanoTime();
+        BlockingQueue<Batch> free = new ArrayBlockingQueue<>(batchesInFlight);
+        BlockingQueue<Batch> full = new ArrayBlockingQueue<>(batchesInFlight + 1);
+        for (int i = 0; i < batchesInFlight; i++) {
+            free.add(new Batch(batchSize));
+        }
+        Adder adder = new Adder(free, full);
+        Thread adderThread = new Thread(adder, "order-ingest-adder");
+        adderThread.start();
+
+        Reader reader = new Reader(new OrderLineParser(format), free, full, adder);
+        ByteBuffer buffer = ByteBuffer.allocate(bufferBytes);
+        byte[] bytes = buffer.array();
+        long bytesRead = 0;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            int scanned = 0;
+            boolean endOfFile = false;
+            while (!endOfFile) {
+                int read = channel.read(buffer);
+                endOfFile = read < 0;
+                bytesRead += Math.max(read, 0);
+                int limit = buffer.position();
+                int lineStart = 0;
+                for (int i = scanned; i < limit; i++) {
+                    if (bytes[i] == '\n') {
+                        reader.line(bytes, lineStart, i);
+                        lineStart = i + 1;
+                    }
+                }
+                if (endOfFile && lineStart < limit) {
+                    reader.line(bytes, lineStart, limit);
+                    lineStart = limit;
+                }
+                if (lineStart == 0 && limit == bytes.length) {
+                    throw new IOException("line " + (reader.lines + 1) + " is longer than " + bufferBytes + " bytes");
+                }
+                // carry the partial last line over to the front of the buffer
+                scanned = limit - lineStart;
+                System.arraycopy(bytes, lineStart, bytes, 0, scanned);
+                buffer.clear().position(scanned);
+            }
+            reader.flush();
+        } finally {
+            full.put(Batch.END);
+            adderThread.join();
+        }
+        adder.rethrow();
+        return new Stats(bytesRead, reader.lines, reader.items, System.nanoTime() - started);
+    }
+
+    private static final class Reader {
+        private final OrderLineParser parser;
+        private final BlockingQueue<Batch> free;
+        private final BlockingQueue<Batch> full;
+        private final Adder adder;
+        private Batch batch;
+        long lines;
+        long items;
+
+        Reader(OrderLineParser parser, BlockingQueue<Batch> free, BlockingQueue<Batch> full, Adder adder) {
+            this.parser = parser;
+            this.free = free;
+            this.full = full;
+            this.adder = adder;
+        }
+
+        void line(byte[] bytes, int start, int end) throws InterruptedException {
+            if (!parser.parse(bytes, start, end, ++lines)) {
+                return;
+            }
+            if (batch == null) {
+                batch = take(free, adder);
+            }
+            batch.add(parser.orderId(), parser.item());
+            items++;
+            if (batch.isFull()) {
+                flush();
+            }
+        }
+
+        void flush() throws InterruptedException {
+            if (batch != null) {
+                full.put(batch);
+                batch = null;
+            }
+        }
+    }
+
+    private static Batch take(BlockingQueue<Batch> free, Adder adder) throws InterruptedException {
+        Batch batch = free.take();
+        if (batch == Batch.END) {
+            // the adder failed and stopped taking batches
+            adder.rethrow();
+        }
+        return batch;
+    }
+
+    private final class Adder implements Runnable {
+        private final BlockingQueue<Batch> free;
+        private final BlockingQueue<Batch> full;
+        private volatile Throwable failure;
+
+        Adder(BlockingQueue<Batch> free, BlockingQueue<Batch> full) {
+            this.free = free;
+            this.full = full;
+        }
+
+        @Override
+        public void run() {
+            try {
+                for (Batch batch = full.take(); batch != Batch.END; batch = full.take()) {
+                    if (failure == null) {
+                        addAll(batch);
+                    }
+                    batch.clear();
+                    free.put(batch);
+                }
+            } catch (InterruptedException interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+        private void addAll(Batch batch) {
+            try {
+                // consecutive items of the same order go in with one addAll
+                int from = 0;
+                for (int i = 1; i <= batch.size; i++) {
+                    if (i == batch.size || batch.orderIds[i] != batch.orderIds[from]) {
+                        orders.apply(batch.orderIds[from]).addAll(Arrays.asList(batch.items).subList(from, i));
+                        from = i;
+                    }
+                }
+            } catch (RuntimeException | Error e) {
+                failure = e;
+                free.clear();
+                free.offer(Batch.END);
+            }
+        }
+
+        void rethrow() {
+            Throwable thrown = failure;
+            if (thrown instanceof RuntimeException) {
+                throw (RuntimeException) thrown;
+            }
+            if (thrown instanceof Error) {
+                throw (Error) thrown;
+            }
+        }
+    }
+
+    private static final class Batch {
+        static final Batch END = new Batch(0);
+
+        final long[] orderIds;
+        final Item[] items;
+        int size;
+
+        Batch(int capacity) {
+            orderIds = new long[capacity];
+            items = new Item[capacity];
+        }
+
+        boolean isFull() {
+            return size == items.length;
+        }
+
+        void add(long orderId, Item item) {
+            orderIds[size] = orderId;
+            items[size++] = item;
+        }
+
+        void clear() {
+            Arrays.fill(items, 0, size, null);
+            size = 0;
+        }
+    }
+
+    static final class Stats {
+        private final long bytes;
+        private final long lines;
+        private final long items;
+        private final long elapsedNanos;
+
+        Stats(long bytes, long lines, long items, long elapsedNanos) {
+            this.bytes = bytes;
+            this.lines = lines;
+            this.items = items;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        long getBytes() {
+            return bytes;
+        }
+
+        long getLines() {
+            return lines;
+        }
+
+        long getItems() {
+            return items;
+        }
+
+        long getElapsedNanos() {
+            return elapsedNanos;
+        }
+
+        double megabytesPerSecond() {
+            return bytes / 1e6 / (elapsedNanos / 1e9);
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d items from %d lines, %.1f MB in %.3f s (%.1f MB/s)",
+                    items, lines, bytes / 1e6, elapsedNanos / 1e9, megabytesPerSecond());
+        }
+    }
+}
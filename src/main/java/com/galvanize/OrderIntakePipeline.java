@@ -0,0 +1,454 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+
+/**
+ * Order intake through a pre-allocated ring of slots, in the style of the LMAX Disruptor.
+ * Any number of producers claim slots and publish order lines or decoded items into them;
+ * three stages follow each slot around the ring, each waiting for the one before:
+ * <ol>
+ * <li>decode: parses a published line into an order id and an {@link Item}
+ * ({@link OrderLineParser}), on {@code decoders} threads that split the slots between them
+ * <li>price: the item's amount as of the pipeline clock, on {@code pricers} threads
+ * <li>accumulate: one thread appends each item with its amount to the order its id names
+ * </ol>
+ * Nothing is queued or handed off per item: a slot and the fields in it are reused every
+ * lap of the ring, stages read each other's progress from one sequence number per thread,
+ * and every stage takes whatever is ready in one batch. The accumulator publishes each
+ * order it touched once per batch, not once per item. When the ring is full, producers
+ * wait for the accumulator; how threads wait is the {@link WaitStrategy}.
+ * <p>
+ * A line that doesn't parse, or names an order the lookup doesn't know, is counted in
+ * {@link #failed()} and skipped; the first such error is kept.
+ */
+final class OrderIntakePipeline implements AutoCloseable {
+
+    enum WaitStrategy {
+        // lowest latency; every waiting thread keeps a core busy
+        BUSY_SPIN,
+        // spins a little, then yields the core to other threads between checks
+        YIELDING,
+        // spins, yields, then parks for a short while between checks; idles cheaply
+        SLEEPING,
+        // parks until signalled by whatever it waits for; cheapest idle, slowest to wake
+        BLOCKING
+    }
+
+    static final int MAX_BATCH = 1024;
+
+    private static final int DECODE = 0;
+    private static final int PRICE = 1;
+    private static final int ACCUMULATE = 2;
+    private static final int SPIN_TRIES = 100;
+    private static final int YIELD_TRIES = 100;
+    private static final long SLEEP_NANOS = 50_000;
+
+    private final LongFunction<Order> orders;
+    private final OrderFileFormat format;
+    private final Clock clock;
+    private final WaitStrategy waitStrategy;
+    private final Slot[] slots;
+    private final int mask;
+    private final int indexShift;
+    // the lap each slot was last published in; -1 before its first
+    private final AtomicIntegerArray published;
+    private final AtomicLong claimed = new AtomicLong(-1);
+    private final Sequence[][] stages;
+    private final Thread[] threads;
+    private final AtomicBoolean signalNeeded = new AtomicBoolean();
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition progress = lock.newCondition();
+    private volatile boolean running = true;
+    private volatile long added;
+    private volatile long failed;
+    private volatile RuntimeException firstFailure;
+
+    // orders resolves an order id to its order and is only called on the accumulator thread
+    OrderIntakePipeline(LongFunction<Order> orders, OrderFileFormat format) {
+        this(orders, format, Item.SYSTEM_CLOCK, 1 << 16, 2, 1, WaitStrategy.SLEEPING);
+    }
+
+    OrderIntakePipeline(LongFunction<Order> orders, OrderFileFormat format, Clock clock, int ringSize,
+                        int decoders, int pricers, WaitStrategy waitStrategy) {
+        if (Integer.bitCount(ringSize) != 1) {
+            throw new IllegalArgumentException("Ring size must be a power of two: " + ringSize);
+        }
+        this.orders = orders;
+        this.format = format;
+        this.clock = clock;
+        this.waitStrategy = waitStrategy;
+        this.slots = new Slot[ringSize];
+        this.mask = ringSize - 1;
+        this.indexShift = Integer.numberOfTrailingZeros(ringSize);
+        this.published = new AtomicIntegerArray(ringSize);
+        for (int i = 0; i < ringSize; i++) {
+            slots[i] = new Slot();
+            published.set(i, -1);
+        }
+        this.stages = new Sequence[][]{newSequences(decoders), newSequences(pricers), newSequences(1)};
+        this.threads = new Thread[decoders + pricers + 1];
+        int next = 0;
+        for (int stage = DECODE; stage <= ACCUMULATE; stage++) {
+            String name = stage == DECODE ? "decoder" : stage == PRICE ? "pricer" : "accumulator";
+            for (int worker = 0; worker < stages[stage].length; worker++) {
+                int workerStage = stage;
+                int workerIndex = worker;
+                Thread thread = new Thread(() -> run(workerStage, workerIndex), "order-intake-" + name + "-" + (worker + 1));
+                thread.setDaemon(true);
+                threads[next++] = thread;
+            }
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    // A line in the pipeline's format, copied into the slot; blank lines and a CSV header
+    // as the very first line are skipped. Waits while the ring is full
+    void publishLine(byte[] bytes, int from, int to) {
+        // checked before claiming: a claimed sequence that is never published stalls the ring
+        if (from < 0 || from > to || to > bytes.length) {
+            throw new IndexOutOfBoundsException("From: " + from + ", To: " + to + ", Length: " + bytes.length);
+        }
+        long sequence = claim();
+        Slot slot = slots[(int) sequence & mask];
+        int length = to - from;
+        if (slot.line.length < length) {
+            slot.line = new byte[Math.max(length, 2 * slot.line.length)];
+        }
+        System.arraycopy(bytes, from, slot.line, 0, length);
+        slot.lineLength = length;
+        slot.item = null;
+        publish(sequence);
+    }
+
+    // An item that needs no decoding. Waits while the ring is full
+    void publish(long orderId, Item item) {
+        long sequence = claim();
+        Slot slot = slots[(int) sequence & mask];
+        slot.lineLength = -1;
+        slot.orderId = orderId;
+        slot.item = item;
+        publish(sequence);
+    }
+
+    // Waits until everything published before the call has been added to its order
+    void flush() {
+        long last = claimed.get();
+        int tries = 0;
+        while (stages[ACCUMULATE][0].get() < last) {
+            if (!running) {
+                throw new IllegalStateException("Pipeline is closed");
+            }
+            tries = idle(tries, true);
+        }
+    }
+
+    long added() {
+        return added;
+    }
+
+    long failed() {
+        return failed;
+    }
+
+    // the first line or item that couldn't be added, null if none
+    RuntimeException firstFailure() {
+        return firstFailure;
+    }
+
+    // Adds everything already published, then stops the pipeline's threads. A producer
+    // still waiting for a slot then gets IllegalStateException, as do later calls; lines
+    // published while this runs may or may not be added
+    @Override
+    public void close() {
+        if (!running) {
+            return;
+        }
+        flush();
+        running = false;
+        signal();
+        boolean interrupted = false;
+        for (Thread thread : threads) {
+            while (thread.isAlive()) {
+                try {
+                    thread.join();
+                } catch (InterruptedException e) {
+                    interrupted = true;
+                }
+            }
+        }
+        if (interrupted) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private long claim() {
+        if (!running) {
+            throw new IllegalStateException("Pipeline is closed");
+        }
+        long sequence = claimed.incrementAndGet();
+        long wrapPoint = sequence - slots.length;
+        int tries = 0;
+        // the slot is free once the accumulator is done with its previous lap, which it
+        // never will be if the pipeline closes in the meantime
+        while (stages[ACCUMULATE][0].get() < wrapPoint) {
+            if (!running) {
+                throw new IllegalStateException("Pipeline is closed");
+            }
+            tries = idle(tries, false);
+        }
+        return sequence;
+    }
+
+    private void publish(long sequence) {
+        published.lazySet((int) sequence & mask, (int) (sequence >>> indexShift));
+        signal();
+    }
+
+    private void run(int stage, int worker) {
+        Sequence own = stages[stage][worker];
+        int workers = stages[stage].length;
+        OrderLineParser parser = stage == DECODE ? new OrderLineParser(format) : null;
+        Order[] touched = stage == ACCUMULATE ? new Order[MAX_BATCH] : null;
+        Order[] seen = stage == ACCUMULATE ? new Order[2 * MAX_BATCH] : null;
+        long next = own.get() + 1;
+        int tries = 0;
+        while (true) {
+            long available = available(stage, next);
+            if (available < next) {
+                if (!running) {
+                    return;
+                }
+                tries = idle(tries, true);
+                continue;
+            }
+            tries = 0;
+            long end = Math.min(available, next + MAX_BATCH - 1);
+            if (stage == ACCUMULATE) {
+                accumulate(next, end, touched, seen);
+            } else {
+                for (long sequence = next + Math.floorMod(worker - next, workers); sequence <= end; sequence += workers) {
+                    Slot slot = slots[(int) sequence & mask];
+                    if (stage == DECODE) {
+                        decode(slot, sequence, parser);
+                    } else {
+                        price(slot);
+                    }
+                }
+            }
+            own.lazySet(end);
+            signal();
+            next = end + 1;
+        }
+    }
+
+    // the highest sequence the stage may process, from next on; below next if none
+    private long available(int stage, long next) {
+        if (stage == DECODE) {
+            long last = Math.min(claimed.get(), next + MAX_BATCH - 1);
+            long highest = next - 1;
+            for (long sequence = next; sequence <= last; sequence++) {
+                if (published.get((int) sequence & mask) != (int) (sequence >>> indexShift)) {
+                    break;
+                }
+                highest = sequence;
+            }
+            return highest;
+        }
+        long lowest = Long.MAX_VALUE;
+        for (Sequence sequence : stages[stage - 1]) {
+            lowest = Math.min(lowest, sequence.get());
+        }
+        return lowest;
+    }
+
+    private void decode(Slot slot, long sequence, OrderLineParser parser) {
+        slot.failure = null;
+        if (slot.lineLength < 0) {
+            return;
+        }
+        try {
+            if (parser.parse(slot.line, 0, slot.lineLength, sequence + 1)) {
+                slot.orderId = parser.orderId();
+                slot.item = parser.item();
+            }
+        } catch (RuntimeException e) {
+            slot.failure = e;
+        }
+    }
+
+    private void price(Slot slot) {
+        if (slot.item == null || slot.failure != null) {
+            return;
+        }
+        try {
+            slot.pricedAt = slot.item.currentPrice();
+            long cents = slot.item.totalCents(clock);
+            slot.cents = cents;
+            slot.inexactAmount = cents == Money.INEXACT ? slot.item.totalPrice(clock) : null;
+        } catch (RuntimeException e) {
+            slot.failure = e;
+        }
+    }
+
+    private void accumulate(long from, long to, Order[] touched, Order[] seen) {
+        int touchedCount = 0;
+        long batchAdded = 0;
+        long batchFailed = 0;
+        for (long sequence = from; sequence <= to; sequence++) {
+            Slot slot = slots[(int) sequence & mask];
+            Item item = slot.item;
+            BigDecimal pricedAt = slot.pricedAt;
+            BigDecimal inexactAmount = slot.inexactAmount;
+            RuntimeException failure = slot.failure;
+            // let go of what the slot references, it may not be reused for a while
+            slot.item = null;
+            slot.failure = null;
+            slot.pricedAt = null;
+            slot.inexactAmount = null;
+            if (failure == null && item == null) {
+                continue;
+            }
+            if (failure == null) {
+                Order order = orders.apply(slot.orderId);
+                if (order == null) {
+                    failure = new IllegalArgumentException("No order " + slot.orderId);
+                } else {
+                    order.appendPriced(item, pricedAt, slot.cents, inexactAmount);
+                    if (firstSighting(order, seen)) {
+                        touched[touchedCount++] = order;
+                    }
+                    batchAdded++;
+                    continue;
+                }
+            }
+            if (firstFailure == null) {
+                firstFailure = failure;
+            }
+            batchFailed++;
+        }
+        for (int i = 0; i < touchedCount; i++) {
+            touched[i].publishAppended();
+            forget(touched[i], seen);
+            touched[i] = null;
+        }
+        if (batchAdded > 0) {
+            added += batchAdded;
+        }
+        if (batchFailed > 0) {
+            failed += batchFailed;
+        }
+    }
+
+    // identity set of the orders touched in a batch, open addressing; at most MAX_BATCH in it
+    private static boolean firstSighting(Order order, Order[] seen) {
+        int at = System.identityHashCode(order) & seen.length - 1;
+        while (seen[at] != null) {
+            if (seen[at] == order) {
+                return false;
+            }
+            at = at + 1 & seen.length - 1;
+        }
+        seen[at] = order;
+        return true;
+    }
+
+    // clears the whole probe run, which is at most the orders of the batch
+    private static void forget(Order order, Order[] seen) {
+        int at = System.identityHashCode(order) & seen.length - 1;
+        while (seen[at] != null) {
+            seen[at] = null;
+            at = at + 1 & seen.length - 1;
+        }
+    }
+
+    // waits a little, more with each try; consumers blocking is signalled, producers aren't
+    private int idle(int tries, boolean signalled) {
+        switch (waitStrategy) {
+            case BUSY_SPIN:
+                return tries;
+            case YIELDING:
+                if (tries >= SPIN_TRIES) {
+                    Thread.yield();
+                }
+                return tries + 1;
+            case SLEEPING:
+                if (tries >= SPIN_TRIES + YIELD_TRIES) {
+                    LockSupport.parkNanos(SLEEP_NANOS);
+                } else if (tries >= SPIN_TRIES) {
+                    Thread.yield();
+                }
+                return tries + 1;
+            default:
+                if (!signalled) {
+                    LockSupport.parkNanos(1);
+                    return tries;
+                }
+                lock.lock();
+                try {
+                    signalNeeded.set(true);
+                    // timed, as a signal can come between the check and this wait
+                    progress.await(1, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    lock.unlock();
+                }
+                return tries;
+        }
+    }
+
+    private void signal() {
+        if (waitStrategy == WaitStrategy.BLOCKING && signalNeeded.getAndSet(false)) {
+            lock.lock();
+            try {
+                progress.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private static Sequence[] newSequences(int count) {
+        Sequence[] sequences = new Sequence[count];
+        for (int i = 0; i < count; i++) {
+            sequences[i] = new Sequence();
+        }
+        return sequences;
+    }
+
+    // the fields a slot carries between stages; each is written by one stage and read by later ones
+    private static final class Slot {
+        byte[] line = new byte[128];
+        int lineLength;
+        long orderId;
+        Item item;
+        // the item's price when it was priced, see Order.appendPriced
+        BigDecimal pricedAt;
+        long cents;
+        BigDecimal inexactAmount;
+        RuntimeException failure;
+    }
+
+    // a thread's progress: the last sequence it is done with. The padding keeps two threads'
+    // sequences off one cache line, so advancing one doesn't stall readers of the other
+    static final class Sequence extends AtomicLong {
+        private static final long serialVersionUID = 1L;
+
+        long p1, p2, p3, p4, p5, p6, p7;
+
+        Sequence() {
+            super(-1);
+        }
+    }
+}
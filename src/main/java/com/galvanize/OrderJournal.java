@@ -0,0 +1,549 @@
+package com.galvanize;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+import java.util.zip.CRC32;
+
+/**
+ * An append-only log of {@code addItem} events, kept in fixed-size memory-mapped segment
+ * files in one directory. Appending copies a record into the mapped segment; when it is
+ * forced to disk depends on the {@link Durability}. Opening a journal checks every record
+ * and cuts the newest segment at the first one that is incomplete or fails its checksum,
+ * so a crash mid-append loses at most the records that weren't yet durable. Only the
+ * newest segment is ever written to, so damage in an older one is not a crash: opening
+ * fails with an IOException naming the segment and leaves every file as it is.
+ * <pre>
+ * segment  'G' 'J', version byte, flags byte, segment number (int), then records,
+ *          zero-filled after the last one
+ * record   payload length (int), CRC32 of the payload (int), payload
+ * payload  signed varint order id, kind byte, decimal price, then
+ *            lease     string plate, signed varint months
+ *            purchase  string product name
+ *            rental    signed varint end epoch day, varint end nano of day
+ * string   varint (UTF-8 length + 1, 0 for null), bytes
+ * </pre>
+ * Decimals are written as in {@link OrderEncoder}. Appends may come from any thread.
+ */
+final class OrderJournal implements AutoCloseable {
+
+    enum Durability {
+        // left to the OS to write back: survives the process dying, not the machine
+        NONE,
+        // an append returns once it is on disk; appends that arrive while a force is in
+        // progress wait for the next one and share it
+        GROUP,
+        // every append forces the segment before returning
+        SYNC
+    }
+
+    static final byte MAGIC_0 = 'G';
+    static final byte MAGIC_1 = 'J';
+    static final byte VERSION = 1;
+    static final int SEGMENT_HEADER_BYTES = 8;
+    static final int RECORD_HEADER_BYTES = 8;
+    static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+
+    private static final String SUFFIX = ".journal";
+
+    private final Path directory;
+    private final Durability durability;
+    private final int segmentBytes;
+    private final List<Path> segments;
+    private final long truncatedBytes;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final CRC32 crc = new CRC32();
+    private ByteBuffer scratch = ByteBuffer.allocate(256);
+    private MappedByteBuffer current;
+    private long appended;
+    private boolean closed;
+
+    // Group commit: one appender at a time forces the segment for everyone waiting. A lock
+    // and condition rather than a monitor, whose wait() would pin a virtual thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private final Condition flushed = flushLock.newCondition();
+    private boolean flushing;
+    private long durable;
+    // rolled over while a group commit was forcing; unmapped once that commit is done
+    private final List<MappedByteBuffer> retired = new ArrayList<>();
+
+    private OrderJournal(Path directory, Durability durability, int segmentBytes,
+                         List<Path> segments, MappedByteBuffer current, long truncatedBytes) {
+        this.directory = directory;
+        this.durability = durability;
+        this.segmentBytes = segmentBytes;
+        this.segments = segments;
+        this.current = current;
+        this.truncatedBytes = truncatedBytes;
+    }
+
+    static OrderJournal open(Path directory, Durability durability) throws IOException {
+        return open(directory, durability, DEFAULT_SEGMENT_BYTES);
+    }
+
+    // Recovers the existing log, if any: everything from the first bad record of the newest
+    // segment on is dropped, and a newest segment without a header is deleted
+    static OrderJournal open(Path directory, Durability durability, int segmentBytes) throws IOException {
+        if (segmentBytes < SEGMENT_HEADER_BYTES + RECORD_HEADER_BYTES + 16) {
+            throw new IllegalArgumentException("Segment too small: " + segmentBytes);
+        }
+        Files.createDirectories(directory);
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+            for (Path file : files) {
+                segments.add(file);
+            }
+        }
+        Collections.sort(segments);
+
+        long truncated = 0;
+        MappedByteBuffer current = null;
+        for (int i = 0; i < segments.size(); i++) {
+            boolean newest = i == segments.size() - 1;
+            MappedByteBuffer segment = map(segments.get(i), 0);
+            int end = validEnd(segment, segmentNumber(segments.get(i)));
+            if (end < 0) {
+                DirectBuffers.free(segment);
+                if (!newest) {
+                    throw new IOException("Journal segment has a bad header, " + (segments.size() - 1 - i)
+                            + " more after it: " + segments.get(i));
+                }
+                // never finished being created
+                truncated += deleteFrom(segments, i);
+                break;
+            }
+            boolean torn = !isEndOfLog(segment, end);
+            if (torn && !newest) {
+                DirectBuffers.free(segment);
+                throw new IOException("Journal segment is damaged at byte " + end + ", " + (segments.size() - 1 - i)
+                        + " more after it: " + segments.get(i));
+            }
+            if (torn) {
+                truncated += segment.capacity() - end;
+                for (int at = end; at < segment.capacity(); at++) {
+                    segment.put(at, (byte) 0);
+                }
+                segment.force();
+            }
+            if (newest) {
+                segment.position(end);
+                current = segment;
+                break;
+            }
+            DirectBuffers.free(segment);
+        }
+        OrderJournal journal = new OrderJournal(directory, durability, segmentBytes, segments, current, truncated);
+        if (current == null) {
+            journal.current = journal.newSegment();
+        }
+        return journal;
+    }
+
+    Durability durability() {
+        return durability;
+    }
+
+    // bytes dropped when the journal was opened
+    long truncatedBytes() {
+        return truncatedBytes;
+    }
+
+    int segmentCount() {
+        appendLock.lock();
+        try {
+            return segments.size();
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // Returns once the record is as durable as the journal's Durability promises
+    void append(long orderId, Item item) throws IOException {
+        long end;
+        appendLock.lock();
+        try {
+            ensureOpen();
+            ByteBuffer payload = encode(orderId, item);
+            int recordBytes = RECORD_HEADER_BYTES + payload.remaining();
+            if (recordBytes > current.remaining()) {
+                if (SEGMENT_HEADER_BYTES + recordBytes > segmentBytes) {
+                    throw new IllegalArgumentException("Record of " + recordBytes + " bytes doesn't fit a segment");
+                }
+                roll();
+            }
+            int at = current.position();
+            crc.reset();
+            crc.update(payload.duplicate());
+            current.position(at + RECORD_HEADER_BYTES);
+            current.put(payload);
+            current.putInt(at + 4, (int) crc.getValue());
+            // the length goes in last: until it does, the record reads as the end of the log
+            current.putInt(at, recordBytes - RECORD_HEADER_BYTES);
+            appended += recordBytes;
+            end = appended;
+            if (durability == Durability.SYNC) {
+                current.force();
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        if (durability == Durability.GROUP) {
+            awaitDurable(end);
+        }
+    }
+
+    // Logs the event, then applies it; order is untouched if logging fails
+    void addItem(long orderId, Order order, Item item) throws IOException {
+        append(orderId, item);
+        order.addItem(item);
+    }
+
+    // Adds every logged item, in order, to the order its record names; returns the record count
+    long replay(LongFunction<Order> orders) throws IOException {
+        appendLock.lock();
+        try {
+            ensureOpen();
+            long records = 0;
+            for (int i = 0; i < segments.size() - 1; i++) {
+                MappedByteBuffer segment = map(segments.get(i), 0);
+                try {
+                    records += replay(segment, segment.capacity(), orders);
+                } finally {
+                    DirectBuffers.free(segment);
+                }
+            }
+            return records + replay(current, current.position(), orders);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    Map<Long, Order> replay(Clock clock) throws IOException {
+        Map<Long, Order> orders = new LinkedHashMap<>();
+        replay(id -> orders.computeIfAbsent(id, unused -> new Order(clock)));
+        return orders;
+    }
+
+    // Forces whatever isn't on disk yet and unmaps the current segment
+    @Override
+    public void close() throws IOException {
+        appendLock.lock();
+        try {
+            if (closed) {
+                return;
+            }
+            closed = true;
+            current.force();
+            flushLock.lock();
+            try {
+                // every record is durable now, so group commit waiters can return
+                durable = Math.max(durable, appended);
+                flushed.signalAll();
+                // a group commit may still be forcing the segment we're about to unmap;
+                // none can start, as starting one needs appendLock
+                while (flushing) {
+                    flushed.awaitUninterruptibly();
+                }
+            } finally {
+                flushLock.unlock();
+            }
+            DirectBuffers.free(current);
+            current = null;
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) {
+            throw new IOException("Journal is closed: " + directory);
+        }
+    }
+
+    // A commit is started under appendLock, then flushLock, the order roll() and close()
+    // take them in, so close() can wait for a running one while holding appendLock
+    private void awaitDurable(long end) throws IOException {
+        while (true) {
+            flushLock.lock();
+            try {
+                while (durable < end && flushing) {
+                    try {
+                        flushed.await();
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new InterruptedIOException("Interrupted waiting for a group commit");
+                    }
+                }
+                if (durable >= end) {
+                    return;
+                }
+            } finally {
+                flushLock.unlock();
+            }
+            long target;
+            MappedByteBuffer segment;
+            appendLock.lock();
+            try {
+                flushLock.lock();
+                try {
+                    // a roll or close may have made the record durable meanwhile; close()
+                    // always does, so a closed journal only fails records it didn't take
+                    if (durable >= end) {
+                        return;
+                    }
+                    if (flushing) {
+                        continue;
+                    }
+                    ensureOpen();
+                    flushing = true;
+                } finally {
+                    flushLock.unlock();
+                }
+                target = appended;
+                segment = current;
+            } finally {
+                appendLock.unlock();
+            }
+            boolean forced = false;
+            try {
+                segment.force();
+                forced = true;
+            } finally {
+                flushLock.lock();
+                try {
+                    flushing = false;
+                    if (forced) {
+                        durable = Math.max(durable, target);
+                    }
+                    for (MappedByteBuffer old : retired) {
+                        DirectBuffers.free(old);
+                    }
+                    retired.clear();
+                    flushed.signalAll();
+                } finally {
+                    flushLock.unlock();
+                }
+            }
+        }
+    }
+
+    // Called with appendLock held. The old segment is forced first (unless nothing is being
+    // forced at all), so only the newest segment ever holds records that aren't durable
+    private void roll() throws IOException {
+        if (durability != Durability.NONE) {
+            current.force();
+            flushLock.lock();
+            try {
+                durable = Math.max(durable, appended);
+            } finally {
+                flushLock.unlock();
+            }
+        }
+        MappedByteBuffer old = current;
+        current = newSegment();
+        // A group commit forcing the old segment took it before this; later ones take the
+        // new one, since taking it needs appendLock
+        flushLock.lock();
+        try {
+            if (flushing) {
+                retired.add(old);
+                return;
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        DirectBuffers.free(old);
+    }
+
+    private MappedByteBuffer newSegment() throws IOException {
+        int number = segments.isEmpty() ? 0 : segmentNumber(segments.get(segments.size() - 1)) + 1;
+        Path file = directory.resolve(String.format("orders-%010d%s", number, SUFFIX));
+        MappedByteBuffer segment = map(file, segmentBytes);
+        segment.put(MAGIC_0).put(MAGIC_1).put(VERSION).put((byte) 0).putInt(number);
+        segment.force();
+        segments.add(file);
+        return segment;
+    }
+
+    private static int segmentNumber(Path file) {
+        String name = file.getFileName().toString();
+        return Integer.parseInt(name.substring("orders-".length(), name.length() - SUFFIX.length()));
+    }
+
+    // size 0 maps an existing file as it is; the mapping outlives the channel
+    private static MappedByteBuffer map(Path file, int size) throws IOException {
+        try (FileChannel channel = FileChannel.open(file,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, size == 0 ? channel.size() : size);
+        }
+    }
+
+    private static long deleteFrom(List<Path> segments, int from) throws IOException {
+        long deleted = 0;
+        List<Path> dropped = segments.subList(from, segments.size());
+        for (Path file : dropped) {
+            deleted += Files.size(file);
+            Files.delete(file);
+        }
+        dropped.clear();
+        return deleted;
+    }
+
+    // end of the last good record, or -1 if the header is missing or wrong
+    private static int validEnd(MappedByteBuffer segment, int number) {
+        if (segment.capacity() < SEGMENT_HEADER_BYTES
+                || segment.get(0) != MAGIC_0 || segment.get(1) != MAGIC_1
+                || segment.get(2) != VERSION || segment.getInt(4) != number) {
+            return -1;
+        }
+        CRC32 crc = new CRC32();
+        int at = SEGMENT_HEADER_BYTES;
+        while (at <= segment.capacity() - RECORD_HEADER_BYTES) {
+            int length = segment.getInt(at);
+            if (length <= 0 || length > segment.capacity() - at - RECORD_HEADER_BYTES) {
+                break;
+            }
+            ByteBuffer payload = segment.duplicate();
+            payload.limit(at + RECORD_HEADER_BYTES + length).position(at + RECORD_HEADER_BYTES);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != segment.getInt(at + 4)) {
+                break;
+            }
+            at += RECORD_HEADER_BYTES + length;
+        }
+        return at;
+    }
+
+    // a clean end is a zero length, or too little room left for another record
+    private static boolean isEndOfLog(MappedByteBuffer segment, int end) {
+        return end > segment.capacity() - RECORD_HEADER_BYTES || segment.getInt(end) == 0;
+    }
+
+    private static long replay(ByteBuffer segment, int end, LongFunction<Order> orders) {
+        ByteBuffer in = segment.duplicate();
+        in.limit(end).position(SEGMENT_HEADER_BYTES);
+        long records = 0;
+        while (in.remaining() >= RECORD_HEADER_BYTES) {
+            int length = in.getInt();
+            if (length == 0) {
+                break;
+            }
+            in.getInt();
+            int next = in.position() + length;
+            long orderId = Varints.getSigned(in);
+            orders.apply(orderId).addItem(decodeItem(in));
+            in.position(next);
+            records++;
+        }
+        return records;
+    }
+
+    private ByteBuffer encode(long orderId, Item item) {
+        while (true) {
+            scratch.clear();
+            try {
+                Varints.putSigned(scratch, orderId);
+                writeItem(item, scratch);
+                scratch.flip();
+                return scratch;
+            } catch (BufferOverflowException tooSmall) {
+                scratch = ByteBuffer.allocate(scratch.capacity() * 2);
+            }
+        }
+    }
+
+    // the item part of a record; also how RemoteOrderWorker sends items
+    static void writeItem(Item item, ByteBuffer out) {
+        BigDecimal price = item.getPrice();
+        if (price == null) {
+            throw new IllegalArgumentException("Can't journal an item without a price: " + item);
+        }
+        byte kind = item.kind();
+        switch (kind) {
+            case Item.LEASE:
+                Lease lease = (Lease) item;
+                out.put(kind);
+                Varints.putDecimal(out, price);
+                putString(out, lease.getLicensePlate());
+                Varints.putSigned(out, lease.getNumberOfMonths());
+                break;
+            case Item.PURCHASE:
+                out.put(kind);
+                Varints.putDecimal(out, price);
+                putString(out, ((Purchase) item).getProductName());
+                break;
+            case Item.RENTAL:
+                LocalDateTime endDate = ((Rental) item).getEndDate();
+                if (endDate == null) {
+                    throw new IllegalArgumentException("Can't journal a rental without an end date: " + item);
+                }
+                out.put(kind);
+                Varints.putDecimal(out, price);
+                Varints.putSigned(out, endDate.toLocalDate().toEpochDay());
+                Varints.putUnsigned(out, endDate.toLocalTime().toNanoOfDay());
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported item type: " + item.getClass().getName());
+        }
+    }
+
+    static Item decodeItem(ByteBuffer in) {
+        byte kind = in.get();
+        BigDecimal price = Varints.getDecimal(in);
+        switch (kind) {
+            case Item.LEASE:
+                String plate = getString(in);
+                return new Lease(plate, price, (int) Varints.getSigned(in));
+            case Item.PURCHASE:
+                return new Purchase(getString(in), price);
+            case Item.RENTAL:
+                LocalDate day = LocalDate.ofEpochDay(Varints.getSigned(in));
+                return new Rental(price, LocalDateTime.of(day, LocalTime.ofNanoOfDay(Varints.getUnsigned(in))));
+            default:
+                throw new IllegalArgumentException("Unknown item kind in journal: " + kind);
+        }
+    }
+
+    private static void putString(ByteBuffer out, String value) {
+        if (value == null) {
+            Varints.putUnsigned(out, 0);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        Varints.putUnsigned(out, bytes.length + 1L);
+        out.put(bytes);
+    }
+
+    private static String getString(ByteBuffer in) {
+        int length = Varints.getInt(in) - 1;
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
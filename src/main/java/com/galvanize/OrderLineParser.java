@@ -0,0 +1,430 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+
+/**
+ * Parses one {@link OrderFileFormat} line straight from bytes into an {@link Item}.
+ * Numbers and dates are read digit by digit; labels go through a small cache keyed by
+ * their bytes, so a plate or product name that repeats from line to line is decoded once.
+ * Not thread-safe; the parsed values stay in the parser until the next call.
+ */
+final class OrderLineParser {
+
+    private static final int TYPE = 0;
+    private static final int ORDER = 1;
+    private static final int PRICE = 2;
+    private static final int TERM = 3;
+    private static final int LABEL = 4;
+    private static final int FIELDS = 5;
+    private static final String[] FIELD_NAMES = {"type", "order id", "price", "term", "label"};
+
+    private static final byte[][] JSON_KEYS = {
+            bytes("type"), bytes("order"), bytes("price"), bytes("pricePerMonth"), bytes("rentalPricePerDay"),
+            bytes("numberOfMonths"), bytes("endDate"), bytes("licensePlate"), bytes("productName")};
+    private static final int[] JSON_FIELDS = {TYPE, ORDER, PRICE, PRICE, PRICE, TERM, TERM, LABEL, LABEL};
+
+    private static final int CACHE_SIZE = 4096;
+
+    private final OrderFileFormat format;
+    private final int[] starts = new int[FIELDS];
+    private final int[] ends = new int[FIELDS];
+    // field needs unescaping: a doubled quote in CSV, a backslash escape in JSON
+    private final boolean[] escaped = new boolean[FIELDS];
+    private final byte[][] cachedBytes = new byte[CACHE_SIZE][];
+    private final String[] cachedStrings = new String[CACHE_SIZE];
+
+    private byte[] line;
+    private long lineNumber;
+    private long orderId;
+    private Item item;
+
+    OrderLineParser(OrderFileFormat format) {
+        this.format = format;
+    }
+
+    // false for blank lines and a CSV header
+    boolean parse(byte[] bytes, int start, int end, long lineNumber) {
+        this.line = bytes;
+        this.lineNumber = lineNumber;
+        while (end > start && (bytes[end - 1] == '\r' || bytes[end - 1] == ' ')) {
+            end--;
+        }
+        if (end == start) {
+            return false;
+        }
+        Arrays.fill(starts, -1);
+        Arrays.fill(ends, -1);
+        Arrays.fill(escaped, false);
+        if (format == OrderFileFormat.CSV) {
+            splitCsv(start, end);
+            if (lineNumber == 1 && equalsAscii(TYPE, "type")) {
+                return false;
+            }
+        } else {
+            splitJson(start, end);
+        }
+        orderId = parseLong(ORDER);
+        BigDecimal price = parseDecimal(PRICE);
+        if (equalsAscii(TYPE, "lease")) {
+            long months = parseLong(TERM);
+            if (months != (int) months) {
+                throw error("number of months out of range " + string(TERM));
+            }
+            item = new Lease(string(LABEL), price, (int) months);
+        } else if (equalsAscii(TYPE, "purchase")) {
+            item = new Purchase(string(LABEL), price);
+        } else if (equalsAscii(TYPE, "rental")) {
+            item = new Rental(price, parseDateTime(TERM));
+        } else {
+            throw error("unknown item type " + string(TYPE));
+        }
+        return true;
+    }
+
+    long orderId() {
+        return orderId;
+    }
+
+    Item item() {
+        return item;
+    }
+
+    private void splitCsv(int start, int end) {
+        int field = 0;
+        int i = start;
+        while (field < FIELDS) {
+            if (i < end && line[i] == '"') {
+                int close = i + 1;
+                while (true) {
+                    if (close >= end) {
+                        throw error("unterminated quote");
+                    }
+                    if (line[close] == '"') {
+                        if (close + 1 < end && line[close + 1] == '"') {
+                            escaped[field] = true;
+                            close += 2;
+                            continue;
+                        }
+                        break;
+                    }
+                    close++;
+                }
+                starts[field] = i + 1;
+                ends[field] = close;
+                i = close + 1;
+            } else {
+                int comma = i;
+                while (comma < end && line[comma] != ',') {
+                    comma++;
+                }
+                starts[field] = i;
+                ends[field] = comma;
+                i = comma;
+            }
+            field++;
+            if (i >= end) {
+                break;
+            }
+            if (line[i] != ',') {
+                throw error("expected ','");
+            }
+            i++;
+        }
+    }
+
+    private void splitJson(int start, int end) {
+        int i = skipSpaces(start, end);
+        if (i >= end || line[i] != '{') {
+            throw error("expected '{'");
+        }
+        i = skipSpaces(i + 1, end);
+        while (i < end && line[i] != '}') {
+            if (line[i] != '"') {
+                throw error("expected a key");
+            }
+            int keyEnd = i + 1;
+            while (keyEnd < end && line[keyEnd] != '"') {
+                keyEnd++;
+            }
+            int field = jsonField(i + 1, keyEnd);
+            i = skipSpaces(keyEnd + 1, end);
+            if (i >= end || line[i] != ':') {
+                throw error("expected ':'");
+            }
+            i = skipSpaces(i + 1, end);
+            int valueStart;
+            int valueEnd;
+            boolean valueEscaped = false;
+            if (i < end && line[i] == '"') {
+                valueStart = i + 1;
+                valueEnd = valueStart;
+                while (valueEnd < end && line[valueEnd] != '"') {
+                    if (line[valueEnd] == '\\') {
+                        valueEscaped = true;
+                        valueEnd++;
+                    }
+                    valueEnd++;
+                }
+                if (valueEnd >= end) {
+                    throw error("unterminated string");
+                }
+                i = valueEnd + 1;
+            } else {
+                valueStart = i;
+                while (i < end && line[i] != ',' && line[i] != '}' && line[i] != ' ') {
+                    i++;
+                }
+                valueEnd = i;
+                if (valueEnd - valueStart == 4 && line[valueStart] == 'n') {
+                    valueEnd = valueStart = -1;
+                }
+            }
+            if (field >= 0) {
+                starts[field] = valueStart;
+                ends[field] = valueEnd;
+                escaped[field] = valueEscaped;
+            }
+            i = skipSpaces(i, end);
+            if (i < end && line[i] == ',') {
+                i = skipSpaces(i + 1, end);
+            }
+        }
+    }
+
+    private int jsonField(int start, int end) {
+        for (int key = 0; key < JSON_KEYS.length; key++) {
+            byte[] name = JSON_KEYS[key];
+            if (name.length == end - start && regionMatches(name, start)) {
+                return JSON_FIELDS[key];
+            }
+        }
+        return -1;
+    }
+
+    private int skipSpaces(int i, int end) {
+        while (i < end && (line[i] == ' ' || line[i] == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private long parseLong(int field) {
+        int i = require(field);
+        int end = ends[field];
+        boolean negative = line[i] == '-';
+        if (negative) {
+            i++;
+        }
+        if (i == end) {
+            throw error("expected a number");
+        }
+        long value = 0;
+        for (; i < end; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9 || value > (Long.MAX_VALUE - digit) / 10) {
+                throw error("invalid number " + string(field));
+            }
+            value = value * 10 + digit;
+        }
+        return negative ? -value : value;
+    }
+
+    // keeps the scale as written, like new BigDecimal("3.050")
+    private BigDecimal parseDecimal(int field) {
+        int i = require(field);
+        int end = ends[field];
+        boolean negative = line[i] == '-';
+        if (negative) {
+            i++;
+        }
+        long unscaled = 0;
+        int scale = -1;
+        int digits = 0;
+        for (; i < end; i++) {
+            byte b = line[i];
+            if (b == '.' && scale < 0) {
+                scale = 0;
+            } else if (b >= '0' && b <= '9' && digits < 18) {
+                unscaled = unscaled * 10 + (b - '0');
+                digits++;
+                if (scale >= 0) {
+                    scale++;
+                }
+            } else {
+                // exponents, very long numbers and anything odd take the slow path
+                try {
+                    return new BigDecimal(string(field));
+                } catch (NumberFormatException invalid) {
+                    throw error("invalid price " + string(field));
+                }
+            }
+        }
+        if (digits == 0) {
+            throw error("invalid price " + string(field));
+        }
+        return BigDecimal.valueOf(negative ? -unscaled : unscaled, Math.max(scale, 0));
+    }
+
+    // ISO-8601 local date-time: yyyy-MM-ddTHH:mm[:ss[.fraction]]
+    private LocalDateTime parseDateTime(int field) {
+        int i = require(field);
+        int end = ends[field];
+        if (end - i < 16 || line[i + 4] != '-' || line[i + 7] != '-' || line[i + 10] != 'T' || line[i + 13] != ':') {
+            throw error("invalid date-time " + string(field));
+        }
+        int second = 0;
+        int nano = 0;
+        if (end - i > 16) {
+            if (end - i < 19 || line[i + 16] != ':') {
+                throw error("invalid date-time " + string(field));
+            }
+            second = digits(i + 17, 2, field);
+            if (end - i > 19) {
+                if (line[i + 19] != '.' || end - i > 29 || end - i == 20) {
+                    throw error("invalid date-time " + string(field));
+                }
+                int fractionDigits = end - i - 20;
+                nano = digits(i + 20, fractionDigits, field);
+                for (int d = fractionDigits; d < 9; d++) {
+                    nano *= 10;
+                }
+            }
+        }
+        try {
+            return LocalDateTime.of(digits(i, 4, field), digits(i + 5, 2, field), digits(i + 8, 2, field),
+                    digits(i + 11, 2, field), digits(i + 14, 2, field), second, nano);
+        } catch (java.time.DateTimeException invalid) {
+            throw error("invalid date-time " + string(field));
+        }
+    }
+
+    private int digits(int start, int count, int field) {
+        int value = 0;
+        for (int i = start; i < start + count; i++) {
+            int digit = line[i] - '0';
+            if (digit < 0 || digit > 9) {
+                throw error("invalid date-time " + string(field));
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private String string(int field) {
+        int start = starts[field];
+        if (start < 0) {
+            return null;
+        }
+        int length = ends[field] - start;
+        if (escaped[field]) {
+            return unescape(new String(line, start, length, StandardCharsets.UTF_8));
+        }
+        int hash = 0;
+        for (int i = start; i < start + length; i++) {
+            hash = 31 * hash + line[i];
+        }
+        int slot = (hash ^ (hash >>> 16)) & (CACHE_SIZE - 1);
+        byte[] cached = cachedBytes[slot];
+        if (cached != null && cached.length == length && regionMatches(cached, start)) {
+            return cachedStrings[slot];
+        }
+        String value = new String(line, start, length, StandardCharsets.UTF_8);
+        cachedBytes[slot] = Arrays.copyOfRange(line, start, start + length);
+        cachedStrings[slot] = value;
+        return value;
+    }
+
+    private String unescape(String value) {
+        if (format == OrderFileFormat.CSV) {
+            return value.replace("\"\"", "\"");
+        }
+        StringBuilder unescaped = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c != '\\' || i + 1 == value.length()) {
+                unescaped.append(c);
+                continue;
+            }
+            char escape = value.charAt(++i);
+            switch (escape) {
+                case 'n':
+                    unescaped.append('\n');
+                    break;
+                case 't':
+                    unescaped.append('\t');
+                    break;
+                case 'r':
+                    unescaped.append('\r');
+                    break;
+                case 'b':
+                    unescaped.append('\b');
+                    break;
+                case 'f':
+                    unescaped.append('\f');
+                    break;
+                case 'u':
+                    if (i + 4 >= value.length()) {
+                        throw error("invalid escape");
+                    }
+                    int code = 0;
+                    for (int digit = 0; digit < 4; digit++) {
+                        int nibble = hexDigit(value.charAt(++i));
+                        if (nibble < 0) {
+                            throw error("invalid escape");
+                        }
+                        code = code << 4 | nibble;
+                    }
+                    unescaped.append((char) code);
+                    break;
+                default:
+                    unescaped.append(escape);
+            }
+        }
+        return unescaped.toString();
+    }
+
+    private boolean equalsAscii(int field, String expected) {
+        int start = starts[field];
+        if (start < 0 || ends[field] - start != expected.length()) {
+            return false;
+        }
+        for (int i = 0; i < expected.length(); i++) {
+            if (line[start + i] != expected.charAt(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean regionMatches(byte[] expected, int start) {
+        for (int i = 0; i < expected.length; i++) {
+            if (line[start + i] != expected[i]) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int require(int field) {
+        if (starts[field] < 0 || starts[field] == ends[field]) {
+            throw error("missing " + FIELD_NAMES[field]);
+        }
+        return starts[field];
+    }
+
+    private IllegalArgumentException error(String message) {
+        return new IllegalArgumentException("line " + lineNumber + ": " + message);
+    }
+
+    // 0-15 for an ASCII hex digit, else -1; Integer.parseInt would also take a sign
+    private static int hexDigit(char c) {
+        return c < 128 ? Character.digit(c, 16) : -1;
+    }
+
+    private static byte[] bytes(String value) {
+        return value.getBytes(StandardCharsets.US_ASCII);
+    }
+}
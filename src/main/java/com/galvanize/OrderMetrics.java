@@ -0,0 +1,200 @@
+package com.galvanize;
+
+import java.lang.management.ManagementFactory;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * Opt-in measurements of {@link Order} operations: items added per type, how long
+ * {@code addItem} and pricing take, and the sizes orders grow and shrink to, each counted
+ * once when a change is published. Off by default; while off, {@link #active()} is null and the only cost to an
+ * order is reading that one field. While on, the metrics are also published over JMX.
+ */
+final class OrderMetrics implements OrderMetricsMXBean {
+
+    static final String OBJECT_NAME = "com.galvanize:type=OrderMetrics";
+
+    private static volatile OrderMetrics active;
+
+    final LogHistogram addItemNanos = new LogHistogram();
+    final LogHistogram pricingNanos = new LogHistogram();
+    final LogHistogram orderSizes = new LogHistogram();
+    // Lease, Purchase and Rental by kind; any other Item subclass by class
+    private final LongAdder[] itemsByKind = {new LongAdder(), new LongAdder(), new LongAdder(), new LongAdder()};
+    private final ConcurrentHashMap<Class<?>, LongAdder> otherItems = new ConcurrentHashMap<>();
+
+    private OrderMetrics() {
+    }
+
+    // null while metrics are disabled
+    static OrderMetrics active() {
+        return active;
+    }
+
+    // Starts from zero unless metrics were already enabled
+    static synchronized OrderMetrics enable() {
+        if (active == null) {
+            OrderMetrics metrics = new OrderMetrics();
+            register(metrics);
+            active = metrics;
+        }
+        return active;
+    }
+
+    static synchronized void disable() {
+        if (active != null) {
+            active = null;
+            unregister();
+        }
+    }
+
+    void itemAdded(Item item, long pricingNanos, long addItemNanos) {
+        itemPriced(item);
+        this.pricingNanos.record(pricingNanos);
+        this.addItemNanos.record(addItemNanos);
+    }
+
+    // a batch priced in one go: each item is counted at the batch's average
+    void itemsPriced(Item[] items, int count, long pricingNanos) {
+        for (int i = 0; i < count; i++) {
+            itemPriced(items[i]);
+        }
+        if (count > 0) {
+            this.pricingNanos.record(pricingNanos / count, count);
+        }
+    }
+
+    void orderResized(int orderSize) {
+        orderSizes.record(orderSize);
+    }
+
+    private void itemPriced(Item item) {
+        byte kind = item.kind();
+        if (kind != Item.OTHER) {
+            itemsByKind[kind].increment();
+        } else {
+            otherItems.computeIfAbsent(item.getClass(), type -> new LongAdder()).increment();
+        }
+    }
+
+    @Override
+    public long getItemsAdded() {
+        long added = 0;
+        for (long count : getItemsAddedByType().values()) {
+            added += count;
+        }
+        return added;
+    }
+
+    @Override
+    public Map<String, Long> getItemsAddedByType() {
+        Map<String, Long> byType = new TreeMap<>();
+        byType.put("Lease", itemsByKind[Item.LEASE].sum());
+        byType.put("Purchase", itemsByKind[Item.PURCHASE].sum());
+        byType.put("Rental", itemsByKind[Item.RENTAL].sum());
+        for (Map.Entry<Class<?>, LongAdder> other : otherItems.entrySet()) {
+            byType.merge(other.getKey().getSimpleName(), other.getValue().sum(), Long::sum);
+        }
+        return byType;
+    }
+
+    @Override
+    public long getAddItemCount() {
+        return addItemNanos.count();
+    }
+
+    @Override
+    public double getAddItemMeanNanos() {
+        return addItemNanos.mean();
+    }
+
+    @Override
+    public long getAddItemP50Nanos() {
+        return addItemNanos.valueAt(50);
+    }
+
+    @Override
+    public long getAddItemP99Nanos() {
+        return addItemNanos.valueAt(99);
+    }
+
+    @Override
+    public long getAddItemP999Nanos() {
+        return addItemNanos.valueAt(99.9);
+    }
+
+    @Override
+    public long getAddItemMaxNanos() {
+        return addItemNanos.max();
+    }
+
+    @Override
+    public double getPricingMeanNanos() {
+        return pricingNanos.mean();
+    }
+
+    @Override
+    public long getPricingP50Nanos() {
+        return pricingNanos.valueAt(50);
+    }
+
+    @Override
+    public long getPricingP99Nanos() {
+        return pricingNanos.valueAt(99);
+    }
+
+    @Override
+    public long getPricingMaxNanos() {
+        return pricingNanos.max();
+    }
+
+    @Override
+    public long getOrderSizeCount() {
+        return orderSizes.count();
+    }
+
+    @Override
+    public long getOrderSizeP50() {
+        return orderSizes.valueAt(50);
+    }
+
+    @Override
+    public long getOrderSizeP99() {
+        return orderSizes.valueAt(99);
+    }
+
+    @Override
+    public long getOrderSizeMax() {
+        return orderSizes.max();
+    }
+
+    private static void register(OrderMetrics metrics) {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+            server.registerMBean(metrics, name);
+        } catch (JMException e) {
+            throw new IllegalStateException("Couldn't register " + OBJECT_NAME, e);
+        }
+    }
+
+    private static void unregister() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OBJECT_NAME);
+            if (server.isRegistered(name)) {
+                server.unregisterMBean(name);
+            }
+        } catch (JMException e) {
+            throw new IllegalStateException("Couldn't unregister " + OBJECT_NAME, e);
+        }
+    }
+}
@@ -0,0 +1,43 @@
+package com.galvanize;
+
+import java.util.Map;
+
+/**
+ * The JMX view of {@link OrderMetrics}, registered as {@value OrderMetrics#OBJECT_NAME}
+ * while metrics are enabled. Latencies are in nanoseconds.
+ */
+public interface OrderMetricsMXBean {
+
+    long getItemsAdded();
+
+    // by simple class name: Lease, Purchase, Rental, or the name of any other Item subclass
+    Map<String, Long> getItemsAddedByType();
+
+    long getAddItemCount();
+
+    double getAddItemMeanNanos();
+
+    long getAddItemP50Nanos();
+
+    long getAddItemP99Nanos();
+
+    long getAddItemP999Nanos();
+
+    long getAddItemMaxNanos();
+
+    double getPricingMeanNanos();
+
+    long getPricingP50Nanos();
+
+    long getPricingP99Nanos();
+
+    long getPricingMaxNanos();
+
+    long getOrderSizeCount();
+
+    long getOrderSizeP50();
+
+    long getOrderSizeP99();
+
+    long getOrderSizeMax();
+}
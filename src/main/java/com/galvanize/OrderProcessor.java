@@ -0,0 +1,145 @@
+package com.galvanize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.LongFunction;
+
+/**
+ * Runs add and pricing requests as tasks on an executor, each completing a future. An add
+ * looks up its order, logs the item to the journal if there is one, then adds it; lookups
+ * and journal writes may block, which is what the executor is for. By default it is
+ * {@link TaskExecutors#newTaskExecutor}: a virtual thread per task on JDK 21 and later, a
+ * pool of platform threads before that.
+ * <p>
+ * An {@link Order} takes one writer at a time, so adds hold a lock striped by order id
+ * from the journal write through {@code addItem}, which also keeps the journal in the
+ * order's item order. The stripes are {@code ReentrantLock}s rather than monitors, which
+ * would pin a virtual thread to its carrier while it waits. Pricing reads the order's
+ * published snapshot and takes no lock.
+ */
+final class OrderProcessor implements AutoCloseable {
+
+    private static final int LOCK_STRIPES = 256;
+
+    private final LongFunction<Order> orders;
+    private final OrderJournal journal;
+    private final ExecutorService executor;
+    private final boolean ownsExecutor;
+    private final ReentrantLock[] locks = new ReentrantLock[LOCK_STRIPES];
+    private final LogHistogram latencies = new LogHistogram();
+
+    // orders resolves an order id to its order and is called from many threads at once
+    OrderProcessor(LongFunction<Order> orders) {
+        this(orders, null);
+    }
+
+    OrderProcessor(LongFunction<Order> orders, OrderJournal journal) {
+        this(orders, journal, TaskExecutors.newTaskExecutor("order-processor"), true);
+    }
+
+    // the executor stays the caller's: close() doesn't shut it down; journal may be null
+    OrderProcessor(LongFunction<Order> orders, OrderJournal journal, ExecutorService executor) {
+        this(orders, journal, executor, false);
+    }
+
+    private OrderProcessor(LongFunction<Order> orders, OrderJournal journal, ExecutorService executor, boolean ownsExecutor) {
+        this.orders = orders;
+        this.journal = journal;
+        this.executor = executor;
+        this.ownsExecutor = ownsExecutor;
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            locks[i] = new ReentrantLock();
+        }
+    }
+
+    // completes with the order's total after the add
+    CompletableFuture<BigDecimal> add(long orderId, Item item) {
+        long submitted = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                Order order = lookUp(orderId);
+                ReentrantLock lock = locks[stripe(orderId)];
+                lock.lock();
+                try {
+                    if (journal != null) {
+                        journal.addItem(orderId, order, item);
+                    } else {
+                        order.addItem(item);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+                return order.getTotal();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            } finally {
+                latencies.record(System.nanoTime() - submitted);
+            }
+        }, executor);
+    }
+
+    CompletableFuture<BigDecimal> price(long orderId) {
+        long submitted = System.nanoTime();
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return lookUp(orderId).getTotal();
+            } finally {
+                latencies.record(System.nanoTime() - submitted);
+            }
+        }, executor);
+    }
+
+    // requests finished, successfully or not
+    long completed() {
+        return latencies.count();
+    }
+
+    // from submission to completion, over all requests so far
+    long latencyNanosAt(double percentile) {
+        return latencies.valueAt(percentile);
+    }
+
+    double meanLatencyNanos() {
+        return latencies.mean();
+    }
+
+    boolean virtualThreads() {
+        return ownsExecutor && TaskExecutors.virtualThreads();
+    }
+
+    // Lets submitted requests finish, or cancels them if interrupted while waiting;
+    // requests made after this are rejected
+    @Override
+    public void close() {
+        if (!ownsExecutor) {
+            return;
+        }
+        executor.shutdown();
+        try {
+            while (!executor.awaitTermination(1, TimeUnit.SECONDS)) {
+                // requests may block for as long as their lookups do
+            }
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Order lookUp(long orderId) {
+        Order order = orders.apply(orderId);
+        if (order == null) {
+            throw new IllegalArgumentException("No order " + orderId);
+        }
+        return order;
+    }
+
+    private static int stripe(long orderId) {
+        long h = orderId * 0x9E3779B97F4A7C15L;
+        return (int) (h >>> 56) & (LOCK_STRIPES - 1);
+    }
+}
@@ -0,0 +1,66 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.util.AbstractList;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * An immutable view of an {@link Order}: its items at one point in time and the total
+ * that matches them. Taking one is O(1) and shares the order's item storage, so readers
+ * never copy or wait on writers.
+ */
+final class OrderSnapshot {
+
+    private final ItemVector slots;
+    // null when no slot is removed
+    private final LiveSlots liveSlots;
+    private final int size;
+    private final long totalCents;
+    private final BigDecimal inexactTotal;
+
+    OrderSnapshot(ItemVector slots, LiveSlots liveSlots, long totalCents, BigDecimal inexactTotal) {
+        this.slots = slots;
+        this.liveSlots = liveSlots;
+        this.size = liveSlots == null ? slots.size() : liveSlots.size();
+        this.totalCents = totalCents;
+        this.inexactTotal = inexactTotal;
+    }
+
+    int size() {
+        return size;
+    }
+
+    BigDecimal getTotal() {
+        BigDecimal total = Money.toBigDecimal(totalCents);
+        return inexactTotal == null ? total : total.add(inexactTotal);
+    }
+
+    // Money.INEXACT unless the whole total is in cents
+    long getTotalCents() {
+        return inexactTotal == null ? totalCents : Money.INEXACT;
+    }
+
+    List<Item> getItems() {
+        return new Items();
+    }
+
+    private int slotOf(int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index + ", Size: " + size);
+        }
+        return liveSlots == null ? index : liveSlots.select(index);
+    }
+
+    private final class Items extends AbstractList<Item> implements RandomAccess {
+        @Override
+        public Item get(int index) {
+            return slots.get(slotOf(index));
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+}
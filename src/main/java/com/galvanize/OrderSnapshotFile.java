@@ -0,0 +1,160 @@
+package com.galvanize;
+
+import java.io.IOException;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+import java.util.zip.CRC32;
+
+/**
+ * Saves a set of orders to one file, with every item's already computed amount, and loads
+ * them back without re-pricing anything.
+ * <pre>
+ * header  'G' 'S', version byte, flags byte, order count (int), body length (long),
+ *         CRC32 of the body (int), 4 reserved bytes
+ * body    per order: signed varint order id, order encoded by
+ *         {@link OrderEncoder#encodeWithAmounts}
+ * </pre>
+ * The file is written next to its final path and moved into place once complete, so a
+ * reader never sees a partial snapshot. Loading maps the file, checks the body's checksum
+ * before decoding any of it, then restores the orders in parallel.
+ */
+final class OrderSnapshotFile {
+
+    static final byte MAGIC_0 = 'G';
+    static final byte MAGIC_1 = 'S';
+    static final byte VERSION = 1;
+    static final int HEADER_BYTES = 24;
+
+    private static final int BUFFER_BYTES = 1 << 20;
+
+    private OrderSnapshotFile() {
+    }
+
+    // The orders must not be modified while they're written; returns the file's size
+    static long write(Path file, Map<Long, ? extends Order> orders) throws IOException {
+        Path partial = file.resolveSibling(file.getFileName() + ".partial");
+        OrderEncoder encoder = new OrderEncoder();
+        CRC32 crc = new CRC32();
+        ByteBuffer out = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        long bodyBytes = 0;
+        try (FileChannel channel = FileChannel.open(partial, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            channel.position(HEADER_BYTES);
+            for (Map.Entry<Long, ? extends Order> entry : orders.entrySet()) {
+                while (true) {
+                    int start = out.position();
+                    try {
+                        Varints.putSigned(out, entry.getKey());
+                        encoder.encodeWithAmounts(entry.getValue(), out);
+                        break;
+                    } catch (BufferOverflowException full) {
+                        out.position(start);
+                        if (start > 0) {
+                            bodyBytes += flush(out, crc, channel);
+                        } else {
+                            // one order bigger than the whole buffer
+                            ByteBuffer bigger = ByteBuffer.allocateDirect(out.capacity() * 2);
+                            DirectBuffers.free(out);
+                            out = bigger;
+                        }
+                    }
+                }
+            }
+            bodyBytes += flush(out, crc, channel);
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.put(MAGIC_0).put(MAGIC_1).put(VERSION).put((byte) 0).putInt(orders.size())
+                    .putLong(bodyBytes).putInt((int) crc.getValue()).putInt(0);
+            header.flip();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+            channel.force(true);
+        } finally {
+            DirectBuffers.free(out);
+        }
+        Files.move(partial, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return HEADER_BYTES + bodyBytes;
+    }
+
+    // In the order they were written. Fails without returning anything if the file is
+    // damaged: a bad checksum, or amounts that don't add up to an order's total
+    static Map<Long, Order> load(Path file, Clock clock) throws IOException {
+        MappedByteBuffer mapped;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Snapshot too large to map: " + file);
+            }
+            mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+        try {
+            return load(mapped, file, clock);
+        } finally {
+            DirectBuffers.free(mapped);
+        }
+    }
+
+    private static Map<Long, Order> load(ByteBuffer in, Path file, Clock clock) throws IOException {
+        if (in.remaining() < HEADER_BYTES || in.get(0) != MAGIC_0 || in.get(1) != MAGIC_1) {
+            throw new IOException("Not an order snapshot: " + file);
+        }
+        if (in.get(2) != VERSION) {
+            throw new IOException("Unsupported order snapshot version " + in.get(2) + ": " + file);
+        }
+        int count = in.getInt(4);
+        long bodyBytes = in.getLong(8);
+        if (count < 0 || bodyBytes != in.capacity() - HEADER_BYTES) {
+            throw new IOException("Truncated order snapshot: " + file);
+        }
+        ByteBuffer body = in.duplicate();
+        body.position(HEADER_BYTES);
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+        if ((int) crc.getValue() != in.getInt(16)) {
+            throw new IOException("Order snapshot checksum mismatch: " + file);
+        }
+
+        // reading the views only walks each order's header and dictionary
+        long[] ids = new long[count];
+        List<OrderView> views = new ArrayList<>(count);
+        try {
+            for (int i = 0; i < count; i++) {
+                ids[i] = Varints.getSigned(body);
+                views.add(OrderView.read(body));
+            }
+            Order[] orders = new Order[count];
+            IntStream.range(0, count).parallel().forEach(i -> orders[i] = views.get(i).restore(clock));
+
+            Map<Long, Order> loaded = new LinkedHashMap<>(count * 4 / 3 + 1);
+            for (int i = 0; i < count; i++) {
+                loaded.put(ids[i], orders[i]);
+            }
+            return loaded;
+        } catch (RuntimeException malformed) {
+            throw new IOException("Malformed order snapshot: " + file, malformed);
+        }
+    }
+
+    private static long flush(ByteBuffer out, CRC32 crc, FileChannel channel) throws IOException {
+        out.flip();
+        long written = out.remaining();
+        crc.update(out.duplicate());
+        while (out.hasRemaining()) {
+            channel.write(out);
+        }
+        out.clear();
+        return written;
+    }
+}
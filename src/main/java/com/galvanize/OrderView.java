@@ -0,0 +1,266 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Reads an order written by {@link OrderEncoder} in place. Nothing is copied out of the
+ * buffer up front: item fields are decoded into a reusable {@link Cursor} one item at a
+ * time, strings are only decoded when asked for, and {@link Item}s only exist if
+ * {@link Cursor#toItem()} or {@link #toOrder()} is called.
+ */
+final class OrderView {
+
+    private final ByteBuffer body;
+    private final boolean hasAmounts;
+    private final int size;
+    private final int totalAt;
+    private final int[] labelOffsets;
+    private final int itemsAt;
+    private String[] labels;
+
+    private OrderView(ByteBuffer body, boolean hasAmounts) {
+        this.body = body;
+        this.hasAmounts = hasAmounts;
+        ByteBuffer in = body.duplicate();
+        this.size = Varints.getInt(in);
+        this.totalAt = in.position();
+        Varints.getDecimal(in);
+        this.labelOffsets = new int[Varints.getInt(in)];
+        for (int code = 0; code < labelOffsets.length; code++) {
+            labelOffsets[code] = in.position();
+            int length = Varints.getInt(in);
+            in.position(in.position() + length);
+        }
+        this.itemsAt = in.position();
+    }
+
+    // reads the order starting at in's position and moves in past it
+    static OrderView read(ByteBuffer in) {
+        if (in.remaining() < OrderEncoder.HEADER_BYTES
+                || in.get(in.position()) != OrderEncoder.MAGIC_0
+                || in.get(in.position() + 1) != OrderEncoder.MAGIC_1) {
+            throw new IllegalArgumentException("Not an encoded Order");
+        }
+        int start = in.position();
+        byte version = in.get(start + 2);
+        if (version != OrderEncoder.VERSION) {
+            throw new IllegalArgumentException("Unsupported Order encoding version: " + version);
+        }
+        int length = (in.get(start + 4) & 0xFF) << 24 | (in.get(start + 5) & 0xFF) << 16
+                | (in.get(start + 6) & 0xFF) << 8 | (in.get(start + 7) & 0xFF);
+        in.position(start + OrderEncoder.HEADER_BYTES);
+        ByteBuffer body = in.slice();
+        body.limit(length);
+        in.position(in.position() + length);
+        return new OrderView(body, (in.get(start + 3) & OrderEncoder.FLAG_AMOUNTS) != 0);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // whether each item's amount was encoded, see OrderEncoder.encodeWithAmounts
+    boolean hasAmounts() {
+        return hasAmounts;
+    }
+
+    BigDecimal getTotal() {
+        ByteBuffer in = body.duplicate();
+        in.position(totalAt);
+        return Varints.getDecimal(in);
+    }
+
+    String label(int code) {
+        if (code == StringDictionary.NONE) {
+            return null;
+        }
+        if (labels == null) {
+            labels = new String[labelOffsets.length];
+        }
+        String label = labels[code];
+        if (label == null) {
+            ByteBuffer in = body.duplicate();
+            in.position(labelOffsets[code]);
+            int length = Varints.getInt(in);
+            if (in.hasArray()) {
+                label = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+            } else {
+                byte[] bytes = new byte[length];
+                in.get(bytes);
+                label = new String(bytes, StandardCharsets.UTF_8);
+            }
+            // interned once per code here, so items made from it needn't each intern it again
+            label = Interner.LABELS.intern(label);
+            labels[code] = label;
+        }
+        return label;
+    }
+
+    Cursor cursor() {
+        return new Cursor();
+    }
+
+    Order toOrder() {
+        return toOrder(Item.SYSTEM_CLOCK);
+    }
+
+    // items are re-priced by the new order; the encoded total is available from getTotal()
+    Order toOrder(Clock clock) {
+        Order order = new Order(clock);
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            order.addItem(cursor.toItem());
+        }
+        return order;
+    }
+
+    // The items keep the amounts they were encoded with, nothing is re-priced; fails if
+    // those amounts don't add up to the encoded total
+    Order restore(Clock clock) {
+        if (!hasAmounts) {
+            throw new IllegalStateException("Order was encoded without item amounts");
+        }
+        ItemSlots items = new ItemSlots(size);
+        MoneyTotal total = new MoneyTotal();
+        Cursor cursor = cursor();
+        while (cursor.next()) {
+            items.append(cursor.toItem(), cursor.amountCents, cursor.inexactAmount);
+            total.add(cursor.amountCents, cursor.inexactAmount);
+        }
+        if (total.get().compareTo(getTotal()) != 0) {
+            throw new IllegalArgumentException("Item amounts add up to " + total.get() + ", not " + getTotal());
+        }
+        return new Order(clock, items, total);
+    }
+
+    /**
+     * Positioned before the first item; each {@link #next()} decodes the following item's
+     * fields into primitives.
+     */
+    final class Cursor {
+
+        private final ByteBuffer in = body.duplicate();
+        private int remaining = size;
+        private byte kind;
+        private long unscaledPrice;
+        private int priceScale;
+        private BigDecimal bigPrice;
+        private int labelCode;
+        private long numberOfMonths;
+        private long endEpochDay;
+        private long endNanoOfDay;
+        private long amountCents;
+        private BigDecimal inexactAmount;
+
+        private Cursor() {
+            in.position(itemsAt);
+        }
+
+        boolean next() {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            kind = in.get();
+            long header = Varints.getUnsigned(in);
+            priceScale = Varints.decimalScale(header);
+            if (Varints.isLongDecimal(header)) {
+                unscaledPrice = Varints.getSigned(in);
+                bigPrice = null;
+            } else {
+                bigPrice = Varints.getBigDecimal(in, header);
+            }
+            labelCode = StringDictionary.NONE;
+            switch (kind) {
+                case Item.LEASE:
+                    labelCode = Varints.getInt(in) - 1;
+                    numberOfMonths = Varints.getSigned(in);
+                    break;
+                case Item.PURCHASE:
+                    labelCode = Varints.getInt(in) - 1;
+                    break;
+                case Item.RENTAL:
+                    endEpochDay = Varints.getSigned(in);
+                    endNanoOfDay = Varints.getUnsigned(in);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown item kind: " + kind);
+            }
+            if (hasAmounts) {
+                amountCents = Varints.getSigned(in);
+                inexactAmount = amountCents == Money.INEXACT ? Varints.getDecimal(in) : null;
+            }
+            return true;
+        }
+
+        byte kind() {
+            return kind;
+        }
+
+        BigDecimal price() {
+            return bigPrice != null ? bigPrice : BigDecimal.valueOf(unscaledPrice, priceScale);
+        }
+
+        // Money.INEXACT when the price isn't a whole number of cents
+        long priceCents() {
+            if (bigPrice != null || priceScale < 0) {
+                return Money.toCents(price());
+            }
+            if (priceScale > Money.SCALE) {
+                return Money.INEXACT;
+            }
+            return Money.times(unscaledPrice, priceScale == Money.SCALE ? 1 : priceScale == 1 ? 10 : 100);
+        }
+
+        // the amount the item added to the encoded total, Money.INEXACT if not whole cents;
+        // only encoded by OrderEncoder.encodeWithAmounts
+        long amountCents() {
+            return amountCents;
+        }
+
+        BigDecimal inexactAmount() {
+            return inexactAmount;
+        }
+
+        int labelCode() {
+            return labelCode;
+        }
+
+        String label() {
+            return OrderView.this.label(labelCode);
+        }
+
+        int numberOfMonths() {
+            return (int) numberOfMonths;
+        }
+
+        long endEpochDay() {
+            return endEpochDay;
+        }
+
+        long endNanoOfDay() {
+            return endNanoOfDay;
+        }
+
+        LocalDateTime endDate() {
+            return LocalDateTime.of(LocalDate.ofEpochDay(endEpochDay), LocalTime.ofNanoOfDay(endNanoOfDay));
+        }
+
+        Item toItem() {
+            switch (kind) {
+                case Item.LEASE:
+                    return new Lease(label(), price(), numberOfMonths(), true);
+                case Item.PURCHASE:
+                    return new Purchase(label(), price(), true);
+                default:
+                    return new Rental(price(), endDate());
+            }
+        }
+    }
+}
@@ -0,0 +1,34 @@
+package com.galvanize;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+
+/**
+ * One shard of a {@link PartitionedOrderStore}: holds the orders of the partitions the
+ * store assigns it. Partitions move between workers as opaque buffers, copied from one
+ * worker, put into another and then dropped from the first. Calls may come from many
+ * threads at once.
+ */
+interface OrderWorker extends AutoCloseable {
+
+    void addItem(int partition, long orderId, Item item) throws IOException;
+
+    // null if the worker holds no such order
+    BigDecimal getTotal(int partition, long orderId) throws IOException;
+
+    // over every partition the worker holds
+    PartitionedOrderStore.Summary summarize() throws IOException;
+
+    // The partition's orders encoded, with each item's amount, for putPartition on another
+    // worker; this one keeps them
+    ByteBuffer copyPartition(int partition) throws IOException;
+
+    void putPartition(int partition, ByteBuffer orders) throws IOException;
+
+    // a partition the worker doesn't hold is already dropped
+    void dropPartition(int partition) throws IOException;
+
+    @Override
+    void close() throws IOException;
+}
@@ -0,0 +1,269 @@
+package com.galvanize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Serves a {@link LocalOrderWorker} to {@link RemoteOrderWorker}s over TCP on the loopback
+ * interface, one thread per connection. {@link #main} runs one as a worker process of its
+ * own.
+ * <pre>
+ * request   length (int) of the rest, op byte, body
+ * response  length (int) of the rest, status byte, body; for FAILED the UTF-8 message
+ * ADD       varint partition, signed varint order id, item as in {@link OrderJournal}
+ * TOTAL     varint partition, signed varint order id; responds a byte, 1 if the order
+ *           exists, then its decimal total
+ * SUMMARY   responds varint order count, varint item count, decimal total, varint type
+ *           count, then per type: varint UTF-8 length, name, decimal re-priced revenue
+ * COPY      varint partition; responds the partition as {@link LocalOrderWorker} encodes it
+ * PUT       varint partition, then the partition
+ * DROP      varint partition
+ * </pre>
+ * Decimals are written as in {@link OrderEncoder}.
+ */
+final class OrderWorkerServer implements AutoCloseable {
+
+    static final byte ADD = 1;
+    static final byte TOTAL = 2;
+    static final byte SUMMARY = 3;
+    static final byte COPY = 4;
+    static final byte PUT = 5;
+    static final byte DROP = 6;
+
+    static final byte OK = 0;
+    static final byte FAILED = 1;
+
+    private final LocalOrderWorker worker;
+    private final ServerSocketChannel server;
+    private final Set<SocketChannel> connections = ConcurrentHashMap.newKeySet();
+    private final Thread acceptor;
+    private volatile boolean closed;
+
+    // port 0 picks a free one, see port()
+    OrderWorkerServer(LocalOrderWorker worker, int port) throws IOException {
+        this.worker = worker;
+        this.server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        this.acceptor = new Thread(this::accept, "order-worker-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+    }
+
+    int port() throws IOException {
+        return ((InetSocketAddress) server.getLocalAddress()).getPort();
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        server.close();
+        for (SocketChannel connection : connections) {
+            connection.close();
+        }
+        try {
+            acceptor.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        worker.close();
+    }
+
+    // Runs a worker on the loopback port given, or a free one, printing the port once it
+    // listens; exits when its standard input closes, e.g. with the process that started it
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 0;
+        try (OrderWorkerServer server = new OrderWorkerServer(new LocalOrderWorker(), port)) {
+            System.out.println(server.port());
+            System.out.flush();
+            while (System.in.read() >= 0) {
+                // keep serving
+            }
+        }
+    }
+
+    private void accept() {
+        int count = 0;
+        while (!closed) {
+            SocketChannel connection;
+            try {
+                connection = server.accept();
+            } catch (IOException e) {
+                // closed, or the listening socket failed
+                return;
+            }
+            connections.add(connection);
+            Thread thread = new Thread(() -> serve(connection), "order-worker-connection-" + ++count);
+            thread.setDaemon(true);
+            thread.start();
+        }
+    }
+
+    private void serve(SocketChannel connection) {
+        ByteBuffer in = ByteBuffer.allocate(1 << 12);
+        ByteBuffer out = ByteBuffer.allocate(1 << 12);
+        try {
+            connection.setOption(StandardSocketOptions.TCP_NODELAY, true);
+            while (true) {
+                in = readFrame(connection, in);
+                if (in == null) {
+                    return;
+                }
+                out.clear();
+                out.position(4);
+                out.put(OK);
+                try {
+                    out = handle(in.get(), in, out);
+                } catch (RuntimeException e) {
+                    byte[] message = String.valueOf(e).getBytes(StandardCharsets.UTF_8);
+                    out.clear();
+                    out.position(4);
+                    out = ensureRemaining(out, 1 + message.length);
+                    out.put(FAILED).put(message);
+                }
+                out.putInt(0, out.position() - 4);
+                out.flip();
+                writeFully(connection, out);
+            }
+        } catch (IOException e) {
+            // the client went away
+        } finally {
+            connections.remove(connection);
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+                // nothing left to release
+            }
+        }
+    }
+
+    // each op runs once, so out grows ahead of what a response needs rather than on overflow
+    private ByteBuffer handle(byte op, ByteBuffer in, ByteBuffer out) {
+        int partition = op == SUMMARY ? 0 : Varints.getInt(in);
+        switch (op) {
+            case ADD:
+                long orderId = Varints.getSigned(in);
+                worker.addItem(partition, orderId, OrderJournal.decodeItem(in));
+                return out;
+            case TOTAL:
+                BigDecimal total = worker.getTotal(partition, Varints.getSigned(in));
+                out = ensureRemaining(out, 64 + (total == null ? 0 : total.unscaledValue().bitLength() / 7));
+                out.put((byte) (total == null ? 0 : 1));
+                if (total != null) {
+                    Varints.putDecimal(out, total);
+                }
+                return out;
+            case SUMMARY:
+                PartitionedOrderStore.Summary summary = worker.summarize();
+                while (true) {
+                    int start = out.position();
+                    try {
+                        writeSummary(summary, out);
+                        return out;
+                    } catch (BufferOverflowException full) {
+                        out.position(start);
+                        out = ensureRemaining(out, 2 * out.capacity());
+                    }
+                }
+            case COPY:
+                ByteBuffer copy = worker.copyPartition(partition);
+                out = ensureRemaining(out, copy.remaining());
+                return out.put(copy);
+            case PUT:
+                worker.putPartition(partition, in);
+                return out;
+            case DROP:
+                worker.dropPartition(partition);
+                return out;
+            default:
+                throw new IllegalArgumentException("Unknown op " + op);
+        }
+    }
+
+    // out, or a bigger copy of it with room for that many more bytes
+    static ByteBuffer ensureRemaining(ByteBuffer out, int bytes) {
+        if (out.remaining() >= bytes) {
+            return out;
+        }
+        ByteBuffer bigger = ByteBuffer.allocate(Math.max(out.position() + bytes, 2 * out.capacity()));
+        out.flip();
+        return bigger.put(out);
+    }
+
+    // the frame's op and body, positioned at the op; null at a clean end of stream
+    static ByteBuffer readFrame(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.clear();
+        buffer.limit(4);
+        if (!readFully(channel, buffer, true)) {
+            return null;
+        }
+        int length = buffer.getInt(0);
+        if (length > buffer.capacity()) {
+            buffer = ByteBuffer.allocate(Math.max(length, 2 * buffer.capacity()));
+        }
+        buffer.clear();
+        buffer.limit(length);
+        readFully(channel, buffer, false);
+        buffer.flip();
+        return buffer;
+    }
+
+    static void writeFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    static void writeSummary(PartitionedOrderStore.Summary summary, ByteBuffer out) {
+        Varints.putUnsigned(out, summary.getOrderCount());
+        Varints.putUnsigned(out, summary.getItemCount());
+        Varints.putDecimal(out, summary.getTotal());
+        Map<String, BigDecimal> revenue = summary.getRepricedRevenueByType();
+        Varints.putUnsigned(out, revenue.size());
+        for (Map.Entry<String, BigDecimal> entry : revenue.entrySet()) {
+            byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            Varints.putUnsigned(out, name.length);
+            out.put(name);
+            Varints.putDecimal(out, entry.getValue());
+        }
+    }
+
+    static PartitionedOrderStore.Summary readSummary(ByteBuffer in) {
+        long orders = Varints.getUnsigned(in);
+        long items = Varints.getUnsigned(in);
+        BigDecimal total = Varints.getDecimal(in);
+        int types = Varints.getInt(in);
+        Map<String, BigDecimal> revenue = new LinkedHashMap<>();
+        for (int i = 0; i < types; i++) {
+            byte[] name = new byte[Varints.getInt(in)];
+            in.get(name);
+            revenue.put(new String(name, StandardCharsets.UTF_8), Varints.getDecimal(in));
+        }
+        return new PartitionedOrderStore.Summary(orders, items, total, revenue);
+    }
+
+    // false if the stream ended before the first byte and that's allowed
+    private static boolean readFully(SocketChannel channel, ByteBuffer buffer, boolean endAllowed) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                if (endAllowed && buffer.position() == 0) {
+                    return false;
+                }
+                throw new EOFException("Connection closed mid-frame");
+            }
+        }
+        return true;
+    }
+}
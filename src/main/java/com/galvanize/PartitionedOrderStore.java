@@ -0,0 +1,336 @@
+package com.galvanize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Orders spread over {@link OrderWorker}s, typically {@link RemoteOrderWorker}s each in a
+ * process of its own, so that no one heap holds them all. An order id hashes to one of a
+ * fixed number of partitions, and the partitions are spread over the workers by a
+ * {@link ConsistentHashRing}; calls for an order go to the worker owning its partition,
+ * and summaries are gathered from every worker in parallel and merged.
+ * <p>
+ * When a worker joins or leaves, only the partitions whose owner changes on the ring move,
+ * each copied whole from its old owner, put into its new one, and only then dropped from
+ * the old. Calls for a partition wait
+ * while it moves; calls for the others go on. A move that fails leaves the partition with
+ * its old owner, and the next membership change retries it, since every change moves each
+ * partition its owner doesn't match the ring for.
+ */
+final class PartitionedOrderStore implements AutoCloseable {
+
+    private final int partitions;
+    private final ConsistentHashRing ring;
+    private final Map<String, OrderWorker> workers = new HashMap<>();
+    private final String[] ownerNames;
+    private final OrderWorker[] owners;
+    private final ReentrantReadWriteLock[] partitionLocks;
+    // held to read by summaries and to write by membership changes, so a summary never
+    // sees a partition on two workers, or on none
+    private final ReentrantReadWriteLock membership = new ReentrantReadWriteLock();
+    private final ExecutorService executor = TaskExecutors.newTaskExecutor("partitioned-order-store");
+
+    PartitionedOrderStore() {
+        this(256, 64);
+    }
+
+    // more partitions move in smaller pieces; more virtual nodes share them out more evenly
+    PartitionedOrderStore(int partitions, int virtualNodes) {
+        if (partitions < 1) {
+            throw new IllegalArgumentException("partitions must be positive: " + partitions);
+        }
+        this.partitions = partitions;
+        this.ring = new ConsistentHashRing(virtualNodes);
+        this.ownerNames = new String[partitions];
+        this.owners = new OrderWorker[partitions];
+        this.partitionLocks = new ReentrantReadWriteLock[partitions];
+        for (int i = 0; i < partitions; i++) {
+            partitionLocks[i] = new ReentrantReadWriteLock();
+        }
+    }
+
+    // Returns the number of partitions moved to the worker, which the store closes once it
+    // leaves or the store closes
+    int addWorker(String name, OrderWorker worker) throws IOException {
+        membership.writeLock().lock();
+        try {
+            if (workers.containsKey(name)) {
+                throw new IllegalArgumentException("Worker already added: " + name);
+            }
+            workers.put(name, worker);
+            ring.add(name);
+            return rebalance();
+        } finally {
+            membership.writeLock().unlock();
+        }
+    }
+
+    // Returns the number of partitions moved off the worker; the last worker can't leave,
+    // as its partitions would have nowhere to go
+    int removeWorker(String name) throws IOException {
+        membership.writeLock().lock();
+        try {
+            OrderWorker worker = workers.get(name);
+            if (worker == null) {
+                throw new IllegalArgumentException("No worker " + name);
+            }
+            if (workers.size() == 1) {
+                throw new IllegalStateException("Can't remove the last worker: " + name);
+            }
+            ring.remove(name);
+            int moved;
+            try {
+                moved = rebalance();
+            } catch (IOException | RuntimeException e) {
+                // back on the ring, so what it still holds stays routed to it
+                ring.add(name);
+                throw e;
+            }
+            workers.remove(name);
+            worker.close();
+            return moved;
+        } finally {
+            membership.writeLock().unlock();
+        }
+    }
+
+    void addItem(long orderId, Item item) throws IOException {
+        int partition = partitionOf(orderId);
+        ReentrantReadWriteLock.ReadLock lock = partitionLocks[partition].readLock();
+        lock.lock();
+        try {
+            owner(partition).addItem(partition, orderId, item);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // null if there's no such order
+    BigDecimal getTotal(long orderId) throws IOException {
+        int partition = partitionOf(orderId);
+        ReentrantReadWriteLock.ReadLock lock = partitionLocks[partition].readLock();
+        lock.lock();
+        try {
+            return owner(partition).getTotal(partition, orderId);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // every worker's summary, asked for in parallel and merged
+    Summary summarize() throws IOException {
+        membership.readLock().lock();
+        try {
+            List<CompletableFuture<Summary>> summaries = new ArrayList<>(workers.size());
+            for (OrderWorker worker : workers.values()) {
+                summaries.add(CompletableFuture.supplyAsync(() -> {
+                    try {
+                        return worker.summarize();
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                }, executor));
+            }
+            Summary merged = Summary.EMPTY;
+            for (CompletableFuture<Summary> summary : summaries) {
+                try {
+                    merged = merged.plus(summary.join());
+                } catch (CompletionException e) {
+                    if (e.getCause() instanceof UncheckedIOException) {
+                        throw ((UncheckedIOException) e.getCause()).getCause();
+                    }
+                    throw e;
+                }
+            }
+            return merged;
+        } finally {
+            membership.readLock().unlock();
+        }
+    }
+
+    int partitionOf(long orderId) {
+        return (int) ((ConsistentHashRing.mix(orderId) >>> 1) % partitions);
+    }
+
+    // null before the first worker joins
+    String ownerOf(int partition) {
+        ReentrantReadWriteLock.ReadLock lock = partitionLocks[partition].readLock();
+        lock.lock();
+        try {
+            return ownerNames[partition];
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    int partitionCount() {
+        return partitions;
+    }
+
+    int workerCount() {
+        membership.readLock().lock();
+        try {
+            return workers.size();
+        } finally {
+            membership.readLock().unlock();
+        }
+    }
+
+    // closes every worker, reporting the first that fails after trying the rest
+    @Override
+    public void close() throws IOException {
+        executor.shutdown();
+        membership.writeLock().lock();
+        try {
+            IOException failure = null;
+            for (OrderWorker worker : workers.values()) {
+                try {
+                    worker.close();
+                } catch (IOException e) {
+                    if (failure == null) {
+                        failure = e;
+                    } else {
+                        failure.addSuppressed(e);
+                    }
+                }
+            }
+            workers.clear();
+            if (failure != null) {
+                throw failure;
+            }
+        } finally {
+            membership.writeLock().unlock();
+        }
+        try {
+            executor.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Called holding the membership write lock; moves each partition whose owner isn't the
+    // ring's, one at a time, and returns how many moved
+    private int rebalance() throws IOException {
+        int moved = 0;
+        for (int partition = 0; partition < partitions; partition++) {
+            String target = ring.nodeFor(partition);
+            if (target.equals(ownerNames[partition])) {
+                continue;
+            }
+            ReentrantReadWriteLock.WriteLock lock = partitionLocks[partition].writeLock();
+            lock.lock();
+            try {
+                OrderWorker from = owners[partition];
+                OrderWorker to = workers.get(target);
+                if (from != null) {
+                    move(partition, from, to);
+                    moved++;
+                }
+                ownerNames[partition] = target;
+                owners[partition] = to;
+            } finally {
+                lock.unlock();
+            }
+        }
+        return moved;
+    }
+
+    // Called holding the partition's write lock. The old owner keeps its orders until the
+    // new one has them, so a failure at any step, including a lost response, leaves them
+    // with the old owner, and at worst a copy the next move replaces
+    private static void move(int partition, OrderWorker from, OrderWorker to) throws IOException {
+        ByteBuffer orders = from.copyPartition(partition);
+        try {
+            to.putPartition(partition, orders);
+        } catch (IOException | RuntimeException e) {
+            dropQuietly(to, partition, e);
+            throw e;
+        }
+        try {
+            from.dropPartition(partition);
+        } catch (IOException | RuntimeException e) {
+            // both hold it now; keep the old owner's, so summaries don't count it twice
+            dropQuietly(to, partition, e);
+            throw e;
+        }
+    }
+
+    private static void dropQuietly(OrderWorker worker, int partition, Exception failure) {
+        try {
+            worker.dropPartition(partition);
+        } catch (IOException | RuntimeException e) {
+            failure.addSuppressed(e);
+        }
+    }
+
+    // called holding the partition's read lock
+    private OrderWorker owner(int partition) {
+        OrderWorker owner = owners[partition];
+        if (owner == null) {
+            throw new IllegalStateException("No workers to hold orders");
+        }
+        return owner;
+    }
+
+    /**
+     * Counts and sums over the orders of one worker or, merged, of several. Revenue is
+     * keyed by item type and re-priced as of the summary, as in
+     * {@link OrderAnalytics.Report}, so unlike the total it can differ from the sum of
+     * the orders' {@code getTotal()}.
+     */
+    static final class Summary {
+
+        static final Summary EMPTY = new Summary(0, 0, BigDecimal.ZERO, Collections.<String, BigDecimal>emptyMap());
+
+        private final long orderCount;
+        private final long itemCount;
+        private final BigDecimal total;
+        private final Map<String, BigDecimal> revenueByType;
+
+        Summary(long orderCount, long itemCount, BigDecimal total, Map<String, BigDecimal> revenueByType) {
+            this.orderCount = orderCount;
+            this.itemCount = itemCount;
+            this.total = total;
+            this.revenueByType = Collections.unmodifiableMap(new LinkedHashMap<>(revenueByType));
+        }
+
+        long getOrderCount() {
+            return orderCount;
+        }
+
+        long getItemCount() {
+            return itemCount;
+        }
+
+        // of the orders' totals, as getTotal prices them
+        BigDecimal getTotal() {
+            return total;
+        }
+
+        Map<String, BigDecimal> getRepricedRevenueByType() {
+            return revenueByType;
+        }
+
+        Summary plus(Summary other) {
+            Map<String, BigDecimal> revenue = new LinkedHashMap<>(revenueByType);
+            for (Map.Entry<String, BigDecimal> entry : other.revenueByType.entrySet()) {
+                revenue.merge(entry.getKey(), entry.getValue(), BigDecimal::add);
+            }
+            return new Summary(orderCount + other.orderCount, itemCount + other.itemCount,
+                    total.add(other.total), revenue);
+        }
+    }
+}
@@ -0,0 +1,85 @@
+package com.galvanize;
+
+import java.lang.ref.WeakReference;
+import java.util.Arrays;
+
+/**
+ * An {@link Order}'s registration with the items it holds, so that {@link Item#setPrice}
+ * can have the order re-price them. Each order has one, registered once per item. It
+ * refers to the order weakly, so an item that outlives its orders, like a catalog item,
+ * doesn't keep them reachable; registrations of collected orders, and of orders that no
+ * longer hold the item, are dropped when the item's price next changes. Only
+ * {@link Order} registers.
+ */
+final class PriceWatcher extends WeakReference<Order> {
+
+    PriceWatcher(Order order) {
+        super(order);
+    }
+
+    // false once the order is gone or no longer holds the item
+    boolean priceChanged(Item item) {
+        Order order = get();
+        return order != null && order.priceChanged(item);
+    }
+
+    /**
+     * The watchers of an item that is in more than one order, guarded by the item's lock.
+     * Dead registrations are pruned before the array grows, so it stays proportional to
+     * the live orders.
+     */
+    static final class Group {
+
+        private PriceWatcher[] watchers;
+        private int size;
+
+        Group(PriceWatcher first, PriceWatcher second) {
+            watchers = new PriceWatcher[]{first, second, null, null};
+            size = 2;
+        }
+
+        void add(PriceWatcher watcher) {
+            // an order adding items one by one registers with each in turn, so a repeat
+            // registration is nearly always the last one
+            if (watchers[size - 1] == watcher) {
+                return;
+            }
+            if (size == watchers.length) {
+                prune();
+                if (size > watchers.length / 2) {
+                    watchers = Arrays.copyOf(watchers, watchers.length * 2);
+                }
+            }
+            watchers[size++] = watcher;
+        }
+
+        void remove(PriceWatcher watcher) {
+            for (int i = 0; i < size; i++) {
+                if (watchers[i] == watcher) {
+                    watchers[i] = watchers[--size];
+                    watchers[size] = null;
+                    return;
+                }
+            }
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        PriceWatcher[] toArray() {
+            return Arrays.copyOf(watchers, size);
+        }
+
+        private void prune() {
+            int kept = 0;
+            for (int i = 0; i < size; i++) {
+                if (watchers[i].get() != null) {
+                    watchers[kept++] = watchers[i];
+                }
+            }
+            Arrays.fill(watchers, kept, size, null);
+            size = kept;
+        }
+    }
+}
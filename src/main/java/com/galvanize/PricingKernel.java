@@ -0,0 +1,21 @@
+package com.galvanize;
+
+import java.time.Clock;
+
+/**
+ * Prices a run of items that all have exactly the same concrete class, so the loop over
+ * them has a single receiver type and the JIT can inline the pricing into it. Kernels are
+ * found through {@link PricingKernels}: register one there, or list a public
+ * implementation with a no-argument constructor in
+ * {@code META-INF/services/com.galvanize.PricingKernel}.
+ * <p>
+ * A kernel must give the same amount as {@link Item#totalCents(Clock)} for every item.
+ */
+interface PricingKernel<T extends Item> {
+
+    Class<T> itemType();
+
+    // items[from, to) are all exactly itemType(); each amount goes to the same index of
+    // cents, as Money.INEXACT when it isn't a whole number of cents
+    void price(Item[] items, int from, int to, Clock clock, long[] cents);
+}
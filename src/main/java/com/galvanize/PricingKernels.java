@@ -0,0 +1,171 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The {@link PricingKernel} registry and the batch pricer built on it. A batch is grouped
+ * by concrete class and each group goes through its kernel in one call, instead of one
+ * {@code totalPrice()} call per item at a call site that sees every item type. Types
+ * without a kernel are priced through {@link Item#totalCents(Clock)}.
+ */
+final class PricingKernels {
+
+    private static final int MAX_TYPES = 64;
+    private static final int TABLE_SIZE = 2 * MAX_TYPES;
+
+    private static final ConcurrentHashMap<Class<?>, PricingKernel<?>> KERNELS = new ConcurrentHashMap<>();
+
+    static final PricingKernel<Item> GENERIC = new PricingKernel<Item>() {
+        @Override
+        public Class<Item> itemType() {
+            return Item.class;
+        }
+
+        @Override
+        public void price(Item[] items, int from, int to, Clock clock, long[] cents) {
+            for (int i = from; i < to; i++) {
+                cents[i] = items[i].totalCents(clock);
+            }
+        }
+    };
+
+    static {
+        register(new PricingKernel<Lease>() {
+            @Override
+            public Class<Lease> itemType() {
+                return Lease.class;
+            }
+
+            @Override
+            public void price(Item[] items, int from, int to, Clock clock, long[] cents) {
+                for (int i = from; i < to; i++) {
+                    cents[i] = ((Lease) items[i]).leaseCents();
+                }
+            }
+        });
+        register(new PricingKernel<Purchase>() {
+            @Override
+            public Class<Purchase> itemType() {
+                return Purchase.class;
+            }
+
+            @Override
+            public void price(Item[] items, int from, int to, Clock clock, long[] cents) {
+                for (int i = from; i < to; i++) {
+                    cents[i] = items[i].priceCents();
+                }
+            }
+        });
+        register(new PricingKernel<Rental>() {
+            @Override
+            public Class<Rental> itemType() {
+                return Rental.class;
+            }
+
+            // the clock is read once for the whole run
+            @Override
+            public void price(Item[] items, int from, int to, Clock clock, long[] cents) {
+                LocalDateTime now = LocalDateTime.now(clock);
+                long epochDay = now.toLocalDate().toEpochDay();
+                long nanoOfDay = now.toLocalTime().toNanoOfDay();
+                for (int i = from; i < to; i++) {
+                    Rental rental = (Rental) items[i];
+                    cents[i] = Money.times(rental.priceCents(), rental.rentalDays(epochDay, nanoOfDay));
+                }
+            }
+        });
+        for (PricingKernel<?> kernel : ServiceLoader.load(PricingKernel.class, PricingKernel.class.getClassLoader())) {
+            register(kernel);
+        }
+    }
+
+    private PricingKernels() {
+    }
+
+    // replaces any kernel already registered for the same type
+    static void register(PricingKernel<?> kernel) {
+        KERNELS.put(kernel.itemType(), kernel);
+    }
+
+    static PricingKernel<?> forType(Class<? extends Item> type) {
+        PricingKernel<?> kernel = KERNELS.get(type);
+        return kernel != null ? kernel : GENERIC;
+    }
+
+    // Prices items[0, count) against clock. cents[i] gets items[i]'s amount; when that's
+    // Money.INEXACT, inexactAmounts[i] gets its exact total, otherwise it is left as it was
+    static void price(Item[] items, int count, Clock clock, long[] cents, BigDecimal[] inexactAmounts) {
+        // Counting sort of the items by concrete class, keeping their order within a class.
+        // Classes are looked up by identity hash, which stays cheap however they're mixed
+        Class<?>[] table = new Class<?>[TABLE_SIZE];
+        byte[] tableTypes = new byte[TABLE_SIZE];
+        Class<?>[] types = new Class<?>[MAX_TYPES];
+        int[] starts = new int[MAX_TYPES + 1];
+        int typeCount = 0;
+        byte[] typeOf = new byte[count];
+        for (int i = 0; i < count; i++) {
+            Class<?> type = items[i].getClass();
+            int slot = System.identityHashCode(type) & (TABLE_SIZE - 1);
+            while (table[slot] != type) {
+                if (table[slot] == null) {
+                    if (typeCount == MAX_TYPES) {
+                        // too many distinct types to be worth grouping
+                        GENERIC.price(items, 0, count, clock, cents);
+                        fillInexact(items, count, clock, cents, inexactAmounts);
+                        return;
+                    }
+                    table[slot] = type;
+                    tableTypes[slot] = (byte) typeCount;
+                    types[typeCount++] = type;
+                    break;
+                }
+                slot = (slot + 1) & (TABLE_SIZE - 1);
+            }
+            int t = tableTypes[slot];
+            typeOf[i] = (byte) t;
+            starts[t + 1]++;
+        }
+        if (typeCount == 1) {
+            kernel(types[0]).price(items, 0, count, clock, cents);
+            fillInexact(items, count, clock, cents, inexactAmounts);
+            return;
+        }
+        for (int t = 0; t < typeCount; t++) {
+            starts[t + 1] += starts[t];
+        }
+        Item[] grouped = new Item[count];
+        int[] positions = new int[count];
+        int[] next = Arrays.copyOf(starts, typeCount);
+        for (int i = 0; i < count; i++) {
+            int at = next[typeOf[i]]++;
+            grouped[at] = items[i];
+            positions[at] = i;
+        }
+        long[] groupedCents = new long[count];
+        for (int t = 0; t < typeCount; t++) {
+            kernel(types[t]).price(grouped, starts[t], starts[t + 1], clock, groupedCents);
+        }
+        for (int at = 0; at < count; at++) {
+            cents[positions[at]] = groupedCents[at];
+        }
+        fillInexact(items, count, clock, cents, inexactAmounts);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static PricingKernel<?> kernel(Class<?> type) {
+        return forType((Class<? extends Item>) type);
+    }
+
+    private static void fillInexact(Item[] items, int count, Clock clock, long[] cents, BigDecimal[] inexactAmounts) {
+        for (int i = 0; i < count; i++) {
+            if (cents[i] == Money.INEXACT) {
+                inexactAmounts[i] = items[i].totalPrice(clock);
+            }
+        }
+    }
+}
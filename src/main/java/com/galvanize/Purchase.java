@@ -1,5 +1,6 @@
 package com.galvanize;
 
+import java.io.IOException;
 import java.math.BigDecimal;
 
 class Purchase extends Item {
@@ -10,17 +11,30 @@ class Purchase extends Item {
         return super.getPrice();
     }
 
+    public String getProductName() {
+        return productName;
+    }
+
     public Purchase(String productName, BigDecimal price) {
-        this.productName = productName;
+        this(productName, price, false);
+    }
+
+    // interned: productName is already the instance Interner.LABELS returned for it
+    Purchase(String productName, BigDecimal price, boolean interned) {
+        super(Purchase.class, PURCHASE);
+        this.productName = interned ? productName : Interner.LABELS.intern(productName);
         super.setPrice(price);
     }
 
     @Override
     public String toString() {
-        return "Purchase{" +
-                "price=" + super.getPrice() +
-                ", productName='" + productName + '\'' +
-                '}';
+        return TextAppender.toString(this::appendPurchase);
+    }
+
+    final void appendPurchase(Appendable out) throws IOException {
+        out.append("Purchase{price=");
+        TextAppender.appendDecimal(out, super.getPrice(), priceCents());
+        out.append(", productName='").append(productName).append("'}");
     }
 
     @Override
@@ -0,0 +1,222 @@
+package com.galvanize;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.net.StandardSocketOptions;
+import java.nio.BufferOverflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * An {@link OrderWorker} in another process, or another thread's {@link OrderWorkerServer},
+ * reached over TCP. Calls borrow one of a fixed number of connections, so that many calls
+ * are in flight at once; a connection that fails mid-call is dropped and reopened on its
+ * next use. Failures on the worker side come back as IOExceptions carrying its message.
+ */
+final class RemoteOrderWorker implements OrderWorker {
+
+    private final InetSocketAddress address;
+    private final int connections;
+    private final ArrayBlockingQueue<Connection> idle;
+    private volatile boolean closed;
+
+    RemoteOrderWorker(InetSocketAddress address) throws IOException {
+        this(address, 4);
+    }
+
+    RemoteOrderWorker(InetSocketAddress address, int connections) throws IOException {
+        this.address = address;
+        this.connections = connections;
+        this.idle = new ArrayBlockingQueue<>(connections);
+        for (int i = 0; i < connections; i++) {
+            idle.add(new Connection());
+        }
+        // fail now, not on the first call, if nothing listens there
+        Connection first = idle.peek();
+        first.open();
+    }
+
+    @Override
+    public void addItem(int partition, long orderId, Item item) throws IOException {
+        // encoded before borrowing a connection, so an item the format can't hold fails here
+        ByteBuffer request = ByteBuffer.allocate(64);
+        while (true) {
+            try {
+                request.clear();
+                request.put(OrderWorkerServer.ADD);
+                Varints.putUnsigned(request, partition);
+                Varints.putSigned(request, orderId);
+                OrderJournal.writeItem(item, request);
+                break;
+            } catch (BufferOverflowException full) {
+                request = ByteBuffer.allocate(request.capacity() * 2);
+            }
+        }
+        request.flip();
+        call(request);
+    }
+
+    @Override
+    public BigDecimal getTotal(int partition, long orderId) throws IOException {
+        ByteBuffer request = ByteBuffer.allocate(32);
+        request.put(OrderWorkerServer.TOTAL);
+        Varints.putUnsigned(request, partition);
+        Varints.putSigned(request, orderId);
+        request.flip();
+        Connection connection = borrow();
+        try {
+            ByteBuffer response = connection.call(request);
+            return response.get() == 0 ? null : Varints.getDecimal(response);
+        } finally {
+            release(connection);
+        }
+    }
+
+    @Override
+    public PartitionedOrderStore.Summary summarize() throws IOException {
+        ByteBuffer request = ByteBuffer.allocate(1).put(OrderWorkerServer.SUMMARY);
+        request.flip();
+        Connection connection = borrow();
+        try {
+            return OrderWorkerServer.readSummary(connection.call(request));
+        } finally {
+            release(connection);
+        }
+    }
+
+    @Override
+    public ByteBuffer copyPartition(int partition) throws IOException {
+        ByteBuffer request = ByteBuffer.allocate(8).put(OrderWorkerServer.COPY);
+        Varints.putUnsigned(request, partition);
+        request.flip();
+        Connection connection = borrow();
+        try {
+            ByteBuffer response = connection.call(request);
+            ByteBuffer taken = ByteBuffer.allocate(response.remaining());
+            taken.put(response).flip();
+            return taken;
+        } finally {
+            release(connection);
+        }
+    }
+
+    @Override
+    public void putPartition(int partition, ByteBuffer orders) throws IOException {
+        ByteBuffer request = ByteBuffer.allocate(8 + orders.remaining()).put(OrderWorkerServer.PUT);
+        Varints.putUnsigned(request, partition);
+        request.put(orders.duplicate());
+        request.flip();
+        call(request);
+    }
+
+    @Override
+    public void dropPartition(int partition) throws IOException {
+        ByteBuffer request = ByteBuffer.allocate(8).put(OrderWorkerServer.DROP);
+        Varints.putUnsigned(request, partition);
+        request.flip();
+        call(request);
+    }
+
+    // Waits for calls in flight to give back their connections, then closes them all
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        for (int i = 0; i < connections; i++) {
+            Connection connection;
+            try {
+                connection = idle.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted closing the connections");
+            }
+            connection.close();
+        }
+    }
+
+    private void call(ByteBuffer request) throws IOException {
+        Connection connection = borrow();
+        try {
+            connection.call(request);
+        } finally {
+            release(connection);
+        }
+    }
+
+    private Connection borrow() throws IOException {
+        if (closed) {
+            throw new IOException("Worker connection closed: " + address);
+        }
+        try {
+            return idle.take();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for a connection to " + address);
+        }
+    }
+
+    private void release(Connection connection) {
+        idle.add(connection);
+    }
+
+    private final class Connection {
+        private SocketChannel channel;
+        private final ByteBuffer header = ByteBuffer.allocate(4);
+        private final ByteBuffer[] frame = {header, null};
+        private ByteBuffer response = ByteBuffer.allocate(1 << 12);
+
+        void open() throws IOException {
+            if (channel == null) {
+                SocketChannel opened = SocketChannel.open(address);
+                opened.setOption(StandardSocketOptions.TCP_NODELAY, true);
+                channel = opened;
+            }
+        }
+
+        // the body of an OK response, valid until the connection's next call
+        ByteBuffer call(ByteBuffer request) throws IOException {
+            boolean completed = false;
+            try {
+                open();
+                header.clear();
+                header.putInt(request.remaining()).flip();
+                // one gathering write, so the frame leaves as one segment with Nagle off
+                frame[1] = request;
+                while (request.hasRemaining()) {
+                    channel.write(frame);
+                }
+                ByteBuffer read = OrderWorkerServer.readFrame(channel, response);
+                if (read == null) {
+                    throw new EOFException("Worker closed the connection: " + address);
+                }
+                response = read;
+                completed = true;
+            } finally {
+                if (!completed) {
+                    close();
+                }
+            }
+            if (response.get() != OrderWorkerServer.OK) {
+                byte[] message = new byte[response.remaining()];
+                response.get(message);
+                throw new IOException("Worker " + address + " failed: " + new String(message, StandardCharsets.UTF_8));
+            }
+            return response;
+        }
+
+        void close() {
+            if (channel != null) {
+                try {
+                    channel.close();
+                } catch (IOException ignored) {
+                    // nothing left to release
+                }
+                channel = null;
+            }
+        }
+    }
+}
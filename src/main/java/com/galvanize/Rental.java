@@ -1,11 +1,24 @@
 package com.galvanize;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
 import java.time.LocalDateTime;
-import java.time.temporal.ChronoUnit;
+import java.util.Objects;
 
 class Rental extends Item {
+    private static final long SECONDS_PER_DAY = 86_400;
+    private static final long NANOS_PER_SECOND = 1_000_000_000;
+    private static final long MAX_CACHED_EPOCH_DAY = 1 << 29;
+
     private LocalDateTime endDate;
+    private long endEpochDay;
+    private long endNanoOfDay;
+    // (as-of key << 32) | days for the last pricing date, see rentalDays(long, long);
+    // volatile since parallel pricing reads and writes it from many threads, and a torn
+    // long could pair one date's key with another's days
+    private volatile long cachedDays = Long.MIN_VALUE;
 
     public BigDecimal getRentalPricePerDay() {
         return super.getPrice();
@@ -14,22 +27,75 @@ class Rental extends Item {
         return endDate;
     }
     public Rental(BigDecimal rentalPricePerDay, LocalDateTime endDate) {
-        System.out.println(endDate);
+        super(Rental.class, RENTAL);
         super.setPrice(rentalPricePerDay);
         this.endDate = endDate;
+        if (endDate != null) {
+            this.endEpochDay = endDate.toLocalDate().toEpochDay();
+            this.endNanoOfDay = endDate.toLocalTime().toNanoOfDay();
+        }
     }
 
     @Override
     public String toString() {
-        return "Rental{" +
-                "rentalPricePerDay=" + super.getPrice() +
-                ", endDate=" + endDate +
-                '}';
+        return TextAppender.toString(this::appendRental);
+    }
+
+    final void appendRental(Appendable out) throws IOException {
+        out.append("Rental{rentalPricePerDay=");
+        TextAppender.appendDecimal(out, super.getPrice(), priceCents());
+        out.append(", endDate=");
+        TextAppender.appendDateTime(out, endDate);
+        out.append('}');
     }
 
     @Override
     BigDecimal totalPrice() {
-        long days = LocalDateTime.now().until(getEndDate(), ChronoUnit.DAYS) + 1;
-        return getRentalPricePerDay().multiply(BigDecimal.valueOf(days));
+        return rentalPrice(SYSTEM_CLOCK);
+    }
+
+    final BigDecimal rentalPrice(Clock clock) {
+        return getRentalPricePerDay().multiply(BigDecimal.valueOf(rentalDays(clock)));
+    }
+
+    final long rentalCents(Clock clock) {
+        return Money.times(priceCents(), rentalDays(clock));
+    }
+
+    // One clock read; the local date and time are derived the same way LocalDateTime.now(clock) does
+    final long rentalDays(Clock clock) {
+        Instant now = clock.instant();
+        long localSecond = now.getEpochSecond() + clock.getZone().getRules().getOffset(now).getTotalSeconds();
+        long epochDay = Math.floorDiv(localSecond, SECONDS_PER_DAY);
+        long nanoOfDay = Math.floorMod(localSecond, SECONDS_PER_DAY) * NANOS_PER_SECOND + now.getNano();
+        return rentalDays(epochDay, nanoOfDay);
+    }
+
+    // The day count only changes with the as-of date and which side of the end time of day
+    // it falls on, so the last result is memoized per (epoch day, side) in a single long.
+    final long rentalDays(long asOfEpochDay, long asOfNanoOfDay) {
+        Objects.requireNonNull(endDate, "endDate");
+        boolean cacheable = Math.abs(asOfEpochDay) < MAX_CACHED_EPOCH_DAY;
+        int key = (int) asOfEpochDay * 3 + Long.compare(asOfNanoOfDay, endNanoOfDay) + 1;
+        long cached = cachedDays;
+        if (cacheable && (int) (cached >>> 32) == key) {
+            return (int) cached;
+        }
+        long days = daysUntil(asOfEpochDay, asOfNanoOfDay, endEpochDay, endNanoOfDay) + 1;
+        if (cacheable && days == (int) days) {
+            cachedDays = ((long) key << 32) | (days & 0xFFFF_FFFFL);
+        }
+        return days;
+    }
+
+    // Same result as LocalDateTime.until(end, DAYS) for the two date-times given as epoch day and nano of day
+    static long daysUntil(long fromEpochDay, long fromNanoOfDay, long toEpochDay, long toNanoOfDay) {
+        long days = toEpochDay - fromEpochDay;
+        if (days > 0 && toNanoOfDay < fromNanoOfDay) {
+            days--;
+        } else if (days < 0 && toNanoOfDay > fromNanoOfDay) {
+            days++;
+        }
+        return days;
     }
 }
@@ -0,0 +1,235 @@
+package com.galvanize;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.Consumer;
+
+/**
+ * Rentals by end date, in a hierarchical timing wheel of one-second ticks: 11 levels of 64
+ * slots, level n holding the rentals due within 64^(n+1) ticks. Adding and cancelling are
+ * O(1); advancing cascades each slot down a level as its time comes, and skips empty
+ * stretches with one bitmap per level, so a jump of a day costs no more than a jump of a
+ * second.
+ * <p>
+ * A rental expires on the first tick after its end date passes, end dates being read in
+ * the zone of the clock given. Entries live in parallel arrays linked into per-slot lists,
+ * about 30 bytes a rental. Not thread-safe: one thread owns the index, like a scheduler.
+ */
+final class RentalExpiryIndex {
+
+    private static final int SLOT_BITS = 6;
+    private static final int SLOTS = 1 << SLOT_BITS;
+    private static final int LEVELS = (Long.SIZE + SLOT_BITS - 1) / SLOT_BITS;
+    // one more list for rentals that were already over when added
+    private static final int OVERDUE = LEVELS * SLOTS;
+    private static final int NONE = -1;
+    private static final long SECONDS_PER_DAY = 86_400;
+
+    private final ZoneId zone;
+    private final long originSecond;
+    private long currentTick;
+
+    private final int[] heads = new int[OVERDUE + 1];
+    private final int[] tails = new int[OVERDUE + 1];
+    private final long[] occupied = new long[LEVELS];
+
+    private Rental[] rentals;
+    private long[] deadlines;
+    private int[] next;
+    private int[] prev;
+    private int[] lists;
+    private int[] generations;
+    private int freeHead = NONE;
+    private int used;
+    private int size;
+
+    RentalExpiryIndex(Clock clock) {
+        this(clock, 1024);
+    }
+
+    RentalExpiryIndex(Clock clock, int initialCapacity) {
+        this.zone = clock.getZone();
+        this.originSecond = localSecond(clock.instant());
+        int capacity = Math.max(16, initialCapacity);
+        rentals = new Rental[capacity];
+        deadlines = new long[capacity];
+        next = new int[capacity];
+        prev = new int[capacity];
+        lists = new int[capacity];
+        generations = new int[capacity];
+        Arrays.fill(heads, NONE);
+        Arrays.fill(tails, NONE);
+    }
+
+    int size() {
+        return size;
+    }
+
+    // Returns a handle for cancel(long). A rental already over is returned by the next advance
+    long add(Rental rental) {
+        LocalDateTime endDate = Objects.requireNonNull(rental.getEndDate(), "endDate");
+        long endSecond = endDate.toLocalDate().toEpochDay() * SECONDS_PER_DAY + endDate.toLocalTime().toSecondOfDay();
+        int entry = allocate();
+        rentals[entry] = rental;
+        deadlines[entry] = Math.max(0, endSecond + 1 - originSecond);
+        schedule(entry);
+        size++;
+        return ((long) generations[entry] << 32) | entry;
+    }
+
+    // false if the rental has expired or was cancelled already
+    boolean cancel(long handle) {
+        int entry = (int) handle;
+        if (entry < 0 || entry >= used || generations[entry] != (int) (handle >>> 32) || rentals[entry] == null) {
+            return false;
+        }
+        unlink(entry);
+        release(entry);
+        return true;
+    }
+
+    List<Rental> advance(Instant now) {
+        List<Rental> expired = new ArrayList<>();
+        advance(now, expired::add);
+        return expired;
+    }
+
+    // Hands every rental whose end date is before now to expired, in end date order to the
+    // second, and returns how many. expired must not add to or cancel from this index
+    int advance(Instant now, Consumer<? super Rental> expired) {
+        long nowTick = localSecond(now) - originSecond;
+        int count = expireList(OVERDUE, expired);
+        while (true) {
+            int level = 0;
+            while (level < LEVELS && occupied[level] == 0) {
+                level++;
+            }
+            if (level == LEVELS) {
+                break;
+            }
+            int shift = level * SLOT_BITS;
+            int slot = Long.numberOfTrailingZeros(occupied[level]);
+            long above = level == LEVELS - 1 ? 0 : currentTick & -(1L << (shift + SLOT_BITS));
+            long start = above | ((long) slot << shift);
+            if (start > nowTick) {
+                break;
+            }
+            currentTick = start;
+            int list = level * SLOTS + slot;
+            if (level == 0) {
+                count += expireList(list, expired);
+                continue;
+            }
+            // cascade: everything in the slot moves down relative to the new current tick
+            int entry = heads[list];
+            heads[list] = NONE;
+            tails[list] = NONE;
+            occupied[level] &= ~(1L << slot);
+            while (entry != NONE) {
+                int following = next[entry];
+                schedule(entry);
+                entry = following;
+            }
+            count += expireList(OVERDUE, expired);
+        }
+        if (nowTick > currentTick) {
+            currentTick = nowTick;
+        }
+        return count;
+    }
+
+    private void schedule(int entry) {
+        long deadline = deadlines[entry];
+        int list;
+        if (deadline <= currentTick) {
+            list = OVERDUE;
+        } else {
+            int level = (63 - Long.numberOfLeadingZeros(deadline ^ currentTick)) / SLOT_BITS;
+            int slot = (int) (deadline >>> (level * SLOT_BITS)) & (SLOTS - 1);
+            list = level * SLOTS + slot;
+            occupied[level] |= 1L << slot;
+        }
+        lists[entry] = list;
+        next[entry] = NONE;
+        prev[entry] = tails[list];
+        if (tails[list] == NONE) {
+            heads[list] = entry;
+        } else {
+            next[tails[list]] = entry;
+        }
+        tails[list] = entry;
+    }
+
+    private void unlink(int entry) {
+        int list = lists[entry];
+        if (prev[entry] == NONE) {
+            heads[list] = next[entry];
+        } else {
+            next[prev[entry]] = next[entry];
+        }
+        if (next[entry] == NONE) {
+            tails[list] = prev[entry];
+        } else {
+            prev[next[entry]] = prev[entry];
+        }
+        if (heads[list] == NONE && list != OVERDUE) {
+            occupied[list / SLOTS] &= ~(1L << (list % SLOTS));
+        }
+    }
+
+    private int expireList(int list, Consumer<? super Rental> expired) {
+        int entry = heads[list];
+        heads[list] = NONE;
+        tails[list] = NONE;
+        if (list != OVERDUE) {
+            occupied[list / SLOTS] &= ~(1L << (list % SLOTS));
+        }
+        int count = 0;
+        while (entry != NONE) {
+            int following = next[entry];
+            Rental rental = rentals[entry];
+            release(entry);
+            expired.accept(rental);
+            count++;
+            entry = following;
+        }
+        return count;
+    }
+
+    private int allocate() {
+        if (freeHead != NONE) {
+            int entry = freeHead;
+            freeHead = next[entry];
+            return entry;
+        }
+        if (used == rentals.length) {
+            int capacity = rentals.length * 2;
+            rentals = Arrays.copyOf(rentals, capacity);
+            deadlines = Arrays.copyOf(deadlines, capacity);
+            next = Arrays.copyOf(next, capacity);
+            prev = Arrays.copyOf(prev, capacity);
+            lists = Arrays.copyOf(lists, capacity);
+            generations = Arrays.copyOf(generations, capacity);
+        }
+        return used++;
+    }
+
+    // a new generation makes handles to the old occupant stale
+    private void release(int entry) {
+        rentals[entry] = null;
+        generations[entry]++;
+        next[entry] = freeHead;
+        freeHead = entry;
+        size--;
+    }
+
+    private long localSecond(Instant instant) {
+        return instant.getEpochSecond() + zone.getRules().getOffset(instant).getTotalSeconds();
+    }
+}
@@ -0,0 +1,55 @@
+package com.galvanize;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Maps strings to dense int codes and back. {@code null} is always code {@link #NONE}.
+ */
+final class StringDictionary {
+
+    static final int NONE = -1;
+
+    private final Map<String, Integer> codes = new HashMap<>();
+    private String[] values = new String[16];
+
+    int encode(String value) {
+        if (value == null) {
+            return NONE;
+        }
+        Integer code = codes.get(value);
+        if (code != null) {
+            return code;
+        }
+        int next = codes.size();
+        if (next == values.length) {
+            values = Arrays.copyOf(values, next * 2);
+        }
+        values[next] = value;
+        codes.put(value, next);
+        return next;
+    }
+
+    String decode(int code) {
+        return code == NONE ? null : values[code];
+    }
+
+    void clear() {
+        Arrays.fill(values, 0, codes.size(), null);
+        codes.clear();
+    }
+
+    int size() {
+        return codes.size();
+    }
+
+    long footprintBytes() {
+        long bytes = 16L + 4L * values.length;
+        for (int i = 0; i < codes.size(); i++) {
+            // String header + char array, plus a HashMap node and boxed code
+            bytes += 24 + 16 + 2L * values[i].length() + 48;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,38 @@
+package com.galvanize;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for many small blocking tasks. This is the Java 8 version: the task executor
+ * is a fixed pool of platform threads, so at most that many tasks block at once. The
+ * multi-release jar replaces this class on JDK 21 and later with one whose task executor
+ * starts a virtual thread per task (src/main/java21).
+ */
+final class TaskExecutors {
+
+    // platform threads reserve their stacks up front, so the pool can't grow to thousands
+    static final int PLATFORM_THREADS = Math.max(64, 16 * Runtime.getRuntime().availableProcessors());
+
+    private TaskExecutors() {
+    }
+
+    // a method, not a constant, so callers compiled against either version ask the loaded one
+    static boolean virtualThreads() {
+        return false;
+    }
+
+    static ExecutorService newTaskExecutor(String name) {
+        return newPlatformExecutor(name, PLATFORM_THREADS);
+    }
+
+    static ExecutorService newPlatformExecutor(String name, int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,151 @@
+package com.galvanize;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+/**
+ * Writes the pieces of the {@code toString()} formats of items and orders straight into an
+ * {@link Appendable}: numbers as digits, decimals from their cents and dates field by
+ * field, each exactly as {@code toString()} of the value would, without building the
+ * {@code String}.
+ */
+final class TextAppender {
+
+    private static final long[] POWERS_OF_TEN = {
+            1L, 10L, 100L, 1_000L, 10_000L, 100_000L, 1_000_000L, 10_000_000L, 100_000_000L,
+            1_000_000_000L, 10_000_000_000L, 100_000_000_000L, 1_000_000_000_000L,
+            10_000_000_000_000L, 100_000_000_000_000L, 1_000_000_000_000_000L,
+            10_000_000_000_000_000L, 100_000_000_000_000_000L, 1_000_000_000_000_000_000L};
+
+    interface Renderer {
+        void appendTo(Appendable out) throws IOException;
+    }
+
+    private TextAppender() {
+    }
+
+    static String toString(Renderer renderer) {
+        StringBuilder text = new StringBuilder(64);
+        try {
+            renderer.appendTo(text);
+        } catch (IOException e) {
+            // StringBuilder doesn't throw
+            throw new UncheckedIOException(e);
+        }
+        return text.toString();
+    }
+
+    static void appendLong(Appendable out, long value) throws IOException {
+        if (out instanceof StringBuilder) {
+            // formats into its own array without allocating, far quicker than char by char
+            ((StringBuilder) out).append(value);
+            return;
+        }
+        if (value < 0) {
+            if (value == Long.MIN_VALUE) {
+                out.append("-9223372036854775808");
+                return;
+            }
+            out.append('-');
+            value = -value;
+        }
+        int digits = 1;
+        while (digits < POWERS_OF_TEN.length && value >= POWERS_OF_TEN[digits]) {
+            digits++;
+        }
+        for (int digit = digits - 1; digit >= 0; digit--) {
+            out.append((char) ('0' + value / POWERS_OF_TEN[digit] % 10));
+        }
+    }
+
+    // as Money.toBigDecimal(cents).toString()
+    static void appendCents(Appendable out, long cents) throws IOException {
+        appendUnscaled(out, cents, Money.SCALE);
+    }
+
+    // value.toString(); cents must be Money.toCents(value). Only decimals of up to two
+    // places that Money holds exactly take the digit-by-digit path
+    static void appendDecimal(Appendable out, BigDecimal value, long cents) throws IOException {
+        if (value == null) {
+            out.append("null");
+            return;
+        }
+        int scale = value.scale();
+        if (cents == Money.INEXACT || scale < 0 || scale > Money.SCALE) {
+            out.append(value.toString());
+            return;
+        }
+        appendUnscaled(out, cents / POWERS_OF_TEN[Money.SCALE - scale], scale);
+    }
+
+    // as LocalDateTime.toString()
+    static void appendDateTime(Appendable out, LocalDateTime dateTime) throws IOException {
+        if (dateTime == null) {
+            out.append("null");
+            return;
+        }
+        int year = dateTime.getYear();
+        if (Math.abs(year) < 1000) {
+            if (year < 0) {
+                out.append('-');
+            }
+            appendDigits(out, Math.abs(year), 4);
+        } else {
+            if (year > 9999) {
+                out.append('+');
+            }
+            appendLong(out, year);
+        }
+        out.append('-');
+        appendDigits(out, dateTime.getMonthValue(), 2);
+        out.append('-');
+        appendDigits(out, dateTime.getDayOfMonth(), 2);
+        out.append('T');
+        appendDigits(out, dateTime.getHour(), 2);
+        out.append(':');
+        appendDigits(out, dateTime.getMinute(), 2);
+        int second = dateTime.getSecond();
+        int nano = dateTime.getNano();
+        if (second > 0 || nano > 0) {
+            out.append(':');
+            appendDigits(out, second, 2);
+            if (nano > 0) {
+                out.append('.');
+                if (nano % 1_000_000 == 0) {
+                    appendDigits(out, nano / 1_000_000, 3);
+                } else if (nano % 1000 == 0) {
+                    appendDigits(out, nano / 1000, 6);
+                } else {
+                    appendDigits(out, nano, 9);
+                }
+            }
+        }
+    }
+
+    // as BigDecimal.valueOf(unscaled, scale).toString() for a scale BigDecimal prints plainly
+    private static void appendUnscaled(Appendable out, long unscaled, int scale) throws IOException {
+        if (unscaled < 0) {
+            out.append('-');
+            if (unscaled == Long.MIN_VALUE) {
+                out.append(BigDecimal.valueOf(unscaled, scale).negate().toString());
+                return;
+            }
+            unscaled = -unscaled;
+        }
+        appendLong(out, unscaled / POWERS_OF_TEN[scale]);
+        if (scale > 0) {
+            out.append('.');
+            appendDigits(out, unscaled % POWERS_OF_TEN[scale], scale);
+        }
+    }
+
+    // a non-negative value below 10^digits, zero-padded to that many digits
+    private static void appendDigits(Appendable out, long value, int digits) throws IOException {
+        for (int digit = digits - 1; digit > 0 && value < POWERS_OF_TEN[digit]; digit--) {
+            out.append('0');
+        }
+        appendLong(out, value);
+    }
+}
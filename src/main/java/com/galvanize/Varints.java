@@ -0,0 +1,95 @@
+package com.galvanize;
+
+import java.math.BigDecimal;
+import java.math.BigInteger;
+import java.nio.ByteBuffer;
+
+/**
+ * LEB128 varints, zigzag-encoded when signed, and a compact decimal built on them.
+ */
+final class Varints {
+
+    private Varints() {
+    }
+
+    static void putUnsigned(ByteBuffer out, long value) {
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    static void putSigned(ByteBuffer out, long value) {
+        putUnsigned(out, (value << 1) ^ (value >> 63));
+    }
+
+    static long getUnsigned(ByteBuffer in) {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            byte b = in.get();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) {
+                return value;
+            }
+        }
+        throw new IllegalArgumentException("Malformed varint");
+    }
+
+    static long getSigned(ByteBuffer in) {
+        long value = getUnsigned(in);
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    static int getInt(ByteBuffer in) {
+        long value = getUnsigned(in);
+        if (value < 0 || value > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("Varint out of int range: " + value);
+        }
+        return (int) value;
+    }
+
+    // zigzag(scale) * 2 + 1 if the unscaled value needs more than a long, then the value
+    static void putDecimal(ByteBuffer out, BigDecimal value) {
+        BigInteger unscaled = value.unscaledValue();
+        long scale = value.scale();
+        if (unscaled.bitLength() < 64) {
+            putUnsigned(out, ((scale << 1) ^ (scale >> 63)) << 1);
+            putSigned(out, unscaled.longValue());
+        } else {
+            byte[] bytes = unscaled.toByteArray();
+            putUnsigned(out, (((scale << 1) ^ (scale >> 63)) << 1) | 1);
+            putUnsigned(out, bytes.length);
+            out.put(bytes);
+        }
+    }
+
+    static void putDecimal(ByteBuffer out, long unscaled, int scale) {
+        putUnsigned(out, (((long) scale << 1) ^ (scale >> 31)) << 1);
+        putSigned(out, unscaled);
+    }
+
+    static BigDecimal getDecimal(ByteBuffer in) {
+        long header = getUnsigned(in);
+        if (!isLongDecimal(header)) {
+            return getBigDecimal(in, header);
+        }
+        return BigDecimal.valueOf(getSigned(in), decimalScale(header));
+    }
+
+    // the decimal header written by putDecimal: scale and whether the unscaled value follows as a varint
+    static int decimalScale(long header) {
+        long zigzagScale = header >>> 1;
+        return (int) ((zigzagScale >>> 1) ^ -(zigzagScale & 1));
+    }
+
+    static boolean isLongDecimal(long header) {
+        return (header & 1) == 0;
+    }
+
+    static BigDecimal getBigDecimal(ByteBuffer in, long header) {
+        byte[] bytes = new byte[getInt(in)];
+        in.get(bytes);
+        return new BigDecimal(new BigInteger(bytes), decimalScale(header));
+    }
+}
@@ -0,0 +1,37 @@
+package com.galvanize;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Executors for many small blocking tasks, JDK 21 version: the task executor starts a
+ * virtual thread per task, so a task blocked on I/O or a lock holds no platform thread
+ * and concurrency isn't capped by a pool size. Must keep the members of the Java 8 version
+ * in src/main/java, which it replaces in the multi-release jar.
+ */
+final class TaskExecutors {
+
+    static final int PLATFORM_THREADS = Math.max(64, 16 * Runtime.getRuntime().availableProcessors());
+
+    private TaskExecutors() {
+    }
+
+    // a method, not a constant, so callers compiled against either version ask the loaded one
+    static boolean virtualThreads() {
+        return true;
+    }
+
+    static ExecutorService newTaskExecutor(String name) {
+        return Executors.newThreadPerTaskExecutor(Thread.ofVirtual().name(name + "-", 1).factory());
+    }
+
+    static ExecutorService newPlatformExecutor(String name, int threads) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, task -> {
+            Thread thread = new Thread(task, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+}
@@ -0,0 +1,65 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class ConcurrentOrderTest {
+
+    private static final int THREADS = 8;
+    private static final int ITEMS_PER_THREAD = 20_000;
+
+    @Test
+    public void totalsAreExactUnderConcurrentAdds() throws Exception {
+        ConcurrentOrder order = new ConcurrentOrder(Clock.systemDefaultZone(), 4);
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS + 1);
+        CountDownLatch start = new CountDownLatch(1);
+        AtomicLong started = new AtomicLong();
+        AtomicLong completed = new AtomicLong();
+        List<Future<?>> writers = new ArrayList<>();
+        for (int t = 0; t < THREADS; t++) {
+            writers.add(executor.submit(() -> {
+                start.await();
+                for (int i = 0; i < ITEMS_PER_THREAD; i++) {
+                    started.incrementAndGet();
+                    order.addItem(new Purchase("Phone Case", new BigDecimal("1.00")));
+                    completed.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        Future<?> reader = executor.submit(() -> {
+            start.await();
+            while (!writers.stream().allMatch(Future::isDone)) {
+                long before = completed.get();
+                long total = order.getTotal().longValueExact();
+                long after = started.get();
+                assertTrue(before <= total && total <= after, before + " <= " + total + " <= " + after);
+            }
+            return null;
+        });
+        start.countDown();
+        for (Future<?> writer : writers) {
+            writer.get();
+        }
+        reader.get();
+        executor.shutdown();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+
+        assertEquals(THREADS * ITEMS_PER_THREAD, order.size());
+        assertEquals(THREADS * ITEMS_PER_THREAD, order.getItems().size());
+        assertEquals(new BigDecimal(THREADS * ITEMS_PER_THREAD).setScale(2), order.getTotal());
+    }
+}
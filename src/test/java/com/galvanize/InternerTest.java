@@ -0,0 +1,83 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+
+public class InternerTest {
+
+    @Test
+    public void returnsOneInstancePerValue() {
+        Interner interner = new Interner(16, 4);
+        String first = interner.intern(new String("Phone Case"));
+        String second = interner.intern(new String("Phone Case"));
+
+        assertSame(first, second);
+        assertNull(interner.intern(null));
+        assertEquals(1, interner.hits());
+        assertEquals(1, interner.misses());
+        assertEquals(1, interner.size());
+    }
+
+    @Test
+    public void evictsTheLeastRecentlyUsedValueWhenFull() {
+        Interner interner = new Interner(2, 1);
+        String a = interner.intern(new String("a"));
+        interner.intern(new String("b"));
+        interner.intern(new String("a"));
+        interner.intern(new String("c"));
+
+        assertEquals(2, interner.size());
+        assertEquals(1, interner.evictions());
+        assertSame(a, interner.intern(new String("a")));
+        interner.intern(new String("b"));
+        assertEquals(4, interner.misses());
+        assertEquals(2, interner.evictions());
+    }
+
+    @Test
+    public void itemsShareTheirLabels() {
+        Purchase first = new Purchase(new String("Lawn Mower"), new BigDecimal("199.99"));
+        Purchase second = new Purchase(new String("Lawn Mower"), new BigDecimal("189.99"));
+        Lease lease = new Lease(new String("XVB-104"), new BigDecimal("3.05"), 6);
+
+        assertSame(first.getProductName(), second.getProductName());
+        assertSame(lease.getLicensePlate(), new Lease(new String("XVB-104"), BigDecimal.ONE, 1).getLicensePlate());
+    }
+
+    @Test
+    public void internsFromManyThreads() throws Exception {
+        Interner interner = new Interner(1024, 8);
+        List<Thread> threads = new ArrayList<>();
+        String[][] seen = new String[8][100];
+        for (int t = 0; t < 8; t++) {
+            int thread = t;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < 100; i++) {
+                    seen[thread][i] = interner.intern(new String("Product " + i));
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        for (int i = 0; i < 100; i++) {
+            for (int t = 1; t < 8; t++) {
+                assertSame(seen[0][i], seen[t][i]);
+            }
+        }
+        assertEquals(100, interner.misses());
+        assertEquals(700, interner.hits());
+        assertTrue(interner.size() <= 1024);
+    }
+}
@@ -0,0 +1,91 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+public class LeaseBillingScheduleTest {
+
+    @Test
+    public void dueDatesFollowPlusMonths() {
+        LocalDate[] starts = {LocalDate.of(2030, 1, 31), LocalDate.of(2028, 2, 29), LocalDate.of(1969, 12, 30),
+                LocalDate.of(2030, 3, 15), LocalDate.of(-4, 5, 31)};
+        for (LocalDate start : starts) {
+            LeaseBillingSchedule schedule = new LeaseBillingSchedule(new Lease("PLT-1", BigDecimal.TEN, 60), start);
+            for (int month = 0; month < 60; month++) {
+                assertEquals(start.plusMonths(month), schedule.dueDate(month));
+            }
+        }
+    }
+
+    @Test
+    public void chargesTheMonthlyPriceForEveryMonth() {
+        Lease lease = new Lease("PLT-2", new BigDecimal("199.99"), 36);
+        LeaseBillingSchedule schedule = new LeaseBillingSchedule(lease, LocalDate.of(2030, 3, 1));
+
+        assertEquals(new BigDecimal("199.99"), schedule.chargeForMonth(35));
+        assertEquals(19999, schedule.chargeCentsForMonth(0));
+        assertEquals(0, lease.totalPrice().compareTo(schedule.periods()
+                .map(LeaseBillingSchedule.BillingPeriod::getCharge).reduce(BigDecimal.ZERO, BigDecimal::add)));
+        assertEquals(0, lease.totalPrice().compareTo(schedule.periods().parallel()
+                .map(LeaseBillingSchedule.BillingPeriod::getCharge).reduce(BigDecimal.ZERO, BigDecimal::add)));
+        assertThrows(IndexOutOfBoundsException.class, () -> schedule.chargeForMonth(36));
+    }
+
+    @Test
+    public void cursorCoversADateRange() {
+        LeaseBillingSchedule schedule = new LeaseBillingSchedule(new Lease("PLT-3", BigDecimal.ONE, 12),
+                LocalDate.of(2030, 1, 31));
+
+        LeaseBillingSchedule.Cursor cursor = schedule.cursor(LocalDate.of(2030, 2, 28), LocalDate.of(2030, 5, 1));
+        assertTrue(cursor.next());
+        assertEquals(1, cursor.month());
+        assertEquals(LocalDate.of(2030, 2, 28), cursor.dueDate());
+        assertTrue(cursor.next());
+        assertEquals(LocalDate.of(2030, 3, 31), cursor.dueDate());
+        assertTrue(cursor.next());
+        assertEquals(LocalDate.of(2030, 4, 30), cursor.dueDate());
+        assertFalse(cursor.next());
+        assertEquals(12, schedule.monthOnOrAfter(LocalDate.of(2031, 1, 1)));
+        assertEquals(0, schedule.monthOnOrAfter(LocalDate.of(2000, 1, 1)));
+    }
+
+    @Test
+    public void mergesManyLeasesInDueDateOrder() {
+        List<LeaseBillingSchedule> schedules = new ArrayList<>();
+        List<LeaseBillingSchedule.BillingPeriod> expected = new ArrayList<>();
+        LocalDate from = LocalDate.of(2030, 6, 1);
+        LocalDate until = LocalDate.of(2030, 7, 1);
+        for (int i = 0; i < 500; i++) {
+            LeaseBillingSchedule schedule = new LeaseBillingSchedule(
+                    new Lease("PLT-" + i, BigDecimal.valueOf(i), 1 + i % 24),
+                    LocalDate.of(2029, 1 + i % 12, 1 + i % 31 % 28));
+            schedules.add(schedule);
+            schedule.periods()
+                    .filter(period -> !period.getDueDate().isBefore(from) && period.getDueDate().isBefore(until))
+                    .forEach(expected::add);
+        }
+        expected.sort(Comparator.comparing(LeaseBillingSchedule.BillingPeriod::getDueDate));
+
+        List<LeaseBillingSchedule.BillingPeriod> merged = LeaseBillingSchedule.mergedPeriods(schedules, from, until)
+                .collect(Collectors.toList());
+
+        assertFalse(merged.isEmpty());
+        assertEquals(expected.size(), merged.size());
+        for (int i = 0; i < merged.size(); i++) {
+            assertSame(expected.get(i).getLease(), merged.get(i).getLease());
+            assertEquals(expected.get(i).getMonth(), merged.get(i).getMonth());
+        }
+    }
+}
@@ -0,0 +1,40 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+public class LogHistogramTest {
+
+    @Test
+    public void bucketsCoverEveryLongWithinOneSixteenth() {
+        long[] values = {0, 1, 31, 32, 33, 63, 64, 1000, 123_456_789, Long.MAX_VALUE / 3, Long.MAX_VALUE};
+        for (long value : values) {
+            int bucket = LogHistogram.bucket(value);
+            long highest = LogHistogram.highestValue(bucket);
+            assertTrue(highest >= value, value + " above its bucket");
+            assertTrue(highest - value <= value / 16, value + " reported as " + highest);
+            if (bucket > 0) {
+                assertTrue(LogHistogram.highestValue(bucket - 1) < value, value + " below its bucket");
+            }
+        }
+    }
+
+    @Test
+    public void reportsPercentilesCountAndMax() {
+        LogHistogram histogram = new LogHistogram();
+        for (int value = 1; value <= 1000; value++) {
+            histogram.record(value);
+        }
+        histogram.record(-5);
+
+        assertEquals(1001, histogram.count());
+        assertEquals(1000, histogram.max());
+        assertEquals(500.0, histogram.mean(), 1.0);
+        assertTrue(Math.abs(histogram.valueAt(50) - 500) <= 500 / 16);
+        assertTrue(Math.abs(histogram.valueAt(99) - 990) <= 990 / 16);
+        assertEquals(1000, histogram.valueAt(100));
+        assertEquals(0, new LogHistogram().valueAt(99));
+    }
+}
@@ -0,0 +1,30 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+
+public class MoneyTest {
+
+    @Test
+    public void convertsExactAmountsToCents() {
+        assertEquals(305L, Money.toCents(new BigDecimal("3.05")));
+        assertEquals(500L, Money.toCents(new BigDecimal("5")));
+        assertEquals(Money.INEXACT, Money.toCents(new BigDecimal("0.125")));
+        assertEquals(new BigDecimal("18.30"), Money.toBigDecimal(Money.times(305L, 6)));
+    }
+
+    @Test
+    public void fallsBackToBigDecimalForInexactAmounts() {
+        Order order = new Order();
+        order.addItem(new Purchase("Screw", new BigDecimal("0.125")));
+        order.addItem(new Lease("XVB-104", new BigDecimal("3.05"), 6));
+        assertEquals(new BigDecimal("18.425"), order.getTotal());
+
+        Order overflowing = new Order();
+        overflowing.addItem(new Lease("XVB-104", new BigDecimal("92233720368547758.07"), 2));
+        assertEquals(new BigDecimal("184467440737095516.14"), overflowing.getTotal());
+    }
+}
@@ -0,0 +1,102 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+public class OffHeapOrderTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+    private static final Clock LATER = Clock.fixed(Instant.parse("2030-03-03T12:00:00Z"), ZoneId.of("UTC"));
+
+    @Test
+    public void readsBackWhatWasAddedAcrossSlabs() {
+        LocalDateTime now = LocalDateTime.now(CLOCK);
+        Order expected = new Order(CLOCK);
+        try (OffHeapOrder order = new OffHeapOrder(CLOCK)) {
+            // more than one 2048-record slab
+            for (int i = 0; i < 5000; i++) {
+                Item item;
+                switch (i % 3) {
+                    case 0:
+                        item = new Purchase("Product " + i % 40, new BigDecimal("1.25").add(BigDecimal.valueOf(i % 50)));
+                        break;
+                    case 1:
+                        item = new Lease("PLT-" + i % 40, new BigDecimal("3.05"), 1 + i % 12);
+                        break;
+                    default:
+                        item = new Rental(new BigDecimal("12.44"), now.plusDays(1 + i % 9).plusNanos(i));
+                }
+                order.addItem(item);
+                expected.addItem(item);
+            }
+
+            assertEquals(5000, order.size());
+            assertEquals(expected.getItems().toString(), order.getItems().toString());
+            assertEquals(expected.getTotal(), order.getTotal());
+            assertEquals(expected.getTotal(), order.recomputeTotal());
+            assertEquals(3L * 2048 * OffHeapOrder.RECORD_BYTES, order.offHeapBytes());
+        }
+    }
+
+    @Test
+    public void keepsPricesWithFewerThanTwoDecimalsAsGiven() {
+        LocalDateTime endDate = LocalDateTime.now(CLOCK).plusDays(2);
+        try (OffHeapOrder order = new OffHeapOrder(CLOCK)) {
+            order.addItem(new Purchase("Pen", new BigDecimal("5")));
+            order.addItem(new Lease("XVB-104", new BigDecimal("5.5"), 3));
+            order.addItem(new Rental(new BigDecimal("5.50"), endDate));
+            order.addItem(new Purchase("Pad", new BigDecimal("5E+1")));
+
+            assertEquals(new BigDecimal("5"), ((Purchase) order.get(0)).getPrice());
+            assertEquals(new BigDecimal("5.5"), ((Lease) order.get(1)).getPricePerMonth());
+            assertEquals(new BigDecimal("5.50"), ((Rental) order.get(2)).getRentalPricePerDay());
+            assertEquals(new BigDecimal("5E+1"), ((Purchase) order.get(3)).getPrice());
+        }
+    }
+
+    @Test
+    public void recomputeTotalPricesRentalsAsOfNow() {
+        LocalDateTime now = LocalDateTime.now(CLOCK);
+        Item rental = new Rental(new BigDecimal("12.44"), now.plusDays(4));
+        try (OffHeapOrder order = new OffHeapOrder(LATER)) {
+            order.addItem(rental);
+            assertEquals(rental.totalPrice(LATER), order.recomputeTotal());
+        }
+    }
+
+    @Test
+    public void rejectsInexactPrices() {
+        try (OffHeapOrder order = new OffHeapOrder(CLOCK)) {
+            assertThrows(IllegalArgumentException.class, () -> order.addItem(new Purchase("Gum", new BigDecimal("0.125"))));
+            assertEquals(0, order.size());
+        }
+    }
+
+    @Test
+    public void cannotBeUsedOnceClosed() {
+        OffHeapOrder order = new OffHeapOrder(CLOCK);
+        order.addItem(new Purchase("Phone Case", new BigDecimal("7.88")));
+        List<Item> items = order.getItems();
+        order.close();
+        order.close();
+
+        assertThrows(IllegalStateException.class, order::size);
+        assertThrows(IllegalStateException.class, () -> order.get(0));
+        assertThrows(IllegalStateException.class, items::size);
+        assertThrows(IllegalStateException.class, () -> items.get(0));
+        assertThrows(IllegalStateException.class, order::getItems);
+        assertThrows(IllegalStateException.class, order::getTotal);
+        assertThrows(IllegalStateException.class, order::recomputeTotal);
+        assertThrows(IllegalStateException.class, order::offHeapBytes);
+        assertThrows(IllegalStateException.class, () -> order.addItem(new Purchase("Gum", new BigDecimal("0.50"))));
+    }
+}
@@ -0,0 +1,142 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
+
+public class OrderAnalyticsTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+
+    static class GiftCard extends Item {
+        GiftCard(BigDecimal value) {
+            setPrice(value);
+        }
+
+        @Override
+        BigDecimal totalPrice() {
+            return getPrice();
+        }
+    }
+
+    @Test
+    public void aggregatesMatchASequentialPass() {
+        LocalDateTime now = LocalDateTime.now(CLOCK);
+        List<Order> orders = new ArrayList<>();
+        BigDecimal leases = BigDecimal.ZERO;
+        BigDecimal purchases = BigDecimal.ZERO;
+        BigDecimal rentals = BigDecimal.ZERO;
+        BigDecimal other = BigDecimal.ZERO;
+        long leaseMonths = 0;
+        long leaseCount = 0;
+        long fiveDayRentals = 0;
+        for (int i = 0; i < 5000; i++) {
+            Order order = new Order(CLOCK);
+            BigDecimal price = BigDecimal.valueOf(100 + i % 997, 2);
+            Lease lease = new Lease("PLT-" + i % 50, price, 1 + i % 36);
+            Purchase purchase = new Purchase("Drill", price);
+            Rental rental = new Rental(price, now.plusDays(i % 10));
+            order.addItem(lease);
+            order.addItem(purchase);
+            order.addItem(rental);
+            leases = leases.add(lease.totalPrice());
+            purchases = purchases.add(purchase.totalPrice());
+            rentals = rentals.add(rental.totalPrice(CLOCK));
+            leaseMonths += lease.getNumberOfMonths();
+            leaseCount++;
+            if (rental.rentalDays(CLOCK) == 5) {
+                fiveDayRentals++;
+            }
+            if (i % 100 == 0) {
+                GiftCard card = new GiftCard(new BigDecimal("0.125"));
+                order.addItem(card);
+                other = other.add(card.totalPrice());
+            }
+            orders.add(order);
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            OrderAnalytics.Report report = new OrderAnalytics(pool, CLOCK).analyze(orders, 10);
+
+            Map<String, BigDecimal> revenue = report.getRepricedRevenueByType();
+            assertEquals(0, leases.compareTo(revenue.get("Lease")));
+            assertEquals(0, purchases.compareTo(revenue.get("Purchase")));
+            assertEquals(0, rentals.compareTo(revenue.get("Rental")));
+            assertEquals(0, other.compareTo(revenue.get("Other")));
+            assertEquals(5000, report.getOrderCount());
+            assertEquals(15050, report.getItemCount());
+            assertEquals((double) leaseMonths / leaseCount, report.getAverageLeaseMonths(), 1e-9);
+            assertEquals(10, report.getRentalDays().size());
+            assertEquals(Long.valueOf(fiveDayRentals), report.getRentalDays().get(5));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void topOrdersAreLargestFirstWithTiesInListOrder() {
+        List<Order> orders = new ArrayList<>();
+        for (int i = 0; i < 2000; i++) {
+            Order order = new Order(CLOCK);
+            order.addItem(new Purchase("Ladder", BigDecimal.valueOf(i % 1000)));
+            orders.add(order);
+        }
+        Order inexact = new Order(CLOCK);
+        inexact.addItem(new Purchase("Kayak", new BigDecimal("999.005")));
+        orders.add(inexact);
+
+        ForkJoinPool pool = new ForkJoinPool(3);
+        try {
+            List<Order> top = new OrderAnalytics(pool, CLOCK).analyze(orders, 5).getTopOrders();
+
+            assertEquals(5, top.size());
+            assertSame(inexact, top.get(0));
+            assertSame(orders.get(999), top.get(1));
+            assertSame(orders.get(1999), top.get(2));
+            assertSame(orders.get(998), top.get(3));
+            assertSame(orders.get(1998), top.get(4));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void revenueIsRepricedAsOfTheAnalysis() {
+        Order order = new Order(CLOCK);
+        order.addItem(new Rental(new BigDecimal("12.44"), LocalDateTime.now(CLOCK).plusDays(4)));
+        Clock later = Clock.offset(CLOCK, Duration.ofDays(2));
+
+        OrderAnalytics.Report report = new OrderAnalytics(ForkJoinPool.commonPool(), later)
+                .analyze(Collections.singletonList(order), 1);
+
+        assertEquals(new BigDecimal("62.20"), order.getTotal());
+        assertEquals(0, new BigDecimal("37.32").compareTo(report.getRepricedRevenueByType().get("Rental")));
+    }
+
+    @Test
+    public void emptyInputGivesZeroes() {
+        OrderAnalytics.Report report = new OrderAnalytics(ForkJoinPool.commonPool(), CLOCK)
+                .analyze(new ArrayList<>(), 3);
+
+        assertEquals(0, report.getOrderCount());
+        assertEquals(0.0, report.getAverageLeaseMonths());
+        assertTrue(report.getTopOrders().isEmpty());
+        assertTrue(report.getRentalDays().isEmpty());
+        assertEquals(0, BigDecimal.ZERO.compareTo(report.getRepricedRevenueByType().get("Lease")));
+    }
+}
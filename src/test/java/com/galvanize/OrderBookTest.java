@@ -0,0 +1,69 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+
+public class OrderBookTest {
+
+    @Test
+    public void totalsMatchOrders() {
+        Order first = new Order();
+        first.addItem(new Lease("XVB-104", new BigDecimal("3.05"), 6));
+        first.addItem(new Purchase("Phone Case", new BigDecimal("7.88")));
+        Order second = new Order();
+        second.addItem(new Rental(new BigDecimal("12.44"), LocalDateTime.now().plusDays(5)));
+        second.addItem(new Purchase("Phone Case", new BigDecimal("1.00")));
+
+        OrderBook book = new OrderBook();
+        book.addAll(1, first);
+        book.addAll(2, second);
+
+        assertEquals(4, book.size());
+        assertEquals(first.getTotal(), book.getTotal(1));
+        assertEquals(second.getTotal(), book.getTotal(2));
+        assertEquals(first.getTotal().add(second.getTotal()), book.getTotal());
+    }
+
+    @Test
+    public void exportsOrders() {
+        LocalDateTime endDate = LocalDateTime.of(2030, 1, 2, 3, 4, 5, 6);
+        OrderBook book = new OrderBook();
+        book.add(7, new Lease("XVB-104", new BigDecimal("3.05"), 6));
+        book.add(7, new Rental(new BigDecimal("12.44"), endDate));
+
+        Order order = book.toOrder(7);
+        assertEquals(2, order.getItems().size());
+        assertEquals("Lease{pricePerMonth=3.05, numberOfMonths=6, licensePlate='XVB-104'}", order.getItems().get(0).toString());
+        assertEquals(endDate, ((Rental) order.getItems().get(1)).getEndDate());
+        assertEquals(book.getTotal(7), order.getTotal());
+    }
+
+    @Test
+    public void keepsPricesAsWritten() {
+        OrderBook book = new OrderBook(16);
+        book.add(1, new Purchase("Phone Case", new BigDecimal("7.88")));
+        book.add(1, new Purchase("Drill", new BigDecimal("5")));
+        book.add(1, new Lease("XVB-104", new BigDecimal("3.0"), 6));
+        // past the initial capacity, so the kept prices grow with the other columns
+        for (int i = 0; i < 20; i++) {
+            book.add(2, new Rental(new BigDecimal("12.4"), LocalDateTime.of(2030, 1, 2, 3, 4)));
+        }
+
+        assertEquals("7.88", book.get(0).getPrice().toString());
+        assertEquals("5", book.get(1).getPrice().toString());
+        assertEquals("3.0", book.get(2).getPrice().toString());
+        assertEquals("12.4", book.get(22).getPrice().toString());
+        assertEquals(new BigDecimal("30.88"), book.toOrder(1).getTotal());
+    }
+
+    @Test
+    public void rejectsFractionalCents() {
+        OrderBook book = new OrderBook();
+        assertThrows(IllegalArgumentException.class, () -> book.add(1, new Purchase("Screw", new BigDecimal("0.125"))));
+    }
+}
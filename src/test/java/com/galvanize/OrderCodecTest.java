@@ -0,0 +1,102 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+
+public class OrderCodecTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+
+    @Test
+    public void roundTripsItemsAndTotal() {
+        Order order = order();
+        ByteBuffer buffer = ByteBuffer.allocate(1024);
+        new OrderEncoder().encode(order, buffer);
+        buffer.flip();
+
+        OrderView view = OrderView.read(buffer);
+        assertFalse(buffer.hasRemaining());
+        assertEquals(order.getItems().size(), view.size());
+        assertEquals(order.getTotal(), view.getTotal());
+
+        Order decoded = view.toOrder(CLOCK);
+        assertEquals(order.getTotal(), decoded.getTotal());
+        for (int i = 0; i < order.getItems().size(); i++) {
+            assertEquals(order.getItems().get(i).toString(), decoded.getItems().get(i).toString());
+        }
+    }
+
+    @Test
+    public void readsFieldsWithoutMaterializingItems() {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(1024);
+        new OrderEncoder().encode(order(), buffer);
+        buffer.flip();
+
+        OrderView.Cursor cursor = OrderView.read(buffer).cursor();
+        assertTrue(cursor.next());
+        assertEquals(Item.LEASE, cursor.kind());
+        assertEquals(305L, cursor.priceCents());
+        assertEquals(6, cursor.numberOfMonths());
+        assertEquals("XVB-104", cursor.label());
+        assertTrue(cursor.next());
+        assertEquals("Phone Case", cursor.label());
+        assertTrue(cursor.next());
+        assertEquals(LocalDateTime.of(2030, 3, 5, 7, 30, 0, 123), cursor.endDate());
+        assertTrue(cursor.next());
+        assertEquals(Money.INEXACT, cursor.priceCents());
+        assertEquals(new BigDecimal("0.125"), cursor.price());
+        assertTrue(cursor.next());
+        assertEquals(null, cursor.label());
+        assertTrue(cursor.next());
+        assertEquals(500L, cursor.priceCents());
+        assertFalse(cursor.next());
+    }
+
+    @Test
+    public void writesConsecutiveOrdersToAChannel() throws Exception {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        OrderEncoder encoder = new OrderEncoder();
+        Order first = order();
+        Order second = new Order(CLOCK);
+        second.addItem(new Purchase("Lawn Mower", new BigDecimal("30.00")));
+        encoder.encode(first, Channels.newChannel(bytes));
+        encoder.encode(second, Channels.newChannel(bytes));
+
+        ByteBuffer in = ByteBuffer.wrap(bytes.toByteArray());
+        assertEquals(first.getTotal(), OrderView.read(in).getTotal());
+        assertEquals("Purchase{price=30.00, productName='Lawn Mower'}", OrderView.read(in).toOrder(CLOCK).getItems().get(0).toString());
+        assertFalse(in.hasRemaining());
+    }
+
+    @Test
+    public void rejectsUnknownInput() {
+        assertThrows(IllegalArgumentException.class, () -> OrderView.read(ByteBuffer.wrap(new byte[]{1, 2, 3, 4, 5, 6, 7, 8})));
+        ByteBuffer tooSmall = ByteBuffer.allocate(16);
+        assertThrows(java.nio.BufferOverflowException.class, () -> new OrderEncoder().encode(order(), tooSmall));
+        assertEquals(0, tooSmall.position());
+    }
+
+    private static Order order() {
+        Order order = new Order(CLOCK);
+        order.addItem(new Lease("XVB-104", new BigDecimal("3.05"), 6));
+        order.addItem(new Purchase("Phone Case", new BigDecimal("7.88")));
+        order.addItem(new Rental(new BigDecimal("12.44"), LocalDateTime.of(2030, 3, 5, 7, 30, 0, 123)));
+        order.addItem(new Purchase("Screw", new BigDecimal("0.125")));
+        order.addItem(new Purchase(null, new BigDecimal("123456789012345678901234567890.5")));
+        order.addItem(new Lease("XVB-104", new BigDecimal("5"), 12));
+        return order;
+    }
+}
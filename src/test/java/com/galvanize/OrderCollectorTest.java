@@ -0,0 +1,196 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collector;
+
+public class OrderCollectorTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+
+    @Test
+    public void parallelAndSequentialTotalsAreIdentical() {
+        List<Item> items = items(100_000);
+
+        Order sequential = items.stream().collect(Order.toOrder(CLOCK));
+        Order parallel = items.parallelStream().collect(Order.toOrder(CLOCK));
+        Order oneByOne = new Order(CLOCK);
+        for (Item item : items) {
+            oneByOne.addItem(item);
+        }
+
+        assertEquals(oneByOne.getTotal(), sequential.getTotal());
+        assertEquals(oneByOne.getTotal(), parallel.getTotal());
+        assertEquals(oneByOne.getItems(), parallel.getItems());
+    }
+
+    @Test
+    public void addAllAppendsInOrder() {
+        List<Item> items = items(20_000);
+        Order order = new Order(CLOCK);
+        order.addItem(new Purchase("Phone Case", new BigDecimal("7.88")));
+        order.addAll(items.subList(0, 100));
+        order.addAll(items.subList(100, items.size()));
+        order.addAll(items.stream().limit(10));
+
+        Order expected = new Order(CLOCK);
+        expected.addItem(new Purchase("Phone Case", new BigDecimal("7.88")));
+        items.forEach(expected::addItem);
+        items.stream().limit(10).forEach(expected::addItem);
+
+        assertEquals(expected.getItems().size(), order.getItems().size());
+        assertEquals(items.get(100), order.getItems().get(101));
+        assertEquals(expected.getTotal(), order.getTotal());
+    }
+
+    @Test
+    public void pricesAsOfTheFirstItemNotTheCollectorsCreation() {
+        SettableClock clock = new SettableClock(Instant.parse("2030-03-01T12:00:00Z"));
+        List<Item> items = items(1000);
+        Collector<Item, ?, Order> collector = Order.toOrder(clock);
+
+        clock.set(Instant.parse("2030-03-04T12:00:00Z"));
+        Order later = items.parallelStream().collect(collector);
+        Order expected = new Order(Clock.fixed(clock.instant(), clock.getZone()));
+        items.forEach(expected::addItem);
+        assertEquals(expected.getTotal(), later.getTotal());
+
+        // reused: read again for the next stream
+        clock.set(Instant.parse("2030-03-06T12:00:00Z"));
+        Order reused = items.stream().collect(collector);
+        Order expectedAgain = new Order(Clock.fixed(clock.instant(), clock.getZone()));
+        items.forEach(expectedAgain::addItem);
+        assertEquals(expectedAgain.getTotal(), reused.getTotal());
+        assertNotEquals(later.getTotal(), reused.getTotal());
+    }
+
+    @Test
+    public void batchAndParallelAddAllPriceIdentically() {
+        // 8192 items go through the parallel stream, half as many through PricingKernels
+        List<Item> items = items(8192);
+        items.set(5, new Purchase("Yacht", new BigDecimal("92233720368547758.07")));
+        items.set(6, new Lease("XVB-104", new BigDecimal("0.333"), 7));
+        Order parallel = new Order(CLOCK);
+        parallel.addAll(items);
+        Order batched = new Order(CLOCK);
+        batched.addAll(items.subList(0, 4096));
+        batched.addAll(items.subList(4096, items.size()));
+
+        assertEquals(batched.getTotal(), parallel.getTotal());
+        for (int slot = 0; slot < items.size(); slot++) {
+            assertEquals(batched.slots().centsAt(slot), parallel.slots().centsAt(slot));
+            assertEquals(batched.slots().inexactAmountAt(slot), parallel.slots().inexactAmountAt(slot));
+        }
+    }
+
+    @Test
+    public void ordersMergeEachOtherConcurrentlyButNotThemselves() {
+        Order first = new Order(CLOCK);
+        Order second = new Order(CLOCK);
+        assertThrows(IllegalArgumentException.class, () -> first.merge(first));
+        assertTimeoutPreemptively(Duration.ofSeconds(30), () -> {
+            Thread other = new Thread(() -> {
+                for (int i = 0; i < 100_000; i++) {
+                    second.merge(first);
+                }
+            });
+            other.start();
+            for (int i = 0; i < 100_000; i++) {
+                first.merge(second);
+            }
+            other.join();
+        });
+    }
+
+    @Test
+    public void priceChangesWhileCollectingReachTheCollectedOrder() {
+        Purchase drill = new Purchase("Drill", new BigDecimal("50.00"));
+        Order collected = drillThenPriceChange(drill).stream().collect(Order.toOrder(CLOCK));
+        Purchase otherDrill = new Purchase("Drill", new BigDecimal("50.00"));
+        Order added = new Order(CLOCK);
+        added.addAll(drillThenPriceChange(otherDrill).stream());
+
+        Order expected = new Order(CLOCK);
+        drillThenPriceChange(new Purchase("Drill", new BigDecimal("45.00"))).forEach(expected::addItem);
+        assertEquals(4500, collected.slots().centsAt(0));
+        assertEquals(4500, added.slots().centsAt(0));
+        assertEquals(expected.getTotal(), collected.getTotal());
+        assertEquals(expected.getTotal(), added.getTotal());
+    }
+
+    // the drill, then an item that sets its price to 45.00 when it is priced, then others
+    private static List<Item> drillThenPriceChange(Purchase drill) {
+        List<Item> items = new ArrayList<>(items(1000));
+        items.add(0, drill);
+        items.add(1, new Item() {
+            @Override
+            BigDecimal totalPrice() {
+                drill.setPrice(new BigDecimal("45.00"));
+                return new BigDecimal("1.00");
+            }
+        });
+        return items;
+    }
+
+    private static List<Item> items(int count) {
+        List<Item> items = new ArrayList<>(count);
+        LocalDateTime endDate = LocalDateTime.of(2030, 3, 8, 0, 0);
+        for (int i = 0; i < count; i++) {
+            BigDecimal price = BigDecimal.valueOf(i % 997 + 1, 2);
+            switch (i % 4) {
+                case 0:
+                    items.add(new Lease("XVB-" + i % 100, price, i % 24));
+                    break;
+                case 1:
+                    items.add(new Purchase("Phone Case", price));
+                    break;
+                case 2:
+                    items.add(new Rental(price, endDate.plusHours(i % 500)));
+                    break;
+                default:
+                    items.add(new Purchase("Screw", BigDecimal.valueOf(i % 997 + 1, 3)));
+            }
+        }
+        return items;
+    }
+
+    private static final class SettableClock extends Clock {
+        private volatile Instant instant;
+
+        SettableClock(Instant instant) {
+            this.instant = instant;
+        }
+
+        void set(Instant instant) {
+            this.instant = instant;
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneId.of("UTC");
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public Instant instant() {
+            return instant;
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.InputStream;
+import java.math.BigDecimal;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.GZIPInputStream;
+
+public class OrderExporterTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+
+    private static final String[] LABELS = {
+            "XVB-104", "Phone Case, \"Blue\"", "\"Quoted\"", " padded ", "Caf\u00e9 \u2615 \ud834\udd1e", "back\\slash", ""};
+
+    @Test
+    public void exportsWhatTheIngesterReadsBack() throws Exception {
+        Map<Long, Order> orders = newOrders(200);
+        for (OrderFileFormat format : OrderFileFormat.values()) {
+            byte[] exported = export(orders, new OrderExporter(format, false, 3, 7, 64));
+            Map<Long, Order> ingested = ingest(exported, format);
+
+            assertEquals(orders.size(), ingested.size());
+            for (Map.Entry<Long, Order> entry : orders.entrySet()) {
+                Order copy = ingested.get(entry.getKey());
+                assertEquals(render(entry.getValue().snapshot().getItems()), render(copy.snapshot().getItems()));
+                assertEquals(entry.getValue().getTotal(), copy.getTotal());
+            }
+        }
+        String csv = new String(export(orders, new OrderExporter(OrderFileFormat.CSV, false)), StandardCharsets.UTF_8);
+        assertEquals(true, csv.startsWith("type,orderId,price,term,label\nlease,0,3.05,1,XVB-104\n"));
+        assertEquals(true, csv.contains("\nlease,1,3.05,1,\"Phone Case, \"\"Blue\"\"\"\npurchase,1,7.88,,\"\"\"Quoted\"\"\"\n"));
+    }
+
+    @Test
+    public void gzipIsThePlainExportCompressed() throws Exception {
+        Map<Long, Order> orders = newOrders(1000);
+        for (OrderFileFormat format : OrderFileFormat.values()) {
+            byte[] plain = export(orders, new OrderExporter(format, false, 1, 1000, 1 << 16));
+
+            assertArrayEquals(plain, export(orders, new OrderExporter(format, false, 4, 13, 100)));
+            assertArrayEquals(plain, gunzip(export(orders, new OrderExporter(format, true, 4, 13, 100))));
+            assertArrayEquals(plain, gunzip(export(orders, new OrderExporter(format, true, 2, 5000, 1 << 16))));
+        }
+    }
+
+    @Test
+    public void rejectsItemsTheFormatCantHold() throws Exception {
+        Map<Long, Order> orders = newOrders(10);
+        orders.get(3L).addItem(new OrderAnalyticsTest.GiftCard(new BigDecimal("25.00")));
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> export(orders, new OrderExporter(OrderFileFormat.JSON_LINES, false, 2, 4, 64)));
+        assertEquals("Unsupported item type: " + OrderAnalyticsTest.GiftCard.class.getName(), error.getMessage());
+
+        Map<Long, Order> multiline = newOrders(1);
+        multiline.get(0L).addItem(new Purchase("two\nlines", new BigDecimal("1.00")));
+        assertThrows(IllegalArgumentException.class,
+                () -> export(multiline, new OrderExporter(OrderFileFormat.CSV, false)));
+        export(multiline, new OrderExporter(OrderFileFormat.JSON_LINES, false));
+    }
+
+    private static Map<Long, Order> newOrders(int count) {
+        Map<Long, Order> orders = new LinkedHashMap<>();
+        for (long id = 0; id < count; id++) {
+            Order order = new Order(CLOCK);
+            for (int line = 0; line <= id % 5; line++) {
+                String label = LABELS[(int) ((id + line) % LABELS.length)];
+                switch (line % 3) {
+                    case 0:
+                        order.addItem(new Lease(label, new BigDecimal("3.05"), line + 1));
+                        break;
+                    case 1:
+                        order.addItem(new Purchase(label, id % 2 == 0 ? new BigDecimal("0.125") : new BigDecimal("7.88")));
+                        break;
+                    default:
+                        order.addItem(new Rental(new BigDecimal("1E+1"), LocalDateTime.of(2030, 3, 5, 7, 30, (int) id % 60)));
+                }
+            }
+            orders.put(id, order);
+        }
+        return orders;
+    }
+
+    private static byte[] export(Map<Long, Order> orders, OrderExporter exporter) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OrderExporter.Stats stats = exporter.export(orders, Channels.newChannel(out));
+        assertEquals(orders.size(), stats.getOrders());
+        assertEquals(out.size(), stats.getBytes());
+        return out.toByteArray();
+    }
+
+    private static Map<Long, Order> ingest(byte[] content, OrderFileFormat format) throws Exception {
+        Path file = Files.createTempFile("orders", ".txt");
+        file.toFile().deleteOnExit();
+        Files.write(file, content);
+        Map<Long, Order> orders = new HashMap<>();
+        new OrderIngester(id -> orders.computeIfAbsent(id, key -> new Order(CLOCK))).ingest(file, format);
+        return orders;
+    }
+
+    private static byte[] gunzip(byte[] compressed) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            byte[] buffer = new byte[8192];
+            for (int read; (read = in.read(buffer)) != -1; ) {
+                out.write(buffer, 0, read);
+            }
+        }
+        return out.toByteArray();
+    }
+
+    private static String render(List<Item> items) {
+        return items.toString();
+    }
+}
@@ -0,0 +1,104 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.HashMap;
+import java.util.Map;
+
+public class OrderIngesterTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+
+    @Test
+    public void ingestsCsv() throws Exception {
+        Map<Long, Order> orders = ingest(OrderFileFormat.CSV,
+                "type,orderId,price,term,label\n"
+                        + "lease,1,3.05,6,XVB-104\n"
+                        + "purchase,1,7.88,,\"Phone Case, \"\"Blue\"\"\"\r\n"
+                        + "\n"
+                        + "rental,2,12.44,2030-03-05T07:30:00.5,\n"
+                        + "purchase,2,0.125,,Screw");
+
+        assertEquals(2, orders.size());
+        assertEquals("Lease{pricePerMonth=3.05, numberOfMonths=6, licensePlate='XVB-104'}", orders.get(1L).getItems().get(0).toString());
+        assertEquals("Purchase{price=7.88, productName='Phone Case, \"Blue\"'}", orders.get(1L).getItems().get(1).toString());
+        assertEquals("Rental{rentalPricePerDay=12.44, endDate=2030-03-05T07:30:00.500}", orders.get(2L).getItems().get(0).toString());
+        assertEquals(new BigDecimal("26.18"), orders.get(1L).getTotal());
+        assertEquals(new BigDecimal("49.885"), orders.get(2L).getTotal());
+    }
+
+    @Test
+    public void ingestsJsonLines() throws Exception {
+        Map<Long, Order> orders = ingest(OrderFileFormat.JSON_LINES,
+                "{\"order\":1,\"type\":\"lease\",\"pricePerMonth\":3.05,\"numberOfMonths\":6,\"licensePlate\":\"XVB-104\"}\n"
+                        + "{ \"type\": \"purchase\", \"order\": 1, \"price\": \"7.88\", \"productName\": \"Phone \\\"Case\\\"\" }\n"
+                        + "{\"order\":2,\"type\":\"rental\",\"rentalPricePerDay\":12.44,\"endDate\":\"2030-03-05T07:30\",\"note\":null}\n");
+
+        assertEquals("Purchase{price=7.88, productName='Phone \"Case\"'}", orders.get(1L).getItems().get(1).toString());
+        assertEquals(new BigDecimal("26.18"), orders.get(1L).getTotal());
+        assertEquals(new BigDecimal("49.76"), orders.get(2L).getTotal());
+    }
+
+    @Test
+    public void carriesLinesAcrossReadsInSmallBatches() throws Exception {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < 10_000; i++) {
+            csv.append("purchase,").append(i % 7).append(",1.00,,Product ").append(i % 13).append('\n');
+        }
+        Path file = write(csv.toString());
+        Map<Long, Order> orders = new HashMap<>();
+        OrderIngester.Stats stats = new OrderIngester(id -> orders.computeIfAbsent(id, key -> new Order(CLOCK)), 64, 10, 2)
+                .ingest(file, OrderFileFormat.CSV);
+
+        assertEquals(10_000, stats.getItems());
+        assertEquals(Files.size(file), stats.getBytes());
+        BigDecimal total = BigDecimal.ZERO;
+        for (Order order : orders.values()) {
+            total = total.add(order.getTotal());
+        }
+        assertEquals(new BigDecimal("10000.00"), total);
+    }
+
+    @Test
+    public void reportsTheBadLine() throws Exception {
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> ingest(OrderFileFormat.CSV, "lease,1,3.05,6,XVB-104\nboat,1,1.00,,\n"));
+        assertEquals("line 2: unknown item type boat", error.getMessage());
+
+        error = assertThrows(IllegalArgumentException.class,
+                () -> ingest(OrderFileFormat.CSV, "lease,1,3.05,4294967302,XVB-104\n"));
+        assertEquals("line 1: number of months out of range 4294967302", error.getMessage());
+
+        for (String escape : new String[]{"\\uZZZZ", "\\u+041", "\\u00"}) {
+            error = assertThrows(IllegalArgumentException.class, () -> ingest(OrderFileFormat.JSON_LINES,
+                    "{\"order\":1,\"type\":\"purchase\",\"price\":1.00,\"productName\":\"Bad " + escape + "\"}\n"));
+            assertEquals("line 1: invalid escape", error.getMessage());
+        }
+        Map<Long, Order> orders = ingest(OrderFileFormat.JSON_LINES,
+                "{\"order\":1,\"type\":\"purchase\",\"price\":1.00,\"productName\":\"Caf\\u00e9\"}\n");
+        assertEquals("Purchase{price=1.00, productName='Caf\u00e9'}", orders.get(1L).getItems().get(0).toString());
+    }
+
+    private static Map<Long, Order> ingest(OrderFileFormat format, String content) throws Exception {
+        Map<Long, Order> orders = new HashMap<>();
+        new OrderIngester(id -> orders.computeIfAbsent(id, key -> new Order(CLOCK))).ingest(write(content), format);
+        return orders;
+    }
+
+    private static Path write(String content) throws Exception {
+        Path file = Files.createTempFile("orders", ".txt");
+        file.toFile().deleteOnExit();
+        Files.write(file, content.getBytes(StandardCharsets.UTF_8));
+        return file;
+    }
+}
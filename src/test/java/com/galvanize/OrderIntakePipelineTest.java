@@ -0,0 +1,123 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+public class OrderIntakePipelineTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+
+    @Test
+    public void addsEveryLineFromManyProducers() throws Exception {
+        for (OrderIntakePipeline.WaitStrategy strategy : new OrderIntakePipeline.WaitStrategy[]{
+                OrderIntakePipeline.WaitStrategy.YIELDING, OrderIntakePipeline.WaitStrategy.SLEEPING,
+                OrderIntakePipeline.WaitStrategy.BLOCKING}) {
+            Map<Long, Order> orders = new ConcurrentHashMap<>();
+            OrderIntakePipeline pipeline = new OrderIntakePipeline(id -> orders.computeIfAbsent(id, key -> new Order(CLOCK)),
+                    OrderFileFormat.CSV, CLOCK, 1024, 2, 2, strategy);
+            List<Thread> producers = new ArrayList<>();
+            for (int p = 0; p < 4; p++) {
+                int producer = p;
+                producers.add(new Thread(() -> {
+                    for (int i = 0; i < 20_000; i++) {
+                        byte[] line = ("purchase," + i % 100 + ",1.25,,Product " + producer + "\n").getBytes(StandardCharsets.UTF_8);
+                        pipeline.publishLine(line, 0, line.length - 1);
+                    }
+                }));
+            }
+            for (Thread producer : producers) {
+                producer.start();
+            }
+            for (Thread producer : producers) {
+                producer.join();
+            }
+            pipeline.close();
+
+            assertEquals(80_000, pipeline.added());
+            assertEquals(0, pipeline.failed());
+            assertEquals(100, orders.size());
+            for (Order order : orders.values()) {
+                assertEquals(800, order.getItems().size());
+                assertEquals(new BigDecimal("1000.00"), order.getTotal());
+            }
+        }
+    }
+
+    @Test
+    public void skipsWhatItCantAdd() {
+        Order order = new Order(CLOCK);
+        OrderIntakePipeline pipeline = new OrderIntakePipeline(id -> id == 1 ? order : null, OrderFileFormat.CSV,
+                CLOCK, 8, 1, 1, OrderIntakePipeline.WaitStrategy.SLEEPING);
+        publish(pipeline, "type,orderId,price,term,label");
+        publish(pipeline, "boat,1,1.00,,");
+        publish(pipeline, "");
+        publish(pipeline, "lease,1,3.05,6,XVB-104");
+        publish(pipeline, "purchase,2,7.88,,Phone Case");
+        pipeline.publish(1, new Rental(new BigDecimal("12.44"), LocalDateTime.of(2030, 3, 5, 7, 30)));
+        pipeline.publish(1, new Purchase("Screw", new BigDecimal("0.125")));
+        pipeline.flush();
+
+        assertEquals(3, pipeline.added());
+        assertEquals(2, pipeline.failed());
+        assertEquals("line 2: unknown item type boat", pipeline.firstFailure().getMessage());
+        assertEquals(new BigDecimal("68.185"), order.getTotal());
+        assertEquals(3, order.getItems().size());
+
+        byte[] line = "purchase,1,1.00,,Pen".getBytes(StandardCharsets.UTF_8);
+        assertThrows(IndexOutOfBoundsException.class, () -> pipeline.publishLine(line, 4, line.length + 1));
+        assertThrows(IndexOutOfBoundsException.class, () -> pipeline.publishLine(line, 4, 2));
+        pipeline.publishLine(line, 0, line.length);
+        pipeline.flush();
+        assertEquals(4, pipeline.added());
+
+        pipeline.close();
+        assertThrows(IllegalStateException.class, () -> publish(pipeline, "lease,1,3.05,6,XVB-104"));
+    }
+
+    @Test
+    public void closeReleasesProducersWaitingForAFullRing() throws Exception {
+        OrderIntakePipeline pipeline = new OrderIntakePipeline(id -> new Order(CLOCK), OrderFileFormat.CSV,
+                CLOCK, 8, 1, 1, OrderIntakePipeline.WaitStrategy.SLEEPING);
+        List<Thread> producers = new ArrayList<>();
+        for (int p = 0; p < 4; p++) {
+            producers.add(new Thread(() -> {
+                try {
+                    while (true) {
+                        pipeline.publish(1, new Purchase("Phone Case", new BigDecimal("7.88")));
+                    }
+                } catch (IllegalStateException closed) {
+                    // expected once the pipeline closes
+                }
+            }));
+        }
+        for (Thread producer : producers) {
+            producer.start();
+        }
+        Thread.sleep(100);
+        pipeline.close();
+
+        for (Thread producer : producers) {
+            producer.join(10_000);
+            assertFalse(producer.isAlive());
+        }
+    }
+
+    private static void publish(OrderIntakePipeline pipeline, String line) {
+        byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+        pipeline.publishLine(bytes, 0, bytes.length);
+    }
+}
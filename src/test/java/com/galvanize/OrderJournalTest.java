@@ -0,0 +1,247 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.lang.management.BufferPoolMXBean;
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class OrderJournalTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+    private static final int SEGMENT_BYTES = 1 << 16;
+
+    @Test
+    public void replaysOrdersAfterReopening() throws Exception {
+        Path directory = directory();
+        Order first = new Order(CLOCK);
+        Order second = new Order(CLOCK);
+        try (OrderJournal journal = OrderJournal.open(directory, OrderJournal.Durability.SYNC, SEGMENT_BYTES)) {
+            journal.addItem(1, first, new Lease("XVB-104", new BigDecimal("3.05"), 6));
+            journal.addItem(2, second, new Rental(new BigDecimal("12.44"), LocalDateTime.of(2030, 3, 5, 7, 30, 0, 500)));
+            journal.addItem(1, first, new Purchase("Phone Case", new BigDecimal("7.88")));
+            journal.addItem(2, second, new Purchase(null, new BigDecimal("0.125")));
+        }
+
+        try (OrderJournal journal = OrderJournal.open(directory, OrderJournal.Durability.SYNC, SEGMENT_BYTES)) {
+            assertEquals(0, journal.truncatedBytes());
+            Map<Long, Order> orders = journal.replay(CLOCK);
+            assertEquals(2, orders.size());
+            assertEquals(first.getTotal(), orders.get(1L).getTotal());
+            assertEquals(second.getTotal(), orders.get(2L).getTotal());
+            assertEquals(first.getItems().toString(), orders.get(1L).getItems().toString());
+            assertEquals(second.getItems().toString(), orders.get(2L).getItems().toString());
+        }
+    }
+
+    @Test
+    public void truncatesATornTail() throws Exception {
+        Path directory = directory();
+        try (OrderJournal journal = OrderJournal.open(directory, OrderJournal.Durability.NONE, SEGMENT_BYTES)) {
+            for (int i = 0; i < 3; i++) {
+                journal.append(7, new Purchase("Product " + i, new BigDecimal("1.00")));
+            }
+        }
+        // corrupt a byte in the last record's payload, as if the crash came mid-write
+        Path segment = Files.list(directory).findFirst().get();
+        int lastRecordEnd = recordEnds(segment).get(2);
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            file.seek(lastRecordEnd - 1);
+            int last = file.read();
+            file.seek(lastRecordEnd - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        try (OrderJournal journal = OrderJournal.open(directory, OrderJournal.Durability.NONE, SEGMENT_BYTES)) {
+            assertTrue(journal.truncatedBytes() > 0);
+            assertEquals(new BigDecimal("2.00"), journal.replay(CLOCK).get(7L).getTotal());
+            journal.append(7, new Purchase("Product 3", new BigDecimal("5.00")));
+        }
+        try (OrderJournal journal = OrderJournal.open(directory, OrderJournal.Durability.NONE, SEGMENT_BYTES)) {
+            assertEquals(0, journal.truncatedBytes());
+            assertEquals(new BigDecimal("7.00"), journal.replay(CLOCK).get(7L).getTotal());
+        }
+    }
+
+    @Test
+    public void rollsOverToNewSegmentsUnderConcurrentGroupCommits() throws Exception {
+        Path directory = directory();
+        int threads = 4;
+        int perThread = 500;
+        long mappedBefore = mappedBuffers();
+        try (OrderJournal journal = OrderJournal.open(directory, OrderJournal.Durability.GROUP, 4096)) {
+            List<Thread> appenders = new ArrayList<>();
+            List<Throwable> failures = new ArrayList<>();
+            for (int t = 0; t < threads; t++) {
+                long orderId = t;
+                Thread appender = new Thread(() -> {
+                    try {
+                        for (int i = 0; i < perThread; i++) {
+                            journal.append(orderId, new Purchase("Product", new BigDecimal("0.01")));
+                        }
+                    } catch (Throwable e) {
+                        synchronized (failures) {
+                            failures.add(e);
+                        }
+                    }
+                });
+                appenders.add(appender);
+                appender.start();
+            }
+            for (Thread appender : appenders) {
+                appender.join();
+            }
+            assertTrue(failures.isEmpty(), failures.toString());
+            assertTrue(journal.segmentCount() > 1);
+            // only the current segment stays mapped
+            assertTrue(mappedBuffers() <= mappedBefore + 1);
+        }
+
+        try (OrderJournal journal = OrderJournal.open(directory, OrderJournal.Durability.GROUP, 4096)) {
+            Map<Long, Order> orders = journal.replay(CLOCK);
+            assertEquals(threads, orders.size());
+            for (Order order : orders.values()) {
+                assertEquals(perThread, order.getItems().size());
+                assertEquals(new BigDecimal("5.00"), order.getTotal());
+            }
+        }
+    }
+
+    @Test
+    public void refusesToOpenPastADamagedOlderSegment() throws Exception {
+        Path directory = directory();
+        try (OrderJournal journal = OrderJournal.open(directory, OrderJournal.Durability.NONE, 4096)) {
+            for (int i = 0; i < 400; i++) {
+                journal.append(7, new Purchase("Product " + i, new BigDecimal("1.00")));
+            }
+            assertEquals(3, journal.segmentCount());
+        }
+        List<Path> segments = segments(directory);
+        try (RandomAccessFile file = new RandomAccessFile(segments.get(1).toFile(), "rw")) {
+            file.write('X');
+        }
+
+        IOException error = assertThrows(IOException.class,
+                () -> OrderJournal.open(directory, OrderJournal.Durability.NONE, 4096));
+        assertEquals("Journal segment has a bad header, 1 more after it: " + segments.get(1), error.getMessage());
+        assertEquals(segments, segments(directory));
+
+        // the newest segment's header is only missing if the crash came as it was created
+        try (RandomAccessFile file = new RandomAccessFile(segments.get(1).toFile(), "rw")) {
+            file.write(OrderJournal.MAGIC_0);
+        }
+        try (RandomAccessFile file = new RandomAccessFile(segments.get(2).toFile(), "rw")) {
+            file.write('X');
+        }
+        int kept = recordEnds(segments.get(0)).size() + recordEnds(segments.get(1)).size();
+        try (OrderJournal journal = OrderJournal.open(directory, OrderJournal.Durability.NONE, 4096)) {
+            assertEquals(4096, journal.truncatedBytes());
+            assertEquals(kept, journal.replay(CLOCK).get(7L).getItems().size());
+        }
+    }
+
+    @Test
+    public void closingDuringGroupCommitsFailsOnlyAppendsItDidNotTake() throws Exception {
+        Path directory = directory();
+        List<Order> orders = new ArrayList<>();
+        List<Thread> appenders = new ArrayList<>();
+        List<Throwable> failures = new ArrayList<>();
+        OrderJournal journal = OrderJournal.open(directory, OrderJournal.Durability.GROUP, SEGMENT_BYTES);
+        for (int t = 0; t < 4; t++) {
+            long orderId = t;
+            Order order = new Order(CLOCK);
+            orders.add(order);
+            Thread appender = new Thread(() -> {
+                try {
+                    while (true) {
+                        journal.addItem(orderId, order, new Purchase("Product", new BigDecimal("0.01")));
+                    }
+                } catch (IOException closed) {
+                    // expected once the journal is closed
+                } catch (Throwable e) {
+                    synchronized (failures) {
+                        failures.add(e);
+                    }
+                }
+            });
+            appenders.add(appender);
+            appender.start();
+        }
+        Thread.sleep(50);
+        journal.close();
+        for (Thread appender : appenders) {
+            appender.join();
+        }
+        assertTrue(failures.isEmpty(), failures.toString());
+
+        try (OrderJournal reopened = OrderJournal.open(directory, OrderJournal.Durability.NONE, SEGMENT_BYTES)) {
+            Map<Long, Order> replayed = reopened.replay(CLOCK);
+            for (long id = 0; id < orders.size(); id++) {
+                int added = orders.get((int) id).getItems().size();
+                assertEquals(added, replayed.containsKey(id) ? replayed.get(id).getItems().size() : 0);
+            }
+        }
+    }
+
+    @Test
+    public void rejectsItemsItCannotReplay() throws Exception {
+        Order order = new Order(CLOCK);
+        try (OrderJournal journal = OrderJournal.open(directory(), OrderJournal.Durability.NONE, SEGMENT_BYTES)) {
+            assertThrows(IllegalArgumentException.class, () -> journal.addItem(1, order, new Rental(BigDecimal.ONE, null)));
+        }
+        assertEquals(0, order.getItems().size());
+    }
+
+    // end offsets of the records in a segment file
+    private static List<Integer> recordEnds(Path segment) throws IOException {
+        byte[] bytes = Files.readAllBytes(segment);
+        List<Integer> ends = new ArrayList<>();
+        int at = OrderJournal.SEGMENT_HEADER_BYTES;
+        while (true) {
+            int length = (bytes[at] & 0xFF) << 24 | (bytes[at + 1] & 0xFF) << 16 | (bytes[at + 2] & 0xFF) << 8 | (bytes[at + 3] & 0xFF);
+            if (length == 0) {
+                return ends;
+            }
+            at += OrderJournal.RECORD_HEADER_BYTES + length;
+            ends.add(at);
+        }
+    }
+
+    private static List<Path> segments(Path directory) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.sorted().collect(Collectors.toList());
+        }
+    }
+
+    private static long mappedBuffers() {
+        for (BufferPoolMXBean pool : ManagementFactory.getPlatformMXBeans(BufferPoolMXBean.class)) {
+            if (pool.getName().equals("mapped")) {
+                return pool.getCount();
+            }
+        }
+        throw new IllegalStateException("No mapped buffer pool");
+    }
+
+    private static Path directory() throws IOException {
+        Path directory = Files.createTempDirectory("journal");
+        directory.toFile().deleteOnExit();
+        return directory;
+    }
+}
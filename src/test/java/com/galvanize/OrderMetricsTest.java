@@ -0,0 +1,79 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Map;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.openmbean.TabularData;
+
+public class OrderMetricsTest {
+
+    static class GiftCard extends Item {
+        GiftCard(BigDecimal value) {
+            setPrice(value);
+        }
+
+        @Override
+        BigDecimal totalPrice() {
+            return getPrice();
+        }
+    }
+
+    @Test
+    public void countsItemsByTypeAndTimesAddItem() throws Exception {
+        OrderMetrics metrics = OrderMetrics.enable();
+        try {
+            Order order = new Order();
+            order.addItem(new Lease("XVB-104", new BigDecimal("3.05"), 6));
+            order.addItem(new Purchase("Phone Case", new BigDecimal("7.88")));
+            order.addItem(new GiftCard(BigDecimal.TEN));
+            order.addAll(Arrays.asList(new Rental(BigDecimal.ONE, LocalDateTime.now().plusDays(1)),
+                    new Purchase("Drill", BigDecimal.ONE)));
+            order.getTotal();
+
+            Map<String, Long> byType = metrics.getItemsAddedByType();
+            assertEquals(Long.valueOf(1), byType.get("Lease"));
+            assertEquals(Long.valueOf(2), byType.get("Purchase"));
+            assertEquals(Long.valueOf(1), byType.get("Rental"));
+            assertEquals(Long.valueOf(1), byType.get("GiftCard"));
+            assertEquals(5, metrics.getItemsAdded());
+            assertEquals(3, metrics.getAddItemCount());
+            assertTrue(metrics.getAddItemMaxNanos() >= metrics.getAddItemP50Nanos());
+            assertEquals(5, metrics.pricingNanos.count());
+            // 1, 2 and 3 items, then 5 after addAll; reading the total records nothing
+            assertEquals(4, metrics.getOrderSizeCount());
+            assertEquals(5, metrics.getOrderSizeMax());
+            order.removeItem(0);
+            order.getItems();
+            assertEquals(5, metrics.getOrderSizeCount());
+
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            ObjectName name = new ObjectName(OrderMetrics.OBJECT_NAME);
+            assertEquals(5L, server.getAttribute(name, "ItemsAdded"));
+            assertEquals(4, ((TabularData) server.getAttribute(name, "ItemsAddedByType")).size());
+        } finally {
+            OrderMetrics.disable();
+        }
+    }
+
+    @Test
+    public void recordsNothingWhileDisabled() throws Exception {
+        OrderMetrics.disable();
+        new Order().addItem(new Purchase("Phone Case", new BigDecimal("7.88")));
+
+        assertNull(OrderMetrics.active());
+        assertFalse(ManagementFactory.getPlatformMBeanServer().isRegistered(new ObjectName(OrderMetrics.OBJECT_NAME)));
+        assertEquals(0, OrderMetrics.enable().getItemsAdded());
+        OrderMetrics.disable();
+    }
+}
@@ -0,0 +1,124 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+public class OrderProcessorTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+
+    @Test
+    public void addsFromManyTasksWithoutLosingItems() {
+        Map<Long, Order> orders = new ConcurrentHashMap<>();
+        List<CompletableFuture<BigDecimal>> added = new ArrayList<>();
+        try (OrderProcessor processor = new OrderProcessor(id -> {
+            // a lookup that blocks, as a remote one would
+            sleep(1);
+            return orders.computeIfAbsent(id, key -> new Order(CLOCK));
+        })) {
+            for (int i = 0; i < 2000; i++) {
+                added.add(processor.add(i % 10, new Purchase("Product " + i, new BigDecimal("1.25"))));
+            }
+            CompletableFuture.allOf(added.toArray(new CompletableFuture<?>[0])).join();
+
+            assertEquals(new BigDecimal("250.00"), processor.price(3).join());
+            assertEquals(2001, processor.completed());
+            assertTrue(processor.latencyNanosAt(99) >= processor.latencyNanosAt(50));
+        }
+        for (Order order : orders.values()) {
+            assertEquals(200, order.getItems().size());
+            assertEquals(new BigDecimal("250.00"), order.getTotal());
+        }
+    }
+
+    @Test
+    public void journalsAddsOnTheGivenExecutor() throws Exception {
+        Path directory = Files.createTempDirectory("journal");
+        directory.toFile().deleteOnExit();
+        Map<Long, Order> orders = new ConcurrentHashMap<>();
+        ExecutorService executor = TaskExecutors.newPlatformExecutor("test-processor", 4);
+        try (OrderJournal journal = OrderJournal.open(directory, OrderJournal.Durability.GROUP, 1 << 16)) {
+            try (OrderProcessor processor = new OrderProcessor(id -> orders.computeIfAbsent(id, key -> new Order(CLOCK)),
+                    journal, executor)) {
+                List<CompletableFuture<BigDecimal>> added = new ArrayList<>();
+                for (int i = 0; i < 300; i++) {
+                    added.add(processor.add(i % 3, new Lease("PLT-" + i, new BigDecimal("3.05"), 1 + i % 4)));
+                }
+                CompletableFuture.allOf(added.toArray(new CompletableFuture<?>[0])).join();
+                assertFalse(processor.virtualThreads());
+            }
+            assertFalse(executor.isShutdown());
+
+            Map<Long, Order> replayed = journal.replay(CLOCK);
+            for (long id = 0; id < 3; id++) {
+                assertEquals(orders.get(id).getItems().toString(), replayed.get(id).getItems().toString());
+                assertEquals(orders.get(id).getTotal(), replayed.get(id).getTotal());
+            }
+        } finally {
+            executor.shutdown();
+            executor.awaitTermination(10, TimeUnit.SECONDS);
+        }
+    }
+
+    @Test
+    public void failsTheRequestNotTheProcessor() {
+        OrderProcessor processor = new OrderProcessor(id -> id == 1 ? new Order(CLOCK) : null);
+        CompletionException error = assertThrows(CompletionException.class,
+                () -> processor.add(2, new Purchase("Phone Case", new BigDecimal("7.88"))).join());
+        assertEquals("No order 2", error.getCause().getMessage());
+        assertEquals(new BigDecimal("7.88"), processor.add(1, new Purchase("Phone Case", new BigDecimal("7.88"))).join());
+
+        processor.close();
+        assertThrows(RejectedExecutionException.class, () -> processor.price(1));
+    }
+
+    @Test
+    public void runsTasksOnVirtualThreadsWhereTheyExist() throws Exception {
+        List<Thread> ranOn = new ArrayList<>();
+        try (OrderProcessor processor = new OrderProcessor(id -> {
+            synchronized (ranOn) {
+                ranOn.add(Thread.currentThread());
+            }
+            return new Order(CLOCK);
+        })) {
+            processor.add(1, new Purchase("Phone Case", new BigDecimal("7.88"))).join();
+            assertEquals(TaskExecutors.virtualThreads(), processor.virtualThreads());
+        }
+        // Thread.isVirtual() only exists from JDK 21; the tests run on 8 too
+        boolean virtual = false;
+        try {
+            virtual = (Boolean) Thread.class.getMethod("isVirtual").invoke(ranOn.get(0));
+        } catch (NoSuchMethodException beforeJdk21) {
+            // no virtual threads
+        }
+        assertEquals(TaskExecutors.virtualThreads(), virtual);
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
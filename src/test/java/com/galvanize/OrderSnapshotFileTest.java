@@ -0,0 +1,103 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.math.BigDecimal;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public class OrderSnapshotFileTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+    private static final Clock LATER = Clock.fixed(Instant.parse("2030-03-03T12:00:00Z"), ZoneId.of("UTC"));
+
+    @Test
+    public void loadsOrdersWithoutRepricingThem() throws Exception {
+        Map<Long, Order> orders = orders();
+        Path file = file();
+        long written = OrderSnapshotFile.write(file, orders);
+        assertEquals(Files.size(file), written);
+
+        Map<Long, Order> loaded = OrderSnapshotFile.load(file, LATER);
+        assertEquals(new ArrayList<>(orders.keySet()), new ArrayList<>(loaded.keySet()));
+        for (Map.Entry<Long, Order> entry : orders.entrySet()) {
+            Order order = loaded.get(entry.getKey());
+            assertEquals(entry.getValue().getItems().toString(), order.getItems().toString());
+            assertEquals(0, entry.getValue().getTotal().compareTo(order.getTotal()));
+            assertEquals(LATER, order.getClock());
+        }
+        // the rental still counts the days it was priced at until it is repriced
+        Order rentals = loaded.get(2L);
+        assertEquals(new BigDecimal("49.885"), rentals.getTotal());
+        rentals.reprice();
+        assertEquals(new BigDecimal("25.005"), rentals.getTotal());
+    }
+
+    @Test
+    public void rejectsADamagedFile() throws Exception {
+        Path file = file();
+        OrderSnapshotFile.write(file, orders());
+        try (RandomAccessFile damaged = new RandomAccessFile(file.toFile(), "rw")) {
+            damaged.seek(damaged.length() - 1);
+            int last = damaged.read();
+            damaged.seek(damaged.length() - 1);
+            damaged.write(last ^ 1);
+        }
+        IOException error = assertThrows(IOException.class, () -> OrderSnapshotFile.load(file, CLOCK));
+        assertEquals("Order snapshot checksum mismatch: " + file, error.getMessage());
+    }
+
+    @Test
+    public void writesOrdersLargerThanItsBuffer() throws Exception {
+        Order big = new Order(CLOCK);
+        for (int i = 0; i < 200_000; i++) {
+            big.addItem(new Purchase("Product " + i, new BigDecimal("0.01")));
+        }
+        Map<Long, Order> orders = new LinkedHashMap<>();
+        orders.put(10L, big);
+        orders.putAll(orders());
+        Path file = file();
+        OrderSnapshotFile.write(file, orders);
+
+        Map<Long, Order> loaded = OrderSnapshotFile.load(file, CLOCK);
+        assertEquals(200_000, loaded.get(10L).getItems().size());
+        assertEquals(new BigDecimal("2000.00"), loaded.get(10L).getTotal());
+        assertEquals(orders.size(), loaded.size());
+    }
+
+    private static Map<Long, Order> orders() {
+        Map<Long, Order> orders = new LinkedHashMap<>();
+        Order first = new Order(CLOCK);
+        first.addItem(new Lease("XVB-104", new BigDecimal("3.05"), 6));
+        Purchase removed = new Purchase("Removed", new BigDecimal("100.00"));
+        first.addItem(removed);
+        first.addItem(new Purchase("Phone Case", new BigDecimal("7.88")));
+        first.removeItem(removed);
+        orders.put(1L, first);
+
+        Order second = new Order(CLOCK);
+        second.addItem(new Rental(new BigDecimal("12.44"), LocalDateTime.of(2030, 3, 5, 7, 30, 0, 500)));
+        second.addItem(new Purchase(null, new BigDecimal("0.125")));
+        orders.put(2L, second);
+        orders.put(-3L, new Order(CLOCK));
+        return orders;
+    }
+
+    private static Path file() throws IOException {
+        Path file = Files.createTempFile("orders", ".snapshot");
+        file.toFile().deleteOnExit();
+        return file;
+    }
+}
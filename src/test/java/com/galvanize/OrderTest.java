@@ -0,0 +1,258 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+public class OrderTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+
+    @Test
+    public void removesAndReplacesItems() {
+        Lease lease = new Lease("XVB-104", new BigDecimal("3.05"), 6);
+        Purchase purchase = new Purchase("Phone Case", new BigDecimal("7.88"));
+        Rental rental = new Rental(new BigDecimal("12.44"), LocalDateTime.of(2030, 3, 5, 0, 0));
+        Order order = new Order(CLOCK);
+        order.addItem(lease);
+        order.addItem(purchase);
+        order.addItem(rental);
+        assertEquals(new BigDecimal("75.94"), order.getTotal());
+
+        assertSame(purchase, order.removeItem(1));
+        assertEquals(new BigDecimal("68.06"), order.getTotal());
+        assertSame(rental, order.getItems().get(1));
+
+        assertTrue(order.replaceItem(lease, purchase));
+        assertEquals(new BigDecimal("57.64"), order.getTotal());
+        assertFalse(order.removeItem(lease));
+        assertSame(rental, order.replaceItem(1, lease));
+        assertEquals(new BigDecimal("26.18"), order.getTotal());
+        assertEquals(2, order.getItems().size());
+    }
+
+    @Test
+    public void matchesAListUnderRandomEdits() {
+        Random random = new Random(7);
+        List<Item> expected = new ArrayList<>();
+        Order order = new Order(CLOCK);
+        for (int step = 0; step < 20_000; step++) {
+            int action = random.nextInt(10);
+            if (action < 5 || expected.isEmpty()) {
+                Item item = item(random);
+                expected.add(item);
+                order.addItem(item);
+            } else if (action < 7) {
+                int index = random.nextInt(expected.size());
+                assertSame(expected.remove(index), order.removeItem(index));
+            } else if (action < 8) {
+                Item item = expected.get(random.nextInt(expected.size()));
+                expected.remove(item);
+                assertTrue(order.removeItem(item));
+            } else {
+                int index = random.nextInt(expected.size());
+                Item item = item(random);
+                assertSame(expected.set(index, item), order.replaceItem(index, item));
+            }
+            if (step % 500 == 0) {
+                assertEquals(expected, order.getItems());
+                assertEquals(0, totalOf(expected).compareTo(order.getTotal()));
+            }
+        }
+        assertEquals(expected, new ArrayList<>(order.getItems()));
+        assertEquals(0, totalOf(expected).compareTo(order.getTotal()));
+    }
+
+    @Test
+    public void snapshotsDoNotChangeAfterLaterWrites() {
+        Random random = new Random(11);
+        Order order = new Order(CLOCK);
+        List<OrderSnapshot> snapshots = new ArrayList<>();
+        List<List<Item>> expectedItems = new ArrayList<>();
+        List<BigDecimal> expectedTotals = new ArrayList<>();
+        for (int step = 0; step < 100_000; step++) {
+            if (step % 3 == 2) {
+                order.removeItem(random.nextInt(order.snapshot().size()));
+            } else {
+                order.addItem(item(random));
+            }
+            if (step % 9_973 == 0) {
+                OrderSnapshot snapshot = order.snapshot();
+                snapshots.add(snapshot);
+                expectedItems.add(new ArrayList<>(snapshot.getItems()));
+                expectedTotals.add(snapshot.getTotal());
+            }
+        }
+        for (int i = 0; i < snapshots.size(); i++) {
+            assertEquals(expectedItems.get(i), snapshots.get(i).getItems());
+            assertEquals(expectedTotals.get(i), snapshots.get(i).getTotal());
+            assertEquals(0, totalOf(expectedItems.get(i)).compareTo(expectedTotals.get(i)));
+        }
+    }
+
+    @Test
+    public void snapshotsIndexPastRemovedItemsWithoutRebuilding() {
+        Random random = new Random(13);
+        List<Item> expected = new ArrayList<>();
+        Order order = new Order(CLOCK);
+        for (int i = 0; i < 70_000; i++) {
+            Item item = item(random);
+            expected.add(item);
+            order.addItem(item);
+            if (i == 10) {
+                // the rank index starts out covering 65,536 slots and grows from there
+                assertSame(expected.remove(0), order.removeItem(0));
+            }
+        }
+        OrderSnapshot first = order.snapshot();
+        List<Item> firstItems = new ArrayList<>(expected);
+        for (int i = 0; i < 5_000; i++) {
+            int index = random.nextInt(expected.size());
+            assertSame(expected.remove(index), order.removeItem(index));
+            index = random.nextInt(expected.size());
+            assertSame(expected.get(index), order.snapshot().getItems().get(index));
+            order.addItem(expected.get(index));
+            expected.add(expected.get(index));
+        }
+        assertEquals(expected, order.snapshot().getItems());
+        assertEquals(firstItems, first.getItems());
+    }
+
+    private static Item item(Random random) {
+        BigDecimal price = BigDecimal.valueOf(random.nextInt(10_000), 2);
+        switch (random.nextInt(4)) {
+            case 0:
+                return new Lease("XVB-104", price, random.nextInt(24));
+            case 1:
+                return new Purchase("Phone Case", price);
+            case 2:
+                return new Purchase("Screw", BigDecimal.valueOf(random.nextInt(10_000), 3));
+            default:
+                return new Rental(price, LocalDateTime.of(2030, 3, 1, 0, 0).plusHours(random.nextInt(1000)));
+        }
+    }
+
+    @Test
+    public void priceChangesAdjustTheOrdersHoldingTheItem() {
+        Purchase drill = new Purchase("Drill", new BigDecimal("50.00"));
+        Lease lease = new Lease("XVB-104", new BigDecimal("100.00"), 12);
+        Order first = new Order(CLOCK);
+        first.addItem(drill);
+        first.addItem(lease);
+        first.addItem(drill);
+        Order second = new Order(CLOCK);
+        second.addItem(new Purchase("Ladder", new BigDecimal("20.00")));
+        second.addItem(drill);
+        OrderSnapshot before = first.snapshot();
+
+        drill.setPrice(new BigDecimal("45.00"));
+        lease.setPrice(new BigDecimal("99.999"));
+
+        assertEquals(0, new BigDecimal("1289.988").compareTo(first.getTotal()));
+        assertEquals(0, new BigDecimal("65.00").compareTo(second.getTotal()));
+        assertEquals(0, totalOf(first.snapshot().getItems()).compareTo(first.getTotal()));
+        assertEquals(0, new BigDecimal("1300.00").compareTo(before.getTotal()));
+    }
+
+    @Test
+    public void removedItemsNoLongerMoveTheTotal() {
+        Purchase drill = new Purchase("Drill", new BigDecimal("50.00"));
+        Order order = new Order(CLOCK);
+        order.addItem(drill);
+        order.addItem(new Purchase("Ladder", new BigDecimal("20.00")));
+        order.removeItem(drill);
+
+        drill.setPrice(new BigDecimal("45.00"));
+        drill.setPrice(new BigDecimal("40.00"));
+
+        assertEquals(0, new BigDecimal("20.00").compareTo(order.getTotal()));
+    }
+
+    @Test
+    public void priceChangesFollowTheItemThroughLaterEdits() {
+        Random random = new Random(17);
+        Purchase drill = new Purchase("Drill", new BigDecimal("50.00"));
+        List<Item> expected = new ArrayList<>();
+        Order order = new Order(CLOCK);
+        for (int step = 0; step < 5_000; step++) {
+            int action = random.nextInt(10);
+            if (action < 4 || expected.isEmpty()) {
+                Item item = action == 0 ? drill : item(random);
+                expected.add(item);
+                order.addItem(item);
+            } else if (action < 6) {
+                int index = random.nextInt(expected.size());
+                assertSame(expected.remove(index), order.removeItem(index));
+            } else if (action < 8) {
+                int index = random.nextInt(expected.size());
+                Item item = random.nextBoolean() ? drill : item(random);
+                assertSame(expected.set(index, item), order.replaceItem(index, item));
+            } else {
+                drill.setPrice(BigDecimal.valueOf(random.nextInt(10_000), 2));
+            }
+            if (step % 250 == 0) {
+                assertEquals(0, totalOf(expected).compareTo(order.getTotal()));
+            }
+        }
+        assertEquals(0, totalOf(expected).compareTo(order.getTotal()));
+    }
+
+    @Test
+    public void itemsPricedElsewhereAreRepricedIfThePriceChangedBeforeTheyWereAppended() {
+        Purchase drill = new Purchase("Drill", new BigDecimal("50.00"));
+        Purchase ladder = new Purchase("Ladder", new BigDecimal("20.00"));
+        BigDecimal drillPricedAt = drill.currentPrice();
+        long drillCents = drill.totalCents(CLOCK);
+        drill.setPrice(new BigDecimal("45.00"));
+
+        Order order = new Order(CLOCK);
+        order.appendPriced(drill, drillPricedAt, drillCents, null);
+        order.appendPriced(ladder, ladder.currentPrice(), ladder.totalCents(CLOCK), null);
+        order.publishAppended();
+
+        assertEquals(0, new BigDecimal("65.00").compareTo(order.getTotal()));
+    }
+
+    @Test
+    public void priceChangesFromAnotherThreadWaitForTheWriter() throws InterruptedException {
+        Purchase drill = new Purchase("Drill", new BigDecimal("50.00"));
+        Order order = new Order(CLOCK);
+        order.addItem(drill);
+        Thread writer = new Thread(() -> {
+            for (int i = 0; i < 20_000; i++) {
+                order.addItem(i % 10 == 0 ? drill : new Purchase("Ladder", new BigDecimal("20.00")));
+                if (i % 100 == 0) {
+                    order.removeItem(0);
+                }
+            }
+        });
+        writer.start();
+        for (int i = 0; i < 2000; i++) {
+            drill.setPrice(new BigDecimal(40 + i % 20 + ".00"));
+        }
+        writer.join();
+        drill.setPrice(new BigDecimal("45.00"));
+
+        assertEquals(0, totalOf(order.snapshot().getItems()).compareTo(order.getTotal()));
+    }
+
+    private static BigDecimal totalOf(List<Item> items) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Item item : items) {
+            total = total.add(item.totalPrice(CLOCK));
+        }
+        return total;
+    }
+}
@@ -0,0 +1,241 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+public class PartitionedOrderStoreTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+
+    @Test
+    public void routesEachOrderToOneWorkerAndMergesSummaries() throws Exception {
+        List<LocalOrderWorker> workers = new ArrayList<>();
+        try (PartitionedOrderStore store = new PartitionedOrderStore(64, 32)) {
+            for (int w = 0; w < 4; w++) {
+                LocalOrderWorker worker = new LocalOrderWorker(CLOCK);
+                workers.add(worker);
+                store.addWorker("worker-" + w, worker);
+            }
+            Map<Long, Order> expected = addOrders(store, 200, 2000);
+
+            int holders = 0;
+            for (Map.Entry<Long, Order> order : expected.entrySet()) {
+                assertEquals(order.getValue().getTotal(), store.getTotal(order.getKey()));
+                int partition = store.partitionOf(order.getKey());
+                for (LocalOrderWorker worker : workers) {
+                    holders += worker.getTotal(partition, order.getKey()) != null ? 1 : 0;
+                }
+            }
+            assertEquals(expected.size(), holders);
+            assertNull(store.getTotal(-1));
+            for (LocalOrderWorker worker : workers) {
+                // 64 partitions over 4 workers; consistent hashing is only roughly even
+                assertNotEquals(0, worker.partitionCount());
+            }
+
+            PartitionedOrderStore.Summary summary = store.summarize();
+            assertEquals(200, summary.getOrderCount());
+            assertEquals(2000, summary.getItemCount());
+            assertEquals(total(expected), summary.getTotal());
+            // the clock is fixed, so re-pricing gives back the amounts the orders recorded
+            assertEquals(summary.getTotal(), sum(summary.getRepricedRevenueByType()));
+        }
+    }
+
+    @Test
+    public void movesOnlyThePartitionsWhoseOwnerChanges() throws Exception {
+        try (PartitionedOrderStore store = new PartitionedOrderStore(128, 32)) {
+            assertThrows(IllegalStateException.class, () -> store.addItem(1, new Purchase("Phone Case", new BigDecimal("7.88"))));
+            for (int w = 0; w < 3; w++) {
+                store.addWorker("worker-" + w, new LocalOrderWorker(CLOCK));
+            }
+            Map<Long, Order> expected = addOrders(store, 1000, 3000);
+
+            String[] before = owners(store);
+            int moved = store.addWorker("worker-3", new LocalOrderWorker(CLOCK));
+            String[] after = owners(store);
+            int changed = 0;
+            for (int p = 0; p < before.length; p++) {
+                if (!before[p].equals(after[p])) {
+                    assertEquals("worker-3", after[p]);
+                    changed++;
+                }
+            }
+            assertEquals(changed, moved);
+            assertNotEquals(0, moved);
+            assertNotEquals(before.length, moved);
+            assertTotals(store, expected);
+
+            moved = store.removeWorker("worker-1");
+            String[] left = owners(store);
+            changed = 0;
+            for (int p = 0; p < after.length; p++) {
+                if (after[p].equals("worker-1")) {
+                    assertNotEquals("worker-1", left[p]);
+                    changed++;
+                } else {
+                    assertEquals(after[p], left[p]);
+                }
+            }
+            assertEquals(changed, moved);
+            assertEquals(3, store.workerCount());
+            assertTotals(store, expected);
+            assertEquals(1000, store.summarize().getOrderCount());
+            assertEquals(3000, store.summarize().getItemCount());
+        }
+    }
+
+    @Test
+    public void aFailedMoveLeavesTheOrdersWithTheirOldOwner() throws Exception {
+        try (PartitionedOrderStore store = new PartitionedOrderStore(64, 32)) {
+            store.addWorker("worker-0", new LocalOrderWorker(CLOCK));
+            Map<Long, Order> expected = addOrders(store, 500, 1500);
+            LocalOrderWorker local = new LocalOrderWorker(CLOCK);
+            // takes a few partitions, then fails as if its process died
+            OrderWorker refusing = new OrderWorker() {
+                private int puts;
+
+                @Override
+                public void addItem(int partition, long orderId, Item item) {
+                    local.addItem(partition, orderId, item);
+                }
+
+                @Override
+                public BigDecimal getTotal(int partition, long orderId) {
+                    return local.getTotal(partition, orderId);
+                }
+
+                @Override
+                public PartitionedOrderStore.Summary summarize() {
+                    return local.summarize();
+                }
+
+                @Override
+                public ByteBuffer copyPartition(int partition) {
+                    return local.copyPartition(partition);
+                }
+
+                @Override
+                public void putPartition(int partition, ByteBuffer orders) {
+                    if (++puts > 3) {
+                        throw new IllegalStateException("worker gone");
+                    }
+                    local.putPartition(partition, orders);
+                }
+
+                @Override
+                public void dropPartition(int partition) {
+                    local.dropPartition(partition);
+                }
+
+                @Override
+                public void close() {
+                    local.close();
+                }
+            };
+
+            assertThrows(IllegalStateException.class, () -> store.addWorker("worker-1", refusing));
+            assertTotals(store, expected);
+            assertEquals(500, store.summarize().getOrderCount());
+            assertEquals(1500, store.summarize().getItemCount());
+        }
+    }
+
+    @Test
+    public void shardsOverLoopbackWorkers() throws Exception {
+        List<OrderWorkerServer> servers = new ArrayList<>();
+        try (PartitionedOrderStore store = new PartitionedOrderStore()) {
+            for (int w = 0; w < 3; w++) {
+                OrderWorkerServer server = new OrderWorkerServer(new LocalOrderWorker(CLOCK), 0);
+                servers.add(server);
+                InetSocketAddress address = new InetSocketAddress(InetAddress.getLoopbackAddress(), server.port());
+                if (w < 2) {
+                    store.addWorker("worker-" + w, new RemoteOrderWorker(address, 2));
+                } else {
+                    Map<Long, Order> expected = addOrders(store, 300, 1500);
+                    assertNotEquals(0, store.addWorker("worker-" + w, new RemoteOrderWorker(address)));
+                    assertTotals(store, expected);
+
+                    PartitionedOrderStore.Summary summary = store.summarize();
+                    assertEquals(300, summary.getOrderCount());
+                    assertEquals(total(expected), summary.getTotal());
+                    assertEquals(summary.getTotal(), sum(summary.getRepricedRevenueByType()));
+                }
+            }
+        } finally {
+            for (OrderWorkerServer server : servers) {
+                server.close();
+            }
+        }
+    }
+
+    // items of every kind, spread round-robin over the orders
+    private static Map<Long, Order> addOrders(PartitionedOrderStore store, int orders, int items) throws Exception {
+        Map<Long, Order> expected = new HashMap<>();
+        LocalDateTime now = LocalDateTime.now(CLOCK);
+        for (int i = 0; i < items; i++) {
+            long orderId = i % orders * 7919L;
+            Item item;
+            switch (i % 3) {
+                case 0:
+                    item = new Purchase("Product " + i, new BigDecimal("1.25").add(BigDecimal.valueOf(i % 50)));
+                    break;
+                case 1:
+                    item = new Lease("PLT-" + i, new BigDecimal("3.05"), 1 + i % 12);
+                    break;
+                default:
+                    item = new Rental(new BigDecimal("12.44"), now.plusDays(1 + i % 9));
+            }
+            store.addItem(orderId, item);
+            expected.computeIfAbsent(orderId, key -> new Order(CLOCK)).addItem(item);
+        }
+        return expected;
+    }
+
+    private static void assertTotals(PartitionedOrderStore store, Map<Long, Order> expected) throws Exception {
+        for (Map.Entry<Long, Order> order : expected.entrySet()) {
+            assertEquals(order.getValue().getTotal(), store.getTotal(order.getKey()));
+        }
+    }
+
+    private static String[] owners(PartitionedOrderStore store) {
+        String[] owners = new String[store.partitionCount()];
+        for (int p = 0; p < owners.length; p++) {
+            owners[p] = store.ownerOf(p);
+        }
+        return owners;
+    }
+
+    private static BigDecimal total(Map<Long, Order> orders) {
+        BigDecimal total = BigDecimal.ZERO;
+        for (Order order : orders.values()) {
+            total = total.add(order.getTotal());
+        }
+        return total;
+    }
+
+    private static BigDecimal sum(Map<String, BigDecimal> amounts) {
+        BigDecimal sum = BigDecimal.ZERO;
+        for (BigDecimal amount : amounts.values()) {
+            sum = sum.add(amount);
+        }
+        return sum;
+    }
+}
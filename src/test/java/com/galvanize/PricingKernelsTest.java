@@ -0,0 +1,113 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+
+public class PricingKernelsTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+
+    static class GiftCard extends Item {
+        GiftCard(BigDecimal value) {
+            setPrice(value);
+        }
+
+        @Override
+        BigDecimal totalPrice() {
+            return getPrice().add(BigDecimal.ONE);
+        }
+    }
+
+    static class Voucher extends Item {
+        Voucher(BigDecimal value) {
+            setPrice(value);
+        }
+
+        @Override
+        BigDecimal totalPrice() {
+            return getPrice().negate();
+        }
+    }
+
+    @Test
+    public void pricesMixedItemsLikeTheirOwnTotals() {
+        PricingKernels.register(new PricingKernel<GiftCard>() {
+            @Override
+            public Class<GiftCard> itemType() {
+                return GiftCard.class;
+            }
+
+            @Override
+            public void price(Item[] items, int from, int to, Clock clock, long[] cents) {
+                for (int i = from; i < to; i++) {
+                    cents[i] = Money.plus(items[i].priceCents(), 100);
+                }
+            }
+        });
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            BigDecimal price = BigDecimal.valueOf(100 + i, 2);
+            items.add(new Lease("PLT-" + i, price, 1 + i % 12));
+            items.add(new Purchase("Product", price));
+            items.add(new Rental(price, LocalDateTime.of(2030, 3, 1 + i % 20, 7, 30)));
+            items.add(new GiftCard(price));
+            items.add(new Voucher(price));
+            items.add(new Purchase("Screw", new BigDecimal("0.125")));
+            items.add(new Lease("PLT-" + i, price, 1) {
+            });
+        }
+        Item[] batch = items.toArray(new Item[0]);
+        long[] cents = new long[batch.length];
+        BigDecimal[] inexactAmounts = new BigDecimal[batch.length];
+        PricingKernels.price(batch, batch.length, CLOCK, cents, inexactAmounts);
+
+        long[] expected = new long[batch.length];
+        for (int i = 0; i < batch.length; i++) {
+            expected[i] = batch[i].totalCents(CLOCK);
+            if (expected[i] == Money.INEXACT) {
+                assertEquals(batch[i].totalPrice(CLOCK), inexactAmounts[i]);
+            } else {
+                assertNull(inexactAmounts[i]);
+            }
+        }
+        assertArrayEquals(expected, cents);
+    }
+
+    @Test
+    public void fallsBackToTheItemsOwnPricing() {
+        assertSame(PricingKernels.GENERIC, PricingKernels.forType(Voucher.class));
+        assertEquals(Lease.class, PricingKernels.forType(Lease.class).itemType());
+    }
+
+    @Test
+    public void orderTotalsMatchItemByItemPricing() {
+        List<Item> items = new ArrayList<>();
+        Order oneByOne = new Order(CLOCK);
+        for (int i = 0; i < 30; i++) {
+            Item item = i % 3 == 0 ? new Voucher(BigDecimal.valueOf(i, 1))
+                    : i % 3 == 1 ? new Rental(new BigDecimal("12.44"), LocalDateTime.of(2030, 3, 5, 7, 30))
+                    : new Purchase("Product", new BigDecimal("0.125"));
+            items.add(item);
+            oneByOne.addItem(item);
+        }
+        Order batched = new Order(CLOCK);
+        batched.addAll(items);
+
+        assertEquals(oneByOne.getTotal(), batched.getTotal());
+        assertEquals(oneByOne.getItems(), batched.getItems());
+        batched.reprice();
+        assertEquals(oneByOne.getTotal(), batched.getTotal());
+    }
+}
@@ -0,0 +1,110 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+public class RentalExpiryIndexTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+
+    private static Rental rentalEnding(LocalDateTime endDate) {
+        return new Rental(BigDecimal.TEN, endDate);
+    }
+
+    @Test
+    public void expiresRentalsOnceTheirEndDatePasses() {
+        LocalDateTime now = LocalDateTime.now(CLOCK);
+        RentalExpiryIndex index = new RentalExpiryIndex(CLOCK);
+        Rental inAMinute = rentalEnding(now.plusMinutes(1));
+        Rental tomorrow = rentalEnding(now.plusDays(1));
+        Rental nextYear = rentalEnding(now.plusYears(1));
+        Rental over = rentalEnding(now.minusDays(3));
+        index.add(nextYear);
+        index.add(tomorrow);
+        index.add(inAMinute);
+        index.add(over);
+
+        Instant start = CLOCK.instant();
+        assertEquals(Collections.singletonList(over), index.advance(start));
+        assertTrue(index.advance(start.plusSeconds(60)).isEmpty());
+        assertEquals(Collections.singletonList(inAMinute), index.advance(start.plusSeconds(61)));
+        assertTrue(index.advance(start.plus(Duration.ofHours(23))).isEmpty());
+        assertEquals(Collections.singletonList(tomorrow), index.advance(start.plus(Duration.ofDays(2))));
+        assertEquals(1, index.size());
+        assertEquals(Collections.singletonList(nextYear), index.advance(start.plus(Duration.ofDays(400))));
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void cancelledRentalsNeverExpire() {
+        LocalDateTime now = LocalDateTime.now(CLOCK);
+        RentalExpiryIndex index = new RentalExpiryIndex(CLOCK);
+        Rental kept = rentalEnding(now.plusHours(2));
+        long handle = index.add(rentalEnding(now.plusHours(1)));
+        index.add(kept);
+
+        assertTrue(index.cancel(handle));
+        assertFalse(index.cancel(handle));
+        // the freed entry is reused; the old handle must not reach the new rental
+        Rental reused = rentalEnding(now.plusHours(3));
+        index.add(reused);
+        assertFalse(index.cancel(handle));
+
+        assertEquals(2, index.advance(CLOCK.instant().plus(Duration.ofDays(1))).size());
+        assertEquals(0, index.size());
+    }
+
+    @Test
+    public void expiresInEndDateOrderLikeAFullScan() {
+        LocalDateTime now = LocalDateTime.now(CLOCK);
+        Random random = new Random(42);
+        RentalExpiryIndex index = new RentalExpiryIndex(CLOCK, 16);
+        List<Rental> all = new ArrayList<>();
+        List<Long> handles = new ArrayList<>();
+        for (int i = 0; i < 20_000; i++) {
+            Rental rental = rentalEnding(now.plusSeconds(random.nextInt(90 * 86_400)));
+            all.add(rental);
+            handles.add(index.add(rental));
+        }
+        List<Rental> cancelled = new ArrayList<>();
+        for (int i = 0; i < all.size(); i += 7) {
+            assertTrue(index.cancel(handles.get(i)));
+            cancelled.add(all.get(i));
+        }
+
+        Instant at = CLOCK.instant();
+        List<Rental> expired = new ArrayList<>();
+        for (int step = 0; step < 200; step++) {
+            at = at.plusSeconds(random.nextInt(86_400));
+            LocalDateTime asOf = LocalDateTime.ofInstant(at, ZoneId.of("UTC"));
+            int before = expired.size();
+            index.advance(at, expired::add);
+            for (Rental rental : expired.subList(before, expired.size())) {
+                assertTrue(rental.getEndDate().isBefore(asOf));
+            }
+        }
+        index.advance(at.plus(Duration.ofDays(365)), expired::add);
+
+        assertEquals(all.size() - cancelled.size(), expired.size());
+        for (int i = 1; i < expired.size(); i++) {
+            assertFalse(expired.get(i).getEndDate().isBefore(expired.get(i - 1).getEndDate()));
+        }
+        for (Rental rental : cancelled) {
+            assertFalse(expired.contains(rental));
+        }
+    }
+}
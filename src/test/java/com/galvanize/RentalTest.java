@@ -0,0 +1,54 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.temporal.ChronoUnit;
+import java.util.Random;
+
+public class RentalTest {
+
+    private static final ZoneId ZONE = ZoneId.of("America/Denver");
+
+    @Test
+    public void pricesAgainstTheInjectedClock() {
+        Clock clock = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZONE);
+        Rental rental = new Rental(new BigDecimal("12.44"), LocalDateTime.of(2030, 3, 6, 4, 0));
+
+        Order order = new Order(clock);
+        order.addItem(rental);
+
+        assertEquals(new BigDecimal("62.20"), order.getTotal());
+        assertEquals(new BigDecimal("62.20"), rental.totalPrice(clock));
+    }
+
+    @Test
+    public void matchesLocalDateTimeUntil() {
+        Random random = new Random(42);
+        LocalDateTime endDate = LocalDateTime.of(2030, 6, 15, 10, 30, 15, 500);
+        Rental rental = new Rental(new BigDecimal("1.00"), endDate);
+        for (int i = 0; i < 10_000; i++) {
+            LocalDateTime asOf = endDate.plusSeconds(random.nextInt(40 * 86_400) - 20 * 86_400).withNano(random.nextInt(1000));
+            Clock clock = Clock.fixed(asOf.atZone(ZONE).toInstant(), ZONE);
+            assertEquals(asOf.until(endDate, ChronoUnit.DAYS) + 1, rental.rentalDays(clock), asOf.toString());
+        }
+    }
+
+    @Test
+    public void repricesAsOfAnInstant() {
+        Clock clock = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZONE);
+        Order order = new Order(clock);
+        order.addItem(new Rental(new BigDecimal("2.00"), LocalDateTime.of(2030, 3, 11, 12, 0)));
+        order.addItem(new Purchase("Phone Case", new BigDecimal("7.88")));
+        assertEquals(new BigDecimal("29.88"), order.getTotal());
+
+        order.repriceAsOf(Instant.parse("2030-03-09T12:00:00Z"));
+        assertEquals(new BigDecimal("13.88"), order.getTotal());
+    }
+}
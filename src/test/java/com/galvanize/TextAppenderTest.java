@@ -0,0 +1,88 @@
+package com.galvanize;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.nio.CharBuffer;
+import java.time.Clock;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Random;
+
+public class TextAppenderTest {
+
+    private static final Clock CLOCK = Clock.fixed(Instant.parse("2030-03-01T12:00:00Z"), ZoneId.of("UTC"));
+
+    private static final BigDecimal[] PRICES = {
+            new BigDecimal("3.05"), new BigDecimal("7.8"), new BigDecimal("12"), new BigDecimal("0.05"),
+            new BigDecimal("-0.50"), new BigDecimal("0.125"), new BigDecimal("1E+3"), new BigDecimal("0E-9"),
+            new BigDecimal("92233720368547758.07"), new BigDecimal("123456789012345678901234.5"), null};
+
+    private static final LocalDateTime[] END_DATES = {
+            LocalDateTime.of(2030, 3, 5, 7, 30), LocalDateTime.of(2030, 3, 5, 7, 30, 1),
+            LocalDateTime.of(2030, 3, 5, 7, 30, 0, 500_000_000), LocalDateTime.of(2030, 3, 5, 7, 30, 0, 1000),
+            LocalDateTime.of(2030, 3, 5, 7, 30, 0, 1), LocalDateTime.of(12, 1, 1, 0, 0),
+            LocalDateTime.of(-12, 12, 31, 23, 59), LocalDateTime.of(12345, 6, 7, 8, 9),
+            LocalDateTime.of(-12345, 6, 7, 8, 9), LocalDateTime.MIN, LocalDateTime.MAX, null};
+
+    @Test
+    public void rendersItemsLikeStringConcatenation() {
+        for (BigDecimal price : PRICES) {
+            Lease lease = new Lease("XVB-104", price, 6);
+            assertEquals("Lease{pricePerMonth=" + price + ", numberOfMonths=6, licensePlate='XVB-104'}", lease.toString());
+            Purchase purchase = new Purchase("Phone Case", price);
+            assertEquals("Purchase{price=" + price + ", productName='Phone Case'}", purchase.toString());
+            for (LocalDateTime endDate : END_DATES) {
+                Rental rental = new Rental(price, endDate);
+                assertEquals("Rental{rentalPricePerDay=" + price + ", endDate=" + endDate + "}", rental.toString());
+            }
+        }
+        assertEquals("Purchase{price=1.00, productName='null'}", new Purchase(null, new BigDecimal("1.00")).toString());
+    }
+
+    @Test
+    public void rendersRandomAmountsLikeBigDecimal() throws IOException {
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            long unscaled = random.nextLong() >> random.nextInt(64);
+            int scale = random.nextInt(3);
+            BigDecimal amount = BigDecimal.valueOf(unscaled, scale);
+            StringBuilder text = new StringBuilder();
+            TextAppender.appendDecimal(text, amount, Money.toCents(amount));
+            assertEquals(amount.toString(), text.toString());
+            text.setLength(0);
+            TextAppender.appendCents(text, unscaled);
+            assertEquals(Money.toBigDecimal(unscaled).toString(), text.toString());
+        }
+    }
+
+    @Test
+    public void appendsToWritersAndCharBuffers() throws IOException {
+        Order order = new Order(CLOCK);
+        order.addItem(new Lease("XVB-104", new BigDecimal("3.05"), 6));
+        order.addItem(new Purchase("Phone Case", new BigDecimal("7.88")));
+        order.addItem(new Rental(new BigDecimal("12.44"), LocalDateTime.of(2030, 3, 5, 7, 30)));
+        String expected = "Order{items=[Lease{pricePerMonth=3.05, numberOfMonths=6, licensePlate='XVB-104'}, "
+                + "Purchase{price=7.88, productName='Phone Case'}, "
+                + "Rental{rentalPricePerDay=12.44, endDate=2030-03-05T07:30}], total=75.94}";
+
+        StringWriter writer = new StringWriter();
+        order.appendTo(writer);
+        CharBuffer buffer = CharBuffer.allocate(256);
+        order.appendTo(buffer);
+        buffer.flip();
+
+        assertEquals(expected, order.toString());
+        assertEquals(expected, writer.toString());
+        assertEquals(expected, buffer.toString());
+
+        order.addItem(new Purchase("Screw", new BigDecimal("0.125")));
+        assertEquals("Order{items=[], total=0.00}", new Order(CLOCK).toString());
+        assertEquals(true, order.toString().endsWith("Purchase{price=0.125, productName='Screw'}], total=76.065}"));
+    }
+}